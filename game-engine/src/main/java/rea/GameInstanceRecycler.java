@@ -0,0 +1,200 @@
+package rea;
+
+import rea.gaming.GameInstance;
+import rea.gaming.GameStage;
+
+import java.util.Comparator;
+import java.util.Date;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * <p>Background recycler of ended game instances, used by {@link Manager}.
+ * When a game instance ends it is registered in a priority queue ordered by end time,
+ * and a daemon thread, started with {@link #start()}, periodically removes from the {@link GameInstanceRegistry}
+ * the instances that ended more than {@link Manager#getKeepAfterEnd()} milliseconds ago.
+ * Each sweep only looks at the head of the queue, hence it costs proportionally
+ * to the number of instances it recycles, regardless of the size of the pool.</p>
+ * <p>The time to keep instances after they end is read on each sweep,
+ * so changing it also applies to instances that have already ended.
+ * Sweep metrics are available for monitoring.</p>
+ */
+public class GameInstanceRecycler {
+
+    /**
+     * Default interval in milliseconds between sweeps.
+     */
+    static final long SWEEP_INTERVAL = 1000L;
+
+    /**
+     * An ended game instance waiting to be recycled.
+     * @param gameInstance ended
+     * @param endedAt time when the game ended, in milliseconds
+     */
+    private record Expiry(GameInstance gameInstance, long endedAt) {
+    }
+
+    private final GameInstanceRegistry registry;
+    private final LongSupplier keepAfterEnd;
+    private final PriorityBlockingQueue<Expiry> expiries =
+            new PriorityBlockingQueue<>(16, Comparator.comparingLong(Expiry::endedAt));
+    private final ScheduledExecutorService scheduler;
+    private final long sweepInterval;
+    private boolean started;
+
+    private final AtomicLong sweepCount = new AtomicLong();
+    private final AtomicLong recycledCount = new AtomicLong();
+    private volatile long lastSweepNanos;
+    private volatile long lastSweepRecycled;
+    private volatile Consumer<GameInstance> recycledListener = gameInstance -> {};
+
+    /**
+     * Create a recycler for the instances of a registry, sweeping at the default interval once started.
+     * @param registry from where ended instances are removed
+     * @param keepAfterEnd supplier of the time in milliseconds to keep an instance after it has ended
+     */
+    public GameInstanceRecycler(GameInstanceRegistry registry, LongSupplier keepAfterEnd) {
+        this(registry, keepAfterEnd, SWEEP_INTERVAL);
+    }
+
+    /**
+     * Create a recycler for the instances of a registry. Instances are only recycled in the background
+     * after {@link #start()}, hence the thread is not started while this recycler is being constructed.
+     * @param registry from where ended instances are removed
+     * @param keepAfterEnd supplier of the time in milliseconds to keep an instance after it has ended
+     * @param sweepInterval interval in milliseconds between sweeps
+     */
+    public GameInstanceRecycler(GameInstanceRegistry registry, LongSupplier keepAfterEnd, long sweepInterval) {
+        if (registry == null || keepAfterEnd == null)
+            throw new IllegalArgumentException("GameInstanceRecycler: registry or keepAfterEnd is null.");
+
+        if (sweepInterval <= 0)
+            throw new IllegalArgumentException("GameInstanceRecycler: sweep interval must be positive.");
+
+        this.registry = registry;
+        this.keepAfterEnd = keepAfterEnd;
+        this.sweepInterval = sweepInterval;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rea-game-instance-recycler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Start sweeping periodically in the background.
+     * It returns the recycler itself to allow chaining.
+     * @return the recycler itself.
+     */
+    public synchronized GameInstanceRecycler start() {
+        if (started)
+            throw new IllegalStateException("GameInstanceRecycler.start: already started.");
+
+        started = true;
+        scheduler.scheduleWithFixedDelay(this::sweep, sweepInterval, sweepInterval, TimeUnit.MILLISECONDS);
+
+        return this;
+    }
+
+    /**
+     * Register an ended game instance to be recycled.
+     * Instances that have not ended are ignored.
+     * @param gameInstance that ended
+     */
+    public void register(GameInstance gameInstance) {
+        if (gameInstance == null || gameInstance.getCurrentStage() != GameStage.ENDED)
+            return;
+
+        Date playingUntil = gameInstance.getPlayingUntil();
+
+        expiries.add(new Expiry(gameInstance, playingUntil.getTime()));
+    }
+
+    /**
+     * Remove from the registry the registered instances that ended more than
+     * the time to keep them ago. Invoked periodically by the recycler thread,
+     * it can also be invoked directly to recycle immediately.
+     * @return number of instances recycled in this sweep
+     */
+    public synchronized int sweep() {
+        long start = System.nanoTime();
+        long deadline = new Date().getTime() - keepAfterEnd.getAsLong();
+        int recycled = 0;
+
+        for (Expiry head = expiries.peek(); head != null && head.endedAt() <= deadline; head = expiries.peek()) {
+            expiries.poll();
+
+            if (registry.remove(head.gameInstance())) {
+                recycledListener.accept(head.gameInstance());
+                recycled++;
+            }
+        }
+
+        sweepCount.incrementAndGet();
+        recycledCount.addAndGet(recycled);
+        lastSweepRecycled = recycled;
+        lastSweepNanos = System.nanoTime() - start;
+
+        return recycled;
+    }
+
+    /**
+     * Set the listener notified of each instance removed from the registry by this recycler.
+     * @param recycledListener of recycled instances
+     */
+    public void setRecycledListener(Consumer<GameInstance> recycledListener) {
+        if (recycledListener == null)
+            throw new IllegalArgumentException("GameInstanceRecycler.setRecycledListener: listener is null.");
+
+        this.recycledListener = recycledListener;
+    }
+
+    /**
+     * Stop the recycler thread. Registered instances are no longer recycled in the background.
+     */
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Number of sweeps performed so far.
+     * @return number of sweeps
+     */
+    public long getSweepCount() {
+        return sweepCount.get();
+    }
+
+    /**
+     * Number of instances recycled so far.
+     * @return number of recycled instances
+     */
+    public long getRecycledCount() {
+        return recycledCount.get();
+    }
+
+    /**
+     * Number of instances recycled in the last sweep.
+     * @return number of instances recycled
+     */
+    public long getLastSweepRecycled() {
+        return lastSweepRecycled;
+    }
+
+    /**
+     * Duration of the last sweep.
+     * @return duration in nanoseconds
+     */
+    public long getLastSweepNanos() {
+        return lastSweepNanos;
+    }
+
+    /**
+     * Number of ended instances waiting to be recycled.
+     * @return number of pending instances
+     */
+    public int getPendingCount() {
+        return expiries.size();
+    }
+}
@@ -0,0 +1,225 @@
+package rea;
+
+import rea.events.GameChangedEvent;
+import rea.events.UpdateListener;
+import rea.gaming.GameInstance;
+import rea.gaming.GameStage;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * <p>A concurrent registry of game instances, used by {@link Manager}.
+ * Instances are keyed by their stable id ({@link GameInstance#getId()}) and
+ * indexed by {@link GameStage} and by gameplay name, so that lobby queries
+ * cost proportionally to the size of the result instead of the number of instances.</p>
+ * <p>The indexes are kept up to date by a game changed listener that the registry
+ * adds to each registered instance, since game instances broadcast a
+ * {@link rea.events.GameChangedEvent} whenever players join, or the game starts or ends,
+ * and removes when the instance is unregistered.
+ * An instance is registered, reindexed and unregistered while holding its lock.
+ * All methods are thread safe and query results are ordered by instance id,
+ * that is, by creation order.</p>
+ */
+public class GameInstanceRegistry {
+
+    /**
+     * Order of game instances in the indexes.
+     */
+    private static final Comparator<GameInstance> BY_ID = Comparator.comparingLong(GameInstance::getId);
+
+    /**
+     * All registered instances, indexed by id.
+     */
+    private final ConcurrentSkipListMap<Long, GameInstance> instancesById = new ConcurrentSkipListMap<>();
+
+    /**
+     * The stage under which each registered instance is currently indexed.
+     */
+    private final ConcurrentMap<Long, GameStage> indexedStages = new ConcurrentHashMap<>();
+
+    /**
+     * Registered instances, indexed by stage.
+     */
+    private final Map<GameStage, Set<GameInstance>> instancesByStage = new EnumMap<>(GameStage.class);
+
+    /**
+     * Registered instances, indexed by gameplay name.
+     */
+    private final ConcurrentMap<String, Set<GameInstance>> instancesByGameplay = new ConcurrentHashMap<>();
+
+    /**
+     * Registered instances that are about to start, i.e. that can start but have not started yet.
+     */
+    private final Set<GameInstance> instancesAboutToStart = new ConcurrentSkipListSet<>(BY_ID);
+
+    /**
+     * The game changed listener added to each registered instance, indexed by id.
+     */
+    private final ConcurrentMap<Long, UpdateListener<GameChangedEvent>> listenersById = new ConcurrentHashMap<>();
+
+    /**
+     * Create an empty registry.
+     */
+    public GameInstanceRegistry() {
+        for (GameStage stage : GameStage.values())
+            instancesByStage.put(stage, new ConcurrentSkipListSet<>(BY_ID));
+    }
+
+    /**
+     * Register a game instance and index it by stage and gameplay name.
+     * Registering an instance twice has no effect.
+     * @param gameInstance to register
+     */
+    public void add(GameInstance gameInstance) {
+        if (gameInstance == null)
+            throw new IllegalArgumentException("GameInstanceRegistry.add: game instance is null.");
+
+        synchronized (gameInstance) {
+            if (instancesById.putIfAbsent(gameInstance.getId(), gameInstance) != null)
+                return;
+
+            instancesByGameplay
+                    .computeIfAbsent(gameInstance.getName(), name -> new ConcurrentSkipListSet<>(BY_ID))
+                    .add(gameInstance);
+
+            reindex(gameInstance);
+
+            UpdateListener<GameChangedEvent> listener = event -> reindex(event.getGameInstance());
+
+            listenersById.put(gameInstance.getId(), listener);
+            gameInstance.addGameChangedListener(listener);
+        }
+    }
+
+    /**
+     * Unregister a game instance, removing it from all indexes.
+     * @param gameInstance to remove
+     * @return <code>true</code> if the instance was registered, <code>false</code> otherwise
+     */
+    public boolean remove(GameInstance gameInstance) {
+        if (gameInstance == null)
+            return false;
+
+        synchronized (gameInstance) {
+            if (instancesById.remove(gameInstance.getId()) == null)
+                return false;
+
+            GameStage stage = indexedStages.remove(gameInstance.getId());
+            if (stage != null)
+                instancesByStage.get(stage).remove(gameInstance);
+
+            instancesAboutToStart.remove(gameInstance);
+
+            Set<GameInstance> sameGameplay = instancesByGameplay.get(gameInstance.getName());
+            if (sameGameplay != null)
+                sameGameplay.remove(gameInstance);
+
+            UpdateListener<GameChangedEvent> listener = listenersById.remove(gameInstance.getId());
+            if (listener != null)
+                gameInstance.removeGameChangedListener(listener);
+        }
+
+        return true;
+    }
+
+    /**
+     * Update the indexes of a registered game instance after it has changed.
+     * Unregistered instances are ignored.
+     * @param gameInstance that changed
+     */
+    void reindex(GameInstance gameInstance) {
+        synchronized (gameInstance) {
+            if (!instancesById.containsKey(gameInstance.getId()))
+                return;
+
+            GameStage stage = gameInstance.getCurrentStage();
+            GameStage previous = indexedStages.put(gameInstance.getId(), stage);
+
+            if (previous != stage) {
+                if (previous != null)
+                    instancesByStage.get(previous).remove(gameInstance);
+                instancesByStage.get(stage).add(gameInstance);
+            }
+
+            if (gameInstance.canStart())
+                instancesAboutToStart.add(gameInstance);
+            else
+                instancesAboutToStart.remove(gameInstance);
+        }
+    }
+
+    /**
+     * Get a registered game instance by its id.
+     * @param id of the game instance
+     * @return the game instance, or <code>null</code> if not registered
+     */
+    public GameInstance get(long id) {
+        return instancesById.get(id);
+    }
+
+    /**
+     * Check if a game instance is registered.
+     * @param gameInstance to check
+     * @return <code>true</code> if registered, <code>false</code> otherwise
+     */
+    public boolean contains(GameInstance gameInstance) {
+        return gameInstance != null && instancesById.get(gameInstance.getId()) == gameInstance;
+    }
+
+    /**
+     * Number of registered game instances.
+     * @return number of game instances
+     */
+    public int size() {
+        return instancesById.size();
+    }
+
+    /**
+     * All registered game instances, ordered by id.
+     * @return list of game instances
+     */
+    public List<GameInstance> getAll() {
+        return new ArrayList<>(instancesById.values());
+    }
+
+    /**
+     * Registered game instances in a given stage, ordered by id.
+     * @param stage of the game instances
+     * @return list of game instances
+     */
+    public List<GameInstance> getByStage(GameStage stage) {
+        return new ArrayList<>(instancesByStage.get(stage));
+    }
+
+    /**
+     * Registered game instances of a given gameplay, ordered by id.
+     * @param gameName name of the gameplay
+     * @return list of game instances
+     */
+    public List<GameInstance> getByGameplay(String gameName) {
+        Set<GameInstance> sameGameplay = instancesByGameplay.get(gameName);
+
+        return sameGameplay == null ? new ArrayList<>() : new ArrayList<>(sameGameplay);
+    }
+
+    /**
+     * Registered game instances about to start, ordered by id.
+     * @return list of game instances
+     * @see GameInstance#canStart()
+     */
+    public List<GameInstance> getAboutToStart() {
+        return new ArrayList<>(instancesAboutToStart);
+    }
+
+    /**
+     * Remove all game instances from the registry.
+     */
+    public void clear() {
+        for (GameInstance gameInstance : instancesById.values())
+            remove(gameInstance);
+    }
+}
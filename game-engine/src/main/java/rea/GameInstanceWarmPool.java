@@ -0,0 +1,186 @@
+package rea;
+
+import rea.gaming.GameInstance;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * <p>Pool of ready-made game instances of each gameplay, used by {@link Manager}
+ * to hand out new instances without building them on the request path.
+ * Each gameplay has up to {@link #getSize()} instances in the {@link rea.gaming.GameStage#CREATED} stage,
+ * not yet in the {@link GameInstanceRegistry}. Taking an instance triggers a refill of its gameplay,
+ * performed by a daemon thread, hence a burst of requests larger than the pool is served
+ * partly from the pool and partly by building instances on demand.</p>
+ * <p>Hit and miss counts are available for monitoring.</p>
+ */
+public class GameInstanceWarmPool {
+
+    private final Function<String, GameInstance> instanceFactory;
+    private final Map<String, Queue<GameInstance>> ready = new ConcurrentHashMap<>();
+    private final Set<String> refilling = ConcurrentHashMap.newKeySet();
+    private final ExecutorService refiller;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private volatile int size;
+
+    /**
+     * Create a pool of instances.
+     * @param instanceFactory creating a new instance of the game with a given name
+     * @param size number of instances to keep ready for each gameplay
+     */
+    public GameInstanceWarmPool(Function<String, GameInstance> instanceFactory, int size) {
+        if (instanceFactory == null)
+            throw new IllegalArgumentException("GameInstanceWarmPool: instance factory is null.");
+
+        if (size < 0)
+            throw new IllegalArgumentException("GameInstanceWarmPool: size must not be negative.");
+
+        this.instanceFactory = instanceFactory;
+        this.size = size;
+        this.refiller = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rea-game-instance-pool");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Take a ready instance of a game, and refill the pool of that game in the background.
+     * @param gameName name of the game
+     * @return a ready instance, or <code>null</code> if none is ready and one has to be built
+     */
+    public GameInstance take(String gameName) {
+        if (gameName == null)
+            return null;
+
+        Queue<GameInstance> instances = ready.get(gameName);
+        GameInstance gameInstance = instances == null ? null : instances.poll();
+
+        if (gameInstance == null)
+            missCount.incrementAndGet();
+        else
+            hitCount.incrementAndGet();
+
+        refill(gameName);
+
+        return gameInstance;
+    }
+
+    /**
+     * Fill the pools of some games in the background, typically when the gameplays become available.
+     * @param gameNames names of the games
+     */
+    public void warm(Collection<String> gameNames) {
+        for (String gameName : gameNames)
+            refill(gameName);
+    }
+
+    /**
+     * Schedule the refill of the pool of a game, unless one is already scheduled.
+     * @param gameName name of the game
+     */
+    private void refill(String gameName) {
+        if (size > 0 && refilling.add(gameName)) {
+            try {
+                refiller.execute(() -> fill(gameName));
+            }
+            catch (RuntimeException e) {
+                // the pool was shut down
+                refilling.remove(gameName);
+            }
+        }
+    }
+
+    /**
+     * Build instances of a game until its pool is full.
+     * A game whose instances cannot be built is left with an empty pool.
+     * @param gameName name of the game
+     */
+    private void fill(String gameName) {
+        refilling.remove(gameName);
+
+        Queue<GameInstance> instances = ready.computeIfAbsent(gameName, name -> new ConcurrentLinkedQueue<>());
+
+        try {
+            while (instances.size() < size && !Thread.currentThread().isInterrupted())
+                instances.add(instanceFactory.apply(gameName));
+        }
+        catch (RuntimeException e) {
+            // unknown game, or gameplay failing to build its map: instances are built on demand
+        }
+    }
+
+    /**
+     * Discard the ready instances, typically when the gameplays change.
+     * An instance being built is added to a discarded pool, hence is never taken.
+     */
+    public void clear() {
+        ready.clear();
+    }
+
+    /**
+     * Stop the refill thread and discard the ready instances.
+     */
+    public void shutdown() {
+        refiller.shutdownNow();
+        ready.clear();
+    }
+
+    /**
+     * Number of instances kept ready for each gameplay.
+     * @return size of the pool of each gameplay
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Set the number of instances kept ready for each gameplay.
+     * Pools larger than the new size shrink as instances are taken, smaller ones grow when refilled.
+     * @param size of the pool of each gameplay, 0 to stop keeping instances ready
+     */
+    public void setSize(int size) {
+        if (size < 0)
+            throw new IllegalArgumentException("GameInstanceWarmPool.setSize: size must not be negative.");
+
+        this.size = size;
+        warm(ready.keySet());
+    }
+
+    /**
+     * Number of instances of a game ready to be taken.
+     * @param gameName name of the game
+     * @return number of ready instances
+     */
+    public int getReadyCount(String gameName) {
+        Queue<GameInstance> instances = gameName == null ? null : ready.get(gameName);
+
+        return instances == null ? 0 : instances.size();
+    }
+
+    /**
+     * Number of requests served with a ready instance.
+     * @return number of hits
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Number of requests for which no instance was ready.
+     * @return number of misses
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+}
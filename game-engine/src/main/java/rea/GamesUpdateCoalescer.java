@@ -0,0 +1,215 @@
+package rea;
+
+import rea.events.EventBroadcast;
+import rea.events.GamesUpdateEvent;
+import rea.events.UpdateListener;
+import rea.gaming.GameInstance;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Coalesces changes in the pool of game instances into {@link GamesUpdateEvent} deltas, used by {@link Manager}.
+ * Changes (games added, removed or changed) are recorded as they happen and merged
+ * until the end of a coalescing window, when a single delta is broadcast to all listeners.
+ * With a window of 0 milliseconds, each change is broadcast immediately.</p>
+ * <p>Listeners that subscribe with {@link #subscribe(UpdateListener)} receive first a snapshot
+ * of the pool with the current version, and then the following deltas.</p>
+ */
+public class GamesUpdateCoalescer {
+
+    /**
+     * Kinds of change of a game instance in the pool.
+     */
+    private enum Change { ADDED, REMOVED, CHANGED }
+
+    private final GameInstanceRegistry registry;
+    private final EventBroadcast<GamesUpdateEvent> gamesUpdate;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Changes since the last delta, in the order they first occurred.
+     */
+    private final Map<GameInstance, Change> pending = new LinkedHashMap<>();
+
+    private long window;
+    private long version;
+    private ScheduledFuture<?> scheduledFlush;
+
+    /**
+     * Create a coalescer for the games in a registry.
+     * @param registry of game instances in the pool
+     * @param gamesUpdate where deltas are broadcast
+     * @param window coalescing window in milliseconds, 0 to broadcast immediately
+     */
+    public GamesUpdateCoalescer(GameInstanceRegistry registry,
+                                EventBroadcast<GamesUpdateEvent> gamesUpdate,
+                                long window) {
+        if (registry == null || gamesUpdate == null)
+            throw new IllegalArgumentException("GamesUpdateCoalescer: registry or event broadcast is null.");
+
+        if (window < 0)
+            throw new IllegalArgumentException("GamesUpdateCoalescer: window is negative.");
+
+        this.registry = registry;
+        this.gamesUpdate = gamesUpdate;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rea-games-update-coalescer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // nothing is pending yet, hence there is nothing to flush as in setWindow
+        this.window = window;
+    }
+
+    /**
+     * Get the coalescing window.
+     * @return window in milliseconds
+     */
+    public synchronized long getWindow() {
+        return window;
+    }
+
+    /**
+     * Set the coalescing window. Changes already recorded are broadcast immediately.
+     * @param window in milliseconds, 0 to broadcast each change immediately
+     */
+    public synchronized void setWindow(long window) {
+        if (window < 0)
+            throw new IllegalArgumentException("GamesUpdateCoalescer.setWindow: window is negative.");
+
+        this.window = window;
+        flush(false);
+    }
+
+    /**
+     * Version of the last delta broadcast.
+     * @return version
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Record a game instance added to the pool.
+     * @param gameInstance added
+     */
+    public void added(GameInstance gameInstance) {
+        record(gameInstance, Change.ADDED);
+    }
+
+    /**
+     * Record a game instance removed from the pool.
+     * @param gameInstance removed
+     */
+    public void removed(GameInstance gameInstance) {
+        record(gameInstance, Change.REMOVED);
+    }
+
+    /**
+     * Record a change in a game instance in the pool.
+     * @param gameInstance changed
+     */
+    public void changed(GameInstance gameInstance) {
+        record(gameInstance, Change.CHANGED);
+    }
+
+    /**
+     * Merge a change with those already recorded for the same game instance,
+     * and schedule a delta if none is scheduled.
+     * @param gameInstance that changed
+     * @param change of the game instance
+     */
+    private synchronized void record(GameInstance gameInstance, Change change) {
+        if (gameInstance == null)
+            return;
+
+        Change merged = merge(pending.get(gameInstance), change);
+
+        if (merged == null)
+            pending.remove(gameInstance);
+        else
+            pending.put(gameInstance, merged);
+
+        if (window == 0)
+            flush(false);
+        else if (scheduledFlush == null && !scheduler.isShutdown())
+            scheduledFlush = scheduler.schedule(() -> flush(false), window, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Merge a recorded change with a new change of the same game instance.
+     * @param previous change recorded, or <code>null</code> if none
+     * @param change new change
+     * @return merged change, or <code>null</code> if they cancel out
+     */
+    private static Change merge(Change previous, Change change) {
+        if (previous == null)
+            return change;
+
+        return switch (previous) {
+            case ADDED -> change == Change.REMOVED ? null : Change.ADDED;
+            case CHANGED -> change == Change.REMOVED ? Change.REMOVED : Change.CHANGED;
+            case REMOVED -> change == Change.ADDED ? Change.CHANGED : Change.REMOVED;
+        };
+    }
+
+    /**
+     * Broadcast the recorded changes as a single delta.
+     * @param force broadcast even if no changes were recorded
+     */
+    public synchronized void flush(boolean force) {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+
+        if (pending.isEmpty() && !force)
+            return;
+
+        List<GameInstance> added = new ArrayList<>();
+        List<GameInstance> removed = new ArrayList<>();
+        List<GameInstance> changed = new ArrayList<>();
+
+        for (Map.Entry<GameInstance, Change> entry : pending.entrySet()) {
+            switch (entry.getValue()) {
+                case ADDED -> added.add(entry.getKey());
+                case REMOVED -> removed.add(entry.getKey());
+                case CHANGED -> changed.add(entry.getKey());
+            }
+        }
+        pending.clear();
+
+        gamesUpdate.broadcast(new GamesUpdateEvent(++version, false,
+                registry.getAboutToStart(), added, removed, changed));
+    }
+
+    /**
+     * Add a listener and send it a snapshot of the pool with the current version.
+     * Changes recorded before subscribing are broadcast first, so that the
+     * snapshot and the following deltas are consistent.
+     * @param listener of games update events
+     */
+    public synchronized void subscribe(UpdateListener<GamesUpdateEvent> listener) {
+        flush(false);
+
+        gamesUpdate.addListener(listener);
+
+        listener.onUpdate(new GamesUpdateEvent(version, true,
+                registry.getAboutToStart(), registry.getAll(), List.of(), List.of()));
+    }
+
+    /**
+     * Stop the coalescer thread. Changes recorded afterwards are only broadcast by {@link #flush(boolean)}.
+     */
+    public synchronized void shutdown() {
+        scheduler.shutdownNow();
+        scheduledFlush = null;
+    }
+}
@@ -1,22 +1,36 @@
 package rea;
 
 import com.vaadin.flow.component.grid.Grid;
+import com.vaadin.flow.component.grid.dataview.GridListDataView;
 import org.springframework.stereotype.Service;
+import rea.components.Character;
 import rea.events.EventBroadcast;
 import rea.events.GamesUpdateEvent;
 import rea.events.UpdateListener;
 import rea.gameplay.AbstractGameplayFactory;
 import rea.gameplay.Gameplay;
+import rea.gaming.CommandJournal;
 import rea.gaming.GameInstance;
 import rea.gaming.GameStage;
+import rea.gaming.JournalReplay;
+import rea.gaming.Player;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 
 /**
  * A pool of game instances. It is responsible for creating and managing game instances.
  * It can also be used to get the names of the available games, and the available game instances.
+ * Game instances are kept in a concurrent {@link GameInstanceRegistry}, indexed by stage and game name.
  * A listener can be added to be notified of changes in the list of games about to start.
+ * If a journal directory is set, the changes in each game instance are recorded in a {@link CommandJournal},
+ * and the instances that were not ended can be recovered with {@link #recoverGameInstances()} after a restart.
+ * New instances are taken from a {@link GameInstanceWarmPool} of ready-made instances of each gameplay, when available.
+ * Characters can join a game without choosing an instance with {@link #quickJoin(String, Character)},
+ * which assigns them through the queues of a {@link Matchmaker}.
  * implNote - follows the <b>Singleton</b> design pattern.
  */
 @Service
@@ -28,12 +42,41 @@ public class Manager implements Serializable {
     //static final long KEEP_AFTER_END = 300000L;
     static final long KEEP_AFTER_END = 30000L; // REMOVER
 
+    /**
+     * Default coalescing window in milliseconds of {@link GamesUpdateEvent} deltas.
+     */
+    static final long GAMES_UPDATE_WINDOW = 0L;
+
+    /**
+     * Capacity of the queue of each player listener in the game instances created by the manager.
+     */
+    static final int LISTENER_QUEUE_CAPACITY = 64;
+
+    /**
+     * Number of journal records between snapshots of a game instance.
+     */
+    static final int JOURNAL_SNAPSHOT_INTERVAL = 256;
+
+    /**
+     * Default number of instances of each gameplay kept ready to be handed out.
+     */
+    static final int WARM_POOL_SIZE = 2;
+
     private static volatile Manager instance;
     private static long keepAfterEnd = KEEP_AFTER_END;
 
     private static volatile AbstractGameplayFactory gameplayFactory;
-    private static volatile List<GameInstance> gameInstancesPool;
+    private static volatile GameInstanceRegistry gameInstances = new GameInstanceRegistry();
+    private static volatile GameInstanceRecycler recycler =
+            new GameInstanceRecycler(gameInstances, Manager::getKeepAfterEnd).start();
     private static volatile EventBroadcast<GamesUpdateEvent> gamesUpdate;
+    private static volatile GamesUpdateCoalescer gamesUpdateCoalescer;
+    private static long gamesUpdateWindow = GAMES_UPDATE_WINDOW;
+    private static volatile Path journalDirectory;
+    private static volatile List<Path> rejectedJournals = List.of();
+    private static volatile GameInstanceWarmPool warmPool =
+            new GameInstanceWarmPool(Manager::newGameInstance, WARM_POOL_SIZE);
+    private static volatile Matchmaker matchmaker = new Matchmaker(gameName -> instance.createGameInstance(gameName));
 
     //private static volatile Set<UpdateListener<GamesUpdateEvent>> gamesListeners = new HashSet<>();
 
@@ -42,6 +85,13 @@ public class Manager implements Serializable {
      */
     private Manager(){
         gamesUpdate = new EventBroadcast<>();
+        gamesUpdateCoalescer = new GamesUpdateCoalescer(gameInstances, gamesUpdate, gamesUpdateWindow);
+        recycler.setRecycledListener(gameInstance -> {
+            gamesUpdateCoalescer.removed(gameInstance);
+            matchmaker.withdraw(gameInstance);
+            deleteJournal(gameInstance);
+            gameInstance.closeListeners();
+        });
     }
 
     /**
@@ -77,6 +127,11 @@ public class Manager implements Serializable {
 
         // ERA SUPOSTO TER UM gameplayFactory default
        Manager.gameplayFactory = gameplayFactory;
+
+        // instances of the previous gameplays are no longer handed out
+        warmPool.clear();
+        if (gameplayFactory != null)
+            warmPool.warm(gameplayFactory.getAvailableGameplays());
     }
 
     /**
@@ -100,11 +155,20 @@ public class Manager implements Serializable {
         try {
             instance = null;
 
-            // TODO: limpar ficheiro de serialização
+            deleteJournals();
 
             gameplayFactory = null;
-            gameInstancesPool = new ArrayList<>();
+            warmPool.shutdown();
+            warmPool = new GameInstanceWarmPool(Manager::newGameInstance, warmPool.getSize());
+            matchmaker = new Matchmaker(gameName -> instance.createGameInstance(gameName));
+            recycler.shutdown();
+            if (gamesUpdateCoalescer != null)
+                gamesUpdateCoalescer.shutdown();
+
+            gameInstances = new GameInstanceRegistry();
+            recycler = new GameInstanceRecycler(gameInstances, Manager::getKeepAfterEnd).start();
             gamesUpdate = new EventBroadcast<>();
+            gamesUpdateCoalescer = null;
         }
         catch (Exception e){
             throw new ReaException(e.getMessage());
@@ -129,6 +193,37 @@ public class Manager implements Serializable {
         //    this.gamesListeners.add(listener);
     }
 
+    /**
+     * Add a listener to the games update event and send it a snapshot with all the games in the pool.
+     * The listener then receives deltas with the games added, removed and changed,
+     * with versions following that of the snapshot.
+     * @param listener of events
+     */
+    public void subscribeGamesUpdate(UpdateListener<GamesUpdateEvent> listener){
+        gamesUpdateCoalescer.subscribe(listener);
+    }
+
+    /**
+     * Get the window in milliseconds during which changes in the pool are coalesced in a single
+     * {@link GamesUpdateEvent}. By default, it is 0 and each change is broadcast immediately.
+     * @return the coalescing window.
+     */
+    public static long getGamesUpdateWindow(){
+        return gamesUpdateWindow;
+    }
+
+    /**
+     * Set the window in milliseconds during which changes in the pool are coalesced in a single
+     * {@link GamesUpdateEvent}. Use 0 to broadcast each change immediately.
+     * @param gamesUpdateWindow the coalescing window.
+     */
+    public static void setGamesUpdateWindow(long gamesUpdateWindow){
+        Manager.gamesUpdateWindow = gamesUpdateWindow;
+
+        if (gamesUpdateCoalescer != null)
+            gamesUpdateCoalescer.setWindow(gamesUpdateWindow);
+    }
+
     /**
      * Get the names available games.
      * These are the names of the gameplays available in the gameplay factory.
@@ -140,29 +235,166 @@ public class Manager implements Serializable {
 
     /**
      * Create a game instance with the given name and add it to the pool.
-     * The {@link #recycleGameInstances()} method is called to remove old game instances.
+     * A ready-made instance is taken from the {@link GameInstanceWarmPool} if available,
+     * otherwise the instance is built now.
+     * When the game ends, it is registered in the {@link GameInstanceRecycler}
+     * that removes old game instances in the background.
      * Changes in the created game are broadcasted to all {@link GamesUpdateEvent} listeners.
      * @param gameName the name of the game.
      * @return the game instance.
      */
     public GameInstance createGameInstance(String gameName) {
-        Gameplay g = gameplayFactory.getGameplay(gameName);
-        GameInstance newGameInstance = new GameInstance(g);
+        GameInstance newGameInstance = warmPool.take(gameName);
 
-        if (gameInstancesPool == null)
-            gameInstancesPool = new ArrayList<>();
+        if (newGameInstance == null)
+            newGameInstance = newGameInstance(gameName);
 
-        gameInstancesPool.add(newGameInstance);
+        Path directory = journalDirectory;
 
-        // calls recycleGameInstances() to remove old game instances
-        recycleGameInstances();
+        if (directory != null) {
+            try {
+                newGameInstance.setJournal(CommandJournal.create(directory, newGameInstance, JOURNAL_SNAPSHOT_INTERVAL));
+            }
+            catch (IOException e) {
+                throw new RuntimeException("Manager.createGameInstance: cannot create journal: " + e.getMessage());
+            }
+        }
 
-        // Changes in the created game are broadcasted to all listeners
-        broadcastGamesUpdate();
+        register(newGameInstance);
 
         return newGameInstance;
     }
 
+    /**
+     * Add a character to an instance of the given game that can be joined,
+     * creating a new instance if there is none.
+     * Slots are reserved atomically, hence concurrent requests never exceed the maximum number of players.
+     * The player is not yet ready: once it has registered its handlers for game events,
+     * it calls {@link GameInstance#playerReady(Player)}, which starts the game when that number is reached.
+     * Changes in the game are broadcasted to all {@link GamesUpdateEvent} listeners.
+     * @param gameName the name of the game.
+     * @param character to be added.
+     * @return the game instance and the player of the character,
+     * or <code>null</code> if it was already in the game assigned to it.
+     * @see Matchmaker
+     */
+    public Matchmaker.Match quickJoin(String gameName, Character character) {
+        return matchmaker.join(gameName, character);
+    }
+
+    /**
+     * Get the matchmaking queues used by {@link #quickJoin(String, Character)}, with their counts.
+     * @return the matchmaker.
+     */
+    public static Matchmaker getMatchmaker(){
+        return matchmaker;
+    }
+
+    /**
+     * Build a new instance of the game with the given name, not yet in the pool.
+     * @param gameName the name of the game.
+     * @return the new game instance.
+     */
+    private static GameInstance newGameInstance(String gameName) {
+        Gameplay g = gameplayFactory.getGameplay(gameName);
+
+        return new GameInstance(g);
+    }
+
+    /**
+     * Recover the game instances journaled in the journal directory that were not ended,
+     * and add them to the pool. Journals of ended instances are deleted.
+     * A journal that cannot be replayed, for instance with only a torn header, does not prevent
+     * the recovery of the others: it is quarantined, see {@link CommandJournal#quarantine(Path)},
+     * and listed in {@link #getRejectedJournals()}.
+     * @return the recovered game instances.
+     * @throws ReaException if there is no journal directory or it cannot be read.
+     */
+    public List<GameInstance> recoverGameInstances()
+            throws ReaException {
+        Path directory = journalDirectory;
+
+        if (directory == null)
+            throw new ReaException("Manager.recoverGameInstances: no journal directory.");
+
+        List<GameInstance> recovered = new ArrayList<>();
+        List<Path> rejected = new ArrayList<>();
+
+        try {
+            for (Path journalPath : CommandJournal.list(directory)) {
+                GameInstance gameInstance;
+
+                try {
+                    gameInstance = JournalReplay.recover(journalPath, gameplayFactory, JOURNAL_SNAPSHOT_INTERVAL);
+                }
+                catch (ReaException e) {
+                    rejected.add(quarantineJournal(journalPath));
+                    continue;
+                }
+
+                if (gameInstance.isComplete())
+                    deleteJournal(gameInstance);
+                else {
+                    register(gameInstance);
+                    recovered.add(gameInstance);
+                }
+            }
+        }
+        catch (IOException e) {
+            throw new ReaException("Manager.recoverGameInstances: " + e.getMessage());
+        }
+        finally {
+            rejectedJournals = List.copyOf(rejected);
+        }
+
+        return recovered;
+    }
+
+    /**
+     * Quarantine a journal that cannot be replayed.
+     * If it cannot be renamed either, it is left in place and rejected again on the next recovery.
+     * @param journalPath path of the journal
+     * @return path of the journal, quarantined if possible
+     */
+    private static Path quarantineJournal(Path journalPath) {
+        try {
+            return CommandJournal.quarantine(journalPath);
+        }
+        catch (IOException e) {
+            return journalPath;
+        }
+    }
+
+    /**
+     * Get the journals rejected by the last recovery, since they could not be replayed.
+     * @return paths of the rejected journals, quarantined unless they could not be renamed.
+     */
+    public static List<Path> getRejectedJournals() {
+        return rejectedJournals;
+    }
+
+    /**
+     * Add a game instance to the pool, broadcasting its changes and recycling it when ended.
+     * @param newGameInstance the game instance to add.
+     */
+    private void register(GameInstance newGameInstance) {
+        // player listeners are UI callbacks, hence a slow session should not delay the game
+        newGameInstance.setAsynchronousDispatch(LISTENER_QUEUE_CAPACITY);
+
+        gameInstances.add(newGameInstance);
+
+        // ended games are recycled in the background
+        GameInstanceRecycler gameRecycler = recycler;
+        GamesUpdateCoalescer coalescer = gamesUpdateCoalescer;
+        newGameInstance.addGameChangedListener(e -> {
+            gameRecycler.register(e.getGameInstance());
+            coalescer.changed(e.getGameInstance());
+        });
+
+        // Changes in the created game are broadcasted to all listeners
+        coalescer.added(newGameInstance);
+    }
+
     /**
      * Delete a game instance from the pool, if it can be deleted.
      * Changes in the list of games about to start are broadcasted to all {@link GamesUpdateEvent} listeners.
@@ -171,30 +403,66 @@ public class Manager implements Serializable {
      */
     public static void deleteGameInstance(GameInstance gameInstance) {
         if (gameInstance != null) {
-            if (gameInstance.canDelete()){
-                gameInstancesPool.remove(gameInstance);
-            }
-
             // it's supposed to broadcast for the listeners in GamesUpdateEvent
-            Manager.broadcastGamesUpdate();
+            if (gameInstance.canDelete() && gameInstances.remove(gameInstance)){
+                gamesUpdateCoalescer.removed(gameInstance);
+                matchmaker.withdraw(gameInstance);
+                deleteJournal(gameInstance);
+                gameInstance.closeListeners();
+            }
         }
     }
 
     /**
-     * Get all the game instances.
+     * Get all the game instances, ordered by creation.
      * @return the game instances.
      */
     public List<GameInstance> getGameInstances() {
-        return gameInstancesPool;
+        return gameInstances.getAll();
     }
 
     /**
-     * Broadcast an update in the list of games about to start.
+     * Get the game instances in a given stage, ordered by creation.
+     * @param stage of the game instances.
+     * @return the game instances in that stage.
+     */
+    public List<GameInstance> getGameInstances(GameStage stage) {
+        return gameInstances.getByStage(stage);
+    }
+
+    /**
+     * Get the game instances of a given game, ordered by creation.
+     * @param gameName the name of the game.
+     * @return the game instances of that game.
+     */
+    public List<GameInstance> getGameInstances(String gameName) {
+        return gameInstances.getByGameplay(gameName);
+    }
+
+    /**
+     * Get a game instance by its id.
+     * @param id of the game instance.
+     * @return the game instance, or <code>null</code> if it is not in the pool.
+     * @see GameInstance#getId()
+     */
+    public GameInstance getGameInstance(long id) {
+        return gameInstances.get(id);
+    }
+
+    /**
+     * Get the number of game instances in the pool.
+     * @return number of game instances.
+     */
+    public int getGameInstanceCount() {
+        return gameInstances.size();
+    }
+
+    /**
+     * Broadcast an update in the list of games about to start,
+     * with the changes in the pool not yet broadcast, if any.
      */
     public static void broadcastGamesUpdate(){
-        List<GameInstance> gamesAboutToStart = Manager.getGamesInstancesAboutToStart();
-        GamesUpdateEvent g = new GamesUpdateEvent(gamesAboutToStart);
-        Manager.gamesUpdate.broadcast(g);
+        Manager.gamesUpdateCoalescer.flush(true);
     }
 
     /**
@@ -202,12 +470,7 @@ public class Manager implements Serializable {
      * @return the instances of games about to start.
      */
     public static List<GameInstance> getGamesInstancesAboutToStart(){
-        List<GameInstance> gamesAboutToStart = new ArrayList<>();
-        for (GameInstance g : Manager.gameInstancesPool ){
-            if (g.canStart())
-                gamesAboutToStart.add(g);
-        }
-        return gamesAboutToStart;
+        return Manager.gameInstances.getAboutToStart();
     }
 
     /**
@@ -229,47 +492,115 @@ public class Manager implements Serializable {
     }
 
     /**
-     * Remove game instances that have ended more than keepAfterEnd milliseconds ago.
+     * Get the directory where game instances are journaled.
+     * @return the journal directory, or <code>null</code> if game instances are not journaled.
      */
-    public static void recycleGameInstances() {
-        long timeNow = new Date().getTime();
+    public static Path getJournalDirectory(){
+        return journalDirectory;
+    }
+
+    /**
+     * Set the directory where the game instances created afterwards are journaled.
+     * @param journalDirectory the journal directory, or <code>null</code> to stop journaling.
+     */
+    public static void setJournalDirectory(Path journalDirectory){
+        Manager.journalDirectory = journalDirectory;
+    }
 
-        List<GameInstance> gameInstanceList = Manager.gameInstancesPool;
+    /**
+     * Get the pool of ready-made game instances, with its hit and miss counts.
+     * @return the warm pool.
+     */
+    public static GameInstanceWarmPool getWarmPool(){
+        return warmPool;
+    }
 
-        // Fazer teste com a gameInstancesPool sem ser static volatile
-        // para verificar se dá o erro ConcurrentException
+    /**
+     * Set the number of instances of each gameplay kept ready to be handed out.
+     * By default, it is 2.
+     * @param warmPoolSize the number of ready instances of each gameplay, 0 to build instances on demand.
+     */
+    public static void setWarmPoolSize(int warmPoolSize){
+        warmPool.setSize(warmPoolSize);
+    }
 
-        for (Iterator<GameInstance> iterator = gameInstanceList.iterator(); iterator.hasNext();){
-            GameInstance gameInstance = iterator.next();
+    /**
+     * Close and delete the journal of a game instance that is no longer in the pool.
+     * @param gameInstance removed from the pool.
+     */
+    private static void deleteJournal(GameInstance gameInstance) {
+        CommandJournal journal = gameInstance.getJournal();
 
-            if (gameInstance.getCurrentStage().equals(GameStage.ENDED)){
+        if (journal != null) {
+            gameInstance.setJournal(null);
+            journal.delete();
+        }
+    }
 
-                // Get time game has ended
-                Date dateEnded = gameInstance.getPlayingUntil();
+    /**
+     * Delete all the journals and snapshots in the journal directory,
+     * and close the listeners of the game instances in the pool.
+     * @throws IOException if some file cannot be deleted.
+     */
+    private static void deleteJournals()
+            throws IOException {
+        for (GameInstance gameInstance : gameInstances.getAll()) {
+            deleteJournal(gameInstance);
+            gameInstance.closeListeners();
+        }
 
-                if (dateEnded != null){
-                    long timeEnded = dateEnded.getTime();
-                    long keepAfter = Manager.getKeepAfterEnd();
+        Path directory = journalDirectory;
 
-                    if (timeNow >= (timeEnded + keepAfter)){
-                        iterator.remove();
-                    }
-                }
-            }
+        for (Path journalPath : CommandJournal.list(directory)) {
+            Files.deleteIfExists(journalPath);
+            Files.deleteIfExists(CommandJournal.snapshotPath(journalPath));
         }
     }
 
     /**
-     * Updates data from Grid
+     * Remove game instances that have ended more than keepAfterEnd milliseconds ago.
+     * This is done periodically in the background by the {@link GameInstanceRecycler};
+     * calling this method performs a sweep immediately.
      */
-    public void updateGrid(Grid grid) {
-        List<GameInstance> gameInstanceList = instance.getGameInstances();
+    public static void recycleGameInstances() {
+        recycler.sweep();
+    }
 
-        if (gameInstanceList == null)
-            gameInstanceList = new ArrayList<>();
+    /**
+     * Get the recycler of ended game instances, with its sweep metrics.
+     * @return the game instance recycler.
+     */
+    public static GameInstanceRecycler getRecycler() {
+        return recycler;
+    }
 
+    /**
+     * Updates data from Grid
+     */
+    public void updateGrid(Grid grid) {
         grid.setItems(instance.getGameInstances());
 
         //grid.getDataProvider().refreshAll(); //Refreshes data from Grid
     }
+
+    /**
+     * Updates data from Grid with the changes in a games update event.
+     * Snapshots replace all items, deltas only add, remove and refresh the games that changed.
+     * @param grid with game instances
+     * @param event with changes in the pool of games
+     */
+    public void updateGrid(Grid<GameInstance> grid, GamesUpdateEvent event) {
+        if (event.isSnapshot()) {
+            grid.setItems(new ArrayList<>(event.getAdded()));
+            return;
+        }
+
+        GridListDataView<GameInstance> dataView = grid.getListDataView();
+
+        dataView.removeItems(event.getRemoved());
+        dataView.addItems(event.getAdded());
+
+        for (GameInstance gameInstance : event.getChanged())
+            dataView.refreshItem(gameInstance);
+    }
 }
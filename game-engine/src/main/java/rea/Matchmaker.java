@@ -0,0 +1,231 @@
+package rea;
+
+import rea.components.Character;
+import rea.gaming.GameInstance;
+import rea.gaming.Player;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * <p>Matchmaking queues used by {@link Manager} to assign characters to joinable game instances.
+ * Each gameplay has a queue of instances with free slots, in the order they were opened.
+ * A join reserves a slot of the instance at the head of the queue with a compare-and-set,
+ * hence concurrent joins never book the same slot and never scan the instances.
+ * Instances are removed from the queue when their last slot is reserved,
+ * and a new instance is opened when the queue is empty.</p>
+ * <p>A join returns the instance together with the player, which registers its handlers for game events
+ * before calling {@link GameInstance#playerReady(Player)}, so that the game starts
+ * when the maximum number of players is reached and ready.
+ * Instances that stop accepting players otherwise, for instance because they were started with fewer players,
+ * are closed and the join moves on to the next instance.</p>
+ */
+public class Matchmaker {
+
+    /**
+     * A character assigned to a game instance by a join.
+     * @param gameInstance the character was added to
+     * @param player of the character in that instance
+     */
+    public record Match(GameInstance gameInstance, Player player) {
+    }
+
+    /**
+     * An instance with free slots.
+     * Slots are reserved before adding the player, and released if the player is not added.
+     */
+    private static class Opening {
+        private final GameInstance gameInstance;
+        private final AtomicInteger freeSlots;
+
+        private Opening(GameInstance gameInstance) {
+            this.gameInstance = gameInstance;
+            this.freeSlots = new AtomicInteger(gameInstance.gameplay.getMaxPlayers() - gameInstance.getPlayerCount());
+        }
+
+        /**
+         * Reserve a slot in this instance.
+         * @return remaining free slots after the reservation, or -1 if there were none
+         */
+        private int reserve() {
+            int free;
+
+            do {
+                free = freeSlots.get();
+                if (free <= 0)
+                    return -1;
+            } while (!freeSlots.compareAndSet(free, free - 1));
+
+            return free - 1;
+        }
+
+        /**
+         * Release a reserved slot.
+         * @return free slots after the release
+         */
+        private int release() {
+            return freeSlots.incrementAndGet();
+        }
+
+        private void close() {
+            freeSlots.set(0);
+        }
+    }
+
+    private final Function<String, GameInstance> instanceFactory;
+    private final Map<String, Queue<Opening>> openings = new ConcurrentHashMap<>();
+    private final Map<GameInstance, Opening> byInstance = new ConcurrentHashMap<>();
+
+    private final AtomicLong joinCount = new AtomicLong();
+    private final AtomicLong openedCount = new AtomicLong();
+
+    /**
+     * Create matchmaking queues.
+     * @param instanceFactory creating and adding to the pool a new instance of the game with a given name
+     */
+    public Matchmaker(Function<String, GameInstance> instanceFactory) {
+        if (instanceFactory == null)
+            throw new IllegalArgumentException("Matchmaker: instance factory is null.");
+
+        this.instanceFactory = instanceFactory;
+    }
+
+    /**
+     * Add a character to a joinable instance of a game, opening a new instance if there is none.
+     * @param gameName name of the game
+     * @param character to be added
+     * @return the instance and the {@link Player} of the character, not yet ready,
+     * or <code>null</code> if it is already in the instance it was assigned to
+     */
+    public Match join(String gameName, Character character) {
+        if (gameName == null || character == null)
+            throw new IllegalArgumentException("Matchmaker.join: game name or character is null.");
+
+        Queue<Opening> queue = openings.computeIfAbsent(gameName, name -> new ConcurrentLinkedQueue<>());
+
+        while (true) {
+            Opening opening = queue.peek();
+
+            if (opening == null) {
+                open(gameName, queue);
+                continue;
+            }
+
+            int free = opening.reserve();
+
+            // the instance is full, or will be when the reserved players are added
+            if (free <= 0)
+                remove(queue, opening);
+
+            if (free < 0)
+                continue;
+
+            GameInstance gameInstance = opening.gameInstance;
+            Player player = gameInstance.addPlayer(character);
+
+            if (player != null) {
+                joinCount.incrementAndGet();
+                return new Match(gameInstance, player);
+            }
+
+            if (gameInstance.canJoin()) {
+                // the character was already in this instance
+                release(queue, opening);
+                return null;
+            }
+
+            // the instance no longer accepts players
+            opening.close();
+            remove(queue, opening);
+        }
+    }
+
+    /**
+     * Open a new instance of a game, unless another join has just opened one.
+     * Only joins that find the queue empty contend for this lock.
+     * @param gameName name of the game
+     * @param queue of instances with free slots of that game
+     */
+    private void open(String gameName, Queue<Opening> queue) {
+        synchronized (queue) {
+            if (queue.isEmpty()) {
+                Opening opening = new Opening(instanceFactory.apply(gameName));
+
+                byInstance.put(opening.gameInstance, opening);
+                queue.add(opening);
+                openedCount.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Remove an instance from a queue. It is at or near the head, hence the removal is immediate.
+     * @param queue of instances with free slots
+     * @param opening to remove
+     */
+    private void remove(Queue<Opening> queue, Opening opening) {
+        if (queue.remove(opening))
+            byInstance.remove(opening.gameInstance);
+    }
+
+    /**
+     * Release a reserved slot, putting the instance back in the queue if it was removed when full.
+     * @param queue of instances with free slots
+     * @param opening whose slot was not used
+     */
+    private void release(Queue<Opening> queue, Opening opening) {
+        if (opening.release() == 1) {
+            byInstance.put(opening.gameInstance, opening);
+            queue.add(opening);
+        }
+    }
+
+    /**
+     * Stop assigning characters to an instance, typically when it is deleted from the pool.
+     * @param gameInstance to withdraw
+     */
+    public void withdraw(GameInstance gameInstance) {
+        Opening opening = gameInstance == null ? null : byInstance.remove(gameInstance);
+
+        if (opening != null) {
+            opening.close();
+
+            Queue<Opening> queue = openings.get(gameInstance.getName());
+
+            if (queue != null)
+                queue.remove(opening);
+        }
+    }
+
+    /**
+     * Number of instances of a game with free slots.
+     * @param gameName name of the game
+     * @return number of instances in the queue of that game
+     */
+    public int getOpenCount(String gameName) {
+        Queue<Opening> queue = gameName == null ? null : openings.get(gameName);
+
+        return queue == null ? 0 : queue.size();
+    }
+
+    /**
+     * Number of characters added to instances by matchmaking.
+     * @return number of joins
+     */
+    public long getJoinCount() {
+        return joinCount.get();
+    }
+
+    /**
+     * Number of instances opened by matchmaking.
+     * @return number of opened instances
+     */
+    public long getOpenedCount() {
+        return openedCount.get();
+    }
+}
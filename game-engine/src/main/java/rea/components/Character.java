@@ -13,6 +13,8 @@ public class Character
         extends Positionable
         implements Element {
 
+    private static final long serialVersionUID = 1L;
+
     /**
      * The name of the character
      */
@@ -21,7 +23,7 @@ public class Character
     /**
      * The inventory of items
      */
-    List<Item> inventoryItems;
+    ArrayList<Item> inventoryItems;
 
     /**
      * The item being held
@@ -34,6 +36,11 @@ public class Character
      */
     Stack<Place> visitedPlaces;
 
+    /**
+     * Radius of the area of interest, or 0 if interested in the whole place
+     */
+    int interestRadius;
+
     /**
      * Create a character.
      * @param name the name of the character
@@ -82,9 +89,6 @@ public class Character
 
         this.visitedPlaces.push(place);
 
-        //this.moveTo(place.getEntrance());
-        this.moveTo(this.getPlace().getEntrance());
-
         if (place.placePositionables.contains(this))
             throw new RuntimeException("Character.move: character is already a positionable game component in place.");
 
@@ -166,6 +170,32 @@ public class Character
         return this.holdingItem;
     }
 
+    /**
+     * Additional method.
+     * Get the radius of the area of interest of the character, i.e. how far beyond its visual
+     * it is notified of changes and messages when the game delivers them by area of interest.
+     * @return the radius, or 0 if the character is interested in the whole place.
+     */
+    public int getInterestRadius() {
+        return this.interestRadius;
+    }
+
+    /**
+     * Additional method.
+     * Set the radius of the area of interest of the character.
+     * The place where it is updates its index of areas of interest.
+     * @param radius of the area of interest, or 0 to be interested in the whole place
+     */
+    public void setInterestRadius(int radius) {
+        if (radius < 0)
+            throw new IllegalArgumentException("Character.setInterestRadius: radius is negative.");
+
+        this.interestRadius = radius;
+
+        if (this.container != null)
+            this.container.positionableMoved(this);
+    }
+
     /**
      * Accept a visitor.
      * @param visitor the visitor to accept
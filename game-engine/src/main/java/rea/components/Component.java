@@ -1,12 +1,19 @@
 package rea.components;
 
+import java.io.Serializable;
+
 /**
  * Abstract class common to all classes implementing the game map structure.
  * Defines methods required by those classes and provides general methods.
+ * Components are serializable, so that the state of a game can be saved in snapshots.
+ * Each component gets a compact numeric id from the {@link GameMap} it enters, kept while it is in that map,
+ * and components are equal only to themselves, hence their hash codes never change.
  * implNote Corresponds to the <b>Component</b> in the <b>Composite</b> design pattern.
  */
 public abstract class Component
-        implements Element {
+        implements Element, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     /**
      * The visual representation of the component.
@@ -18,6 +25,16 @@ public abstract class Component
      */
     String componentDescription;
 
+    /**
+     * Id of the component in its game map, or {@link #NO_ID} if it was not yet in a map.
+     */
+    int componentId = NO_ID;
+
+    /**
+     * Id of components that were not yet in a game map.
+     */
+    public static final int NO_ID = -1;
+
     /**
      * Create a component.
      * @param image visual representation of the component
@@ -45,6 +62,34 @@ public abstract class Component
         return this.componentDescription;
     }
 
+    /**
+     * Get the id of the component in its game map, from 0 to the number of components in the map minus 1.
+     * @return id of the component, or {@link #NO_ID} if it was not yet in a map
+     * @see GameMap#getComponent(int)
+     */
+    public int getId() {
+        return this.componentId;
+    }
+
+    /**
+     * Components are equal only to themselves, regardless of their state.
+     * @param o object to compare
+     * @return <code>true</code> if it is this component
+     */
+    @Override
+    public final boolean equals(Object o) {
+        return this == o;
+    }
+
+    /**
+     * Hash code of the identity of the component, that does not change as it moves or changes state.
+     * @return hash code of the component
+     */
+    @Override
+    public final int hashCode() {
+        return System.identityHashCode(this);
+    }
+
     /**
      * Show component as a string using its description.
      *
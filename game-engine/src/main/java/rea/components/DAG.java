@@ -1,18 +1,40 @@
 package rea.components;
 
+import java.io.Serializable;
 import java.util.*;
 
 /**
  * Directed acyclic graph (DAG) where the nodes are places and arcs are passages.
  * Used in {@link GameMap}
+ * A topological order of the places is kept incrementally, so that checking whether a passage
+ * adds a cycle, or whether a place is reachable from another, only searches the places ordered between them.
  * @author Carla Henriques <code>carlahnr0@gmail.com</code>
  */
-public class DAG {
+public class DAG
+        implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     /**
      * DAG main structure
      */
-    protected Map<Place, List<Passage>> dag = new HashMap<>();
+    protected HashMap<Place, List<Passage>> dag = new HashMap<>();
+
+    /**
+     * Places from where passages lead to each place, the reverse of the arcs in dag
+     */
+    private final HashMap<Place, List<Place>> predecessors = new HashMap<>();
+
+    /**
+     * Topological order of the places: each passage leads to a place with a higher order
+     */
+    private final HashMap<Place, Integer> order = new HashMap<>();
+    private int nextOrder;
+
+    /**
+     * Incremented each time a place or passage is added
+     */
+    private long version;
 
     /**
      * Constructor
@@ -28,6 +50,9 @@ public class DAG {
     public void addPlace(Place place) {
         if (!dag.containsKey(place)) {
             dag.put(place, new ArrayList<>());
+            predecessors.put(place, new ArrayList<>());
+            order.put(place, nextOrder++);
+            version++;
         }
     }
 
@@ -48,55 +73,174 @@ public class DAG {
             throw new IllegalArgumentException("DAG.addPassage: Place of destiny not found in the game map.");
         }
 
-        // Check if adding this passage would create a cycle
-        if (isCyclic(fromPlace, toPassage.getPlace())) {
+        // Check if adding this passage would create a cycle, keeping the topological order otherwise
+        if (!reorder(fromPlace, toPassage.getPlace())) {
             throw new IllegalArgumentException("DAG.addPassage: Adding this passage would create a cycle.");
         }
 
         // Adds Passage to list of passages, with the Place as a key.
         dag.get(fromPlace).add(toPassage);
+        predecessors.get(toPassage.getPlace()).add(fromPlace);
+        version++;
     }
 
     /**
      * Additional method. Auxiliary to addPassage.
-     * Checks if there is a cycle from a Place to another Place, after adding a Passage between them.
+     * Keeps the topological order when a passage is added between two places,
+     * following the Pearce–Kelly algorithm. If the order of the origin is already lower
+     * than that of the destiny nothing changes. Otherwise, only the places ordered between them are searched:
+     * those reachable from the destiny and those reaching the origin, that swap their order values.
      * @param from {@link Place} (vertex) of origin
      * @param to {@link Place} (vertex) of destiny
-     * @return <code>true</code> if adds cycle, <code>false</code> if it doesn't
+     * @return <code>true</code> if the order was kept, <code>false</code> if the passage adds a cycle
      */
-    private boolean isCyclic(Place from, Place to) {
-        // Perform a depth-first search (DFS) from 'to' to see if it reaches 'from'
+    private boolean reorder(Place from, Place to) {
+        if (from == to)
+            return false;
+
+        int lowerBound = order.get(to);
+        int upperBound = order.get(from);
+
+        if (upperBound < lowerBound)
+            return true;
+
+        // places reachable from 'to' ordered before 'from', including 'to'
+        List<Place> forward = new ArrayList<>();
         Set<Place> visited = new HashSet<>();
+        Deque<Place> stack = new ArrayDeque<>();
+
         visited.add(to);
-        return isCyclicDFS(from, to, visited);
+        forward.add(to);
+        stack.push(to);
+        while (!stack.isEmpty()) {
+            for (Passage passage : dag.get(stack.pop())) {
+                Place next = passage.getPlace();
+
+                if (next == from)
+                    return false; // Cycle detected
+
+                if (order.get(next) < upperBound && visited.add(next)) {
+                    forward.add(next);
+                    stack.push(next);
+                }
+            }
+        }
+
+        // places reaching 'from' ordered after 'to', including 'from'
+        List<Place> backward = new ArrayList<>();
+
+        visited.add(from);
+        backward.add(from);
+        stack.push(from);
+        while (!stack.isEmpty()) {
+            for (Place previous : predecessors.get(stack.pop())) {
+                if (order.get(previous) > lowerBound && visited.add(previous)) {
+                    backward.add(previous);
+                    stack.push(previous);
+                }
+            }
+        }
+
+        // places reaching 'from' take the lowest order values, keeping their relative order
+        Comparator<Place> byOrder = Comparator.comparingInt(order::get);
+        List<Integer> values = new ArrayList<>(forward.size() + backward.size());
+
+        backward.sort(byOrder);
+        forward.sort(byOrder);
+        for (Place place : backward)
+            values.add(order.get(place));
+        for (Place place : forward)
+            values.add(order.get(place));
+        Collections.sort(values);
+
+        int index = 0;
+        for (Place place : backward)
+            order.put(place, values.get(index++));
+        for (Place place : forward)
+            order.put(place, values.get(index++));
+
+        return true;
     }
 
     /**
-     * Additional method. Auxiliary to isCyclic.
-     * Depth-first search (DFS) from current Place to target Place
-     * @param target target node
-     * @param current current node
-     * @param visited visited node
-     * @return <code>true</code> if it detects a cycle, <code>false</code> if it doesn't
+     * Additional method.
+     * Checks if a {@link Place} can be reached from another, following passages.
+     * Only places ordered between them are searched.
+     * @param from {@link Place} (vertex) of origin
+     * @param to {@link Place} (vertex) of destiny
+     * @return <code>true</code> if there is a path from origin to destiny, or they are the same place,
+     * <code>false</code> otherwise or if any of them is not in the dag
      */
-    private boolean isCyclicDFS(Place target, Place current, Set<Place> visited) {
-        if (current == target) {
-            return true; // Cycle detected
-        }
+    public boolean isReachable(Place from, Place to) {
+        if (!dag.containsKey(from) || !dag.containsKey(to))
+            return false;
+
+        if (from == to)
+            return true;
+
+        int upperBound = order.get(to);
+
+        if (order.get(from) > upperBound)
+            return false;
+
+        Set<Place> visited = new HashSet<>();
+        Deque<Place> stack = new ArrayDeque<>();
+
+        visited.add(from);
+        stack.push(from);
+        while (!stack.isEmpty()) {
+            for (Passage passage : dag.get(stack.pop())) {
+                Place next = passage.getPlace();
 
-        for (Passage passage : dag.getOrDefault(current, Collections.emptyList())) {
-            if (!visited.contains(passage.getPlace())) {
-                visited.add(passage.getPlace());
-                if (isCyclicDFS(target, passage.getPlace(), visited)) {
+                if (next == to)
                     return true;
-                }
-                visited.remove(passage.getPlace()); // Backtrack
+
+                if (order.get(next) < upperBound && visited.add(next))
+                    stack.push(next);
             }
         }
 
         return false;
     }
 
+    /**
+     * Additional method.
+     * Places reached from a {@link Place} by one of its passages, in the order of the passages.
+     * @param place {@link Place} (vertex) of origin
+     * @return list of distinct places, empty if the place is not in the dag
+     */
+    public List<Place> successors(Place place) {
+        List<Passage> passages = dag.get(place);
+
+        if (passages == null)
+            return Collections.emptyList();
+
+        Set<Place> successors = new LinkedHashSet<>();
+        for (Passage passage : passages)
+            successors.add(passage.getPlace());
+
+        return new ArrayList<>(successors);
+    }
+
+    /**
+     * Additional method.
+     * Version of the graph, incremented each time a place or passage is added,
+     * so that results computed over the graph can be checked for staleness.
+     * @return current version of the graph
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Position of a {@link Place} in the topological order kept by this dag.
+     * @param place {@link Place} (vertex) in the dag
+     * @return order value, lower than that of the places its passages lead to
+     */
+    int getOrder(Place place) {
+        return order.get(place);
+    }
+
     /**
      * Additional function.
      * @return all Places in a DAG.
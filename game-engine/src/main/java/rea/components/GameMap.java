@@ -1,6 +1,11 @@
 package rea.components;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -15,11 +20,25 @@ import java.util.Set;
  * use the key to open the door, and then become an open door (a passage).
  * The DAG representing the game map may change as a result of these actions.</p>
  * <p>The game map can be transversed using a visitor.</p>
+ * <p>Each component entering this map, as a place, a positionable in a place or a part of a change,
+ * gets a compact numeric id, the next free one, kept while it is in this map.
+ * Components and the places of positionables are kept in tables indexed by id,
+ * updated as positionables are added to or removed from places,
+ * hence {@link #getComponent(int)} and {@link #locate(Positionable)} take constant time without hashing.
+ * Places reached by passages in the places of this map are also added to it.
+ * Listeners registered with {@link #addChangeListener(MapChangeListener)} are notified
+ * when positionables enter or leave the map.</p>
+ * <p>Reachability, shortest paths and the topological order of places are available from
+ * {@link #getPlaceGraphQueries()}, cached until a passage is added to this map.</p>
+ * <p>A map can be copied with {@link #copy()}, so that a gameplay builds its map once as a template
+ * and each game instance plays on a copy.</p>
  * @see Visitor
  */
 public class GameMap
         extends DAG {
 
+    private static final long serialVersionUID = 1L;
+
     /**
      * The start place of the game map.
      */
@@ -28,7 +47,31 @@ public class GameMap
     /**
      * Changes that may be performed on positionable objects in the game.
      */
-    Map<Positionable, Map<Item,Positionable>> changes = new HashMap<>();
+    HashMap<Positionable, Map<Item,Positionable>> changes = new HashMap<>();
+
+    /**
+     * The components of this map, indexed by id.
+     */
+    private final ArrayList<Component> components = new ArrayList<>();
+
+    /**
+     * The place of each positionable in the places of this map, indexed by id,
+     * <code>null</code> for components not in a place of this map.
+     */
+    private final ArrayList<Place> locations = new ArrayList<>();
+
+    /**
+     * Listeners of positionables entering or leaving this map.
+     * Not serialized, since they belong to the game instance using the map, which registers them again.
+     */
+    private transient List<MapChangeListener> changeListeners = new ArrayList<>();
+
+    /**
+     * Cached queries over the places and passages of this map.
+     * Created on first use, so that this map is not handed out while being constructed.
+     * Not serialized, since it only holds results that can be computed again.
+     */
+    private transient PlaceGraphQueries placeGraphQueries;
 
     /**
      * Create a game map with a start place.
@@ -69,6 +112,165 @@ public class GameMap
         }
     }
 
+    /**
+     * Add a place to this map, and index the positionables already in it.
+     * @param place a new {@link Place} (vertex) to this {@link GameMap} (dag).
+     */
+    @Override
+    public void addPlace(Place place) {
+        super.addPlace(place);
+
+        if (place != null)
+            this.register(place);
+
+        if (place != null && place.gameMap != this) {
+            place.gameMap = this;
+
+            for (Positionable positionable : place.getPositionables())
+                placed(positionable, place);
+        }
+    }
+
+    /**
+     * Restore a serialized map, without change listeners nor cached queries.
+     * @param in stream to read from
+     * @throws IOException if the map cannot be read
+     * @throws ClassNotFoundException if the class of a component is not found
+     */
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        this.changeListeners = new ArrayList<>();
+    }
+
+    /**
+     * Get the queries over the places and passages of this map, such as reachability and shortest paths.
+     * @return cached queries of this map
+     */
+    public PlaceGraphQueries getPlaceGraphQueries() {
+        if (this.placeGraphQueries == null)
+            this.placeGraphQueries = new PlaceGraphQueries(this);
+
+        return this.placeGraphQueries;
+    }
+
+    /**
+     * Add a listener of positionables entering or leaving this map.
+     * The listener is first notified of the positionables already in the map, as if added.
+     * @param listener of changes in this map
+     */
+    public void addChangeListener(MapChangeListener listener) {
+        if (listener == null)
+            throw new IllegalArgumentException("GameMap.addChangeListener: listener is null.");
+
+        changeListeners.add(listener);
+
+        for (int id = 0; id < components.size(); id++)
+            if (locations.get(id) != null)
+                listener.positionableAdded((Positionable) components.get(id));
+    }
+
+    /**
+     * Remove a listener of positionables entering or leaving this map.
+     * @param listener of changes in this map
+     */
+    public void removeChangeListener(MapChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+
+    /**
+     * Get the place of this map where a positionable is.
+     * @param positionable to locate
+     * @return place where the positionable is, or <code>null</code> if it is not in a place of this map.
+     */
+    public Place locate(Positionable positionable) {
+        int id = this.idOf(positionable);
+
+        return id < 0 ? null : locations.get(id);
+    }
+
+    /**
+     * Get the component of this map with an id.
+     * @param id of the component
+     * @return component with that id, or <code>null</code> if there is none in this map
+     * @see Component#getId()
+     */
+    public Component getComponent(int id) {
+        return id < 0 || id >= components.size() ? null : components.get(id);
+    }
+
+    /**
+     * Number of ids given to components of this map, i.e. the id the next component will get.
+     * @return number of components that entered this map
+     */
+    public int getComponentCount() {
+        return components.size();
+    }
+
+    /**
+     * Get the id of a component in this map.
+     * @param component to look up
+     * @return id of the component, or {@link Component#NO_ID} if it has no id in this map
+     */
+    private int idOf(Component component) {
+        if (component == null)
+            return Component.NO_ID;
+
+        int id = component.componentId;
+
+        return id >= 0 && id < components.size() && components.get(id) == component ? id : Component.NO_ID;
+    }
+
+    /**
+     * Give an id to a component entering this map, unless it already has one.
+     * A component coming from another map gets a new id.
+     * @param component entering this map
+     * @return id of the component in this map
+     */
+    private int register(Component component) {
+        int id = this.idOf(component);
+
+        if (id < 0) {
+            id = components.size();
+            components.add(component);
+            locations.add(null);
+            component.componentId = id;
+        }
+
+        return id;
+    }
+
+    /**
+     * Index a positionable added to a place of this map.
+     * @param positionable added
+     * @param place where it was added
+     */
+    void placed(Positionable positionable, Place place) {
+        if (locations.set(this.register(positionable), place) == null)
+            for (MapChangeListener listener : changeListeners)
+                listener.positionableAdded(positionable);
+
+        if (positionable instanceof Passage passage && passage.getPlace() != null)
+            this.addPlace(passage.getPlace());
+    }
+
+    /**
+     * Update the index for a positionable removed from a place of this map.
+     * The index is kept if the positionable was meanwhile added to another place,
+     * as when a character moves to another place before leaving the previous one.
+     * @param positionable removed
+     * @param place from where it was removed
+     */
+    void displaced(Positionable positionable, Place place) {
+        int id = this.idOf(positionable);
+
+        if (id >= 0 && locations.get(id) == place) {
+            locations.set(id, null);
+            for (MapChangeListener listener : changeListeners)
+                listener.positionableRemoved(positionable);
+        }
+    }
+
     /**
      * Define a change that may be performed on a positionable object in the game.
      * @param modifiable the positionable object that may be modified
@@ -82,6 +284,10 @@ public class GameMap
         //if (modified == null)
         //    throw new NoSuchElementException("defineChange: Positionable modified does not exist");
 
+        for (Component component : new Component[] { modifiable, tool, modified })
+            if (component != null)
+                this.register(component);
+
         // modifiable exists in changes Map
         if (this.changes.containsKey(modifiable)){
             this.changes.get(modifiable).put(tool, modified);
@@ -135,30 +341,120 @@ public class GameMap
 
         if (newPositionable != null) {
 
+            Place place = this.locate(modifiable);
+
             if (newPositionable instanceof Passage newPassage) {
                 this.addPlace(newPassage.getPlace());
 
-                for (Place place : this.getPlaces()) {
-                    if (place.getPositionables().contains(modifiable)) {
-
-                        place.addGameComponent(newPassage, modifiable.getPosition());
+                if (place != null) {
+                    place.addGameComponent(newPassage, modifiable.getPosition());
 
-                        this.addPassage(place, newPassage);
-                        place.removeGameComponent(modifiable);
-                    }
-                }
-            } else {
-                for (Place place : this.getPlaces()) {
-                    if (place.getPositionables().contains(modifiable)) {
-                        place.addGameComponent(newPositionable, modifiable.getPosition());
-                        place.removeGameComponent(modifiable);
-                    }
+                    this.addPassage(place, newPassage);
+                    place.removeGameComponent(modifiable);
                 }
+            } else if (place != null) {
+                place.addGameComponent(newPositionable, modifiable.getPosition());
+                place.removeGameComponent(modifiable);
             }
         }
         return newPositionable;
     }
 
+    /**
+     * Create a copy of this map, typically of a template map built once by a gameplay.
+     * Places and positionables are copied, since they change during a game,
+     * while visuals, descriptions and positions, that never change, are shared with this map.
+     * The copy has the same places, with positionables in the same order, the same passages
+     * and the same changes defined, but no change listeners.
+     * Maps with characters cannot be copied, since characters belong to players.
+     * implNote - {@link IllegalStateException} raised if the map has characters.
+     * @return copy of this map
+     */
+    public GameMap copy() {
+        Copier copier = new Copier();
+        GameMap copy = new GameMap(copier.place(this.startPlace));
+
+        for (Place place : this.dag.keySet())
+            copy.addPlace(copier.place(place));
+
+        for (Map.Entry<Place, List<Passage>> arcs : this.dag.entrySet()) {
+            Place place = copier.place(arcs.getKey());
+
+            for (Passage passage : arcs.getValue())
+                copy.addPassage(place, (Passage) copier.positionable(passage));
+        }
+
+        for (Map.Entry<Positionable, Map<Item, Positionable>> change : this.changes.entrySet())
+            for (Map.Entry<Item, Positionable> tool : change.getValue().entrySet())
+                copy.defineChange(copier.positionable(change.getKey()),
+                        (Item) copier.positionable(tool.getKey()),
+                        copier.positionable(tool.getValue()));
+
+        return copy;
+    }
+
+    /**
+     * Copier of the components of a map, that copies each component once,
+     * so that components referred to from several places of the map are shared in the copy as well.
+     */
+    private static final class Copier {
+
+        private final Map<Object, Object> copies = new IdentityHashMap<>();
+
+        /**
+         * Copy a place with its positionables.
+         * @param place to copy
+         * @return copy of the place
+         */
+        Place place(Place place) {
+            if (place == null)
+                return null;
+
+            Place copy = (Place) copies.get(place);
+
+            if (copy == null) {
+                copy = new Place(place.getVisual(), place.getDescription(), place.getEntrance());
+                copies.put(place, copy);
+
+                for (Positionable positionable : place.getPositionables())
+                    copy.addGameComponent(positionable(positionable), positionable.getPosition());
+            }
+
+            return copy;
+        }
+
+        /**
+         * Copy a positionable, without adding it to a place.
+         * @param positionable to copy
+         * @return copy of the positionable
+         */
+        Positionable positionable(Positionable positionable) {
+            if (positionable == null)
+                return null;
+
+            Positionable copy = (Positionable) copies.get(positionable);
+
+            if (copy == null) {
+                copy = switch (positionable) {
+                    case Item item -> {
+                        Item itemCopy = new Item(item.getVisual(), item.getDescription());
+
+                        itemCopy.setPickable(item.isPickable());
+                        itemCopy.setReusable(item.isReusable());
+                        yield itemCopy;
+                    }
+                    case Passage passage -> new Passage(passage.getVisual(), passage.getDescription(), place(passage.getPlace()));
+                    default -> throw new IllegalStateException("GameMap.copy: cannot copy " + positionable.getDescription() + ".");
+                };
+                if (positionable.hasPosition())
+                    copy.moveTo(positionable.getPackedPosition());
+                copies.put(positionable, copy);
+            }
+
+            return copy;
+        }
+    }
+
     /**
      * Visit the map from the start place.
      * @param visitor the visitor to accept
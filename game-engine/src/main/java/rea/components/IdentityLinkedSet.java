@@ -0,0 +1,287 @@
+package rea.components;
+
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * <p>A set that compares elements by identity and iterates them in insertion order,
+ * used by {@link Place} to store its positionables.
+ * Adding, removing and checking membership take constant time,
+ * regardless of how components redefine equality.</p>
+ * <p>Read-only views of the set, as a {@link Set} or as a {@link List},
+ * are created once and reflect later changes.</p>
+ * <p>The set is serialized as the array of its elements, in order.</p>
+ * implNote - an {@link IdentityHashMap} from elements to the nodes of a doubly linked list,
+ * serialized with a <b>Serialization proxy</b>.
+ * @param <E> type of elements
+ */
+class IdentityLinkedSet<E>
+        extends AbstractSet<E>
+        implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * A node of the linked list of elements.
+     * @param <E> type of element
+     */
+    private static final class Node<E> {
+        final E element;
+        Node<E> previous;
+        Node<E> next;
+
+        Node(E element) {
+            this.element = element;
+        }
+    }
+
+    // transient since sets are serialized by their proxy
+    private final transient IdentityHashMap<E, Node<E>> nodes = new IdentityHashMap<>();
+    private transient Node<E> first;
+    private transient Node<E> last;
+    private transient int modifications;
+
+    private final transient Set<E> readOnlySet = Collections.unmodifiableSet(this);
+    private final transient List<E> readOnlyList = new ListView();
+
+    /**
+     * Create an empty set.
+     */
+    IdentityLinkedSet() {
+    }
+
+    /**
+     * Add an element at the end, unless the same instance is already in this set.
+     * @param element to add, not <code>null</code>
+     * @return <code>true</code> if added, <code>false</code> if already in this set
+     */
+    @Override
+    public boolean add(E element) {
+        if (element == null)
+            throw new IllegalArgumentException("IdentityLinkedSet.add: element is null.");
+
+        if (nodes.containsKey(element))
+            return false;
+
+        Node<E> node = new Node<>(element);
+
+        node.previous = last;
+        if (last == null)
+            first = node;
+        else
+            last.next = node;
+        last = node;
+
+        nodes.put(element, node);
+        modifications++;
+
+        return true;
+    }
+
+    /**
+     * Remove the same instance of an element.
+     * @param element to remove
+     * @return <code>true</code> if removed, <code>false</code> if not in this set
+     */
+    @Override
+    public boolean remove(Object element) {
+        Node<E> node = nodes.remove(element);
+
+        if (node == null)
+            return false;
+
+        unlink(node);
+
+        return true;
+    }
+
+    /**
+     * Unlink a node from the list of elements.
+     * @param node to unlink
+     */
+    private void unlink(Node<E> node) {
+        if (node.previous == null)
+            first = node.next;
+        else
+            node.previous.next = node.next;
+
+        if (node.next == null)
+            last = node.previous;
+        else
+            node.next.previous = node.previous;
+
+        modifications++;
+    }
+
+    @Override
+    public boolean contains(Object element) {
+        return nodes.containsKey(element);
+    }
+
+    @Override
+    public int size() {
+        return nodes.size();
+    }
+
+    @Override
+    public void clear() {
+        nodes.clear();
+        first = null;
+        last = null;
+        modifications++;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new NodeIterator(true);
+    }
+
+    /**
+     * A read-only view of this set, allocated once.
+     * @return unmodifiable set view
+     */
+    Set<E> readOnlySet() {
+        return readOnlySet;
+    }
+
+    /**
+     * A read-only view of this set as a list, allocated once.
+     * Access by index walks the list, hence iteration should be preferred.
+     * @return unmodifiable list view
+     */
+    List<E> readOnlyList() {
+        return readOnlyList;
+    }
+
+    /**
+     * Replace this set by its elements when serialized.
+     * @return serialization proxy
+     */
+    private Object writeReplace() {
+        return new SerializedForm(toArray());
+    }
+
+    /**
+     * Sets are only deserialized from their proxy.
+     * @param in stream to read from
+     * @throws InvalidObjectException always
+     */
+    private void readObject(ObjectInputStream in)
+            throws InvalidObjectException {
+        throw new InvalidObjectException("IdentityLinkedSet: serialization proxy required.");
+    }
+
+    /**
+     * Serialized form of a set: its elements, in order.
+     * @param elements of the set
+     */
+    private record SerializedForm(Object[] elements)
+            implements Serializable {
+
+        /**
+         * Rebuild the set from its elements.
+         * @return set with the same elements in the same order
+         */
+        private Object readResolve() {
+            IdentityLinkedSet<Object> set = new IdentityLinkedSet<>();
+
+            for (Object element : elements)
+                set.add(element);
+
+            return set;
+        }
+    }
+
+    /**
+     * Iterator over the linked list of elements.
+     */
+    private class NodeIterator implements Iterator<E> {
+        private final boolean removable;
+        private Node<E> next = first;
+        private Node<E> current;
+        private int expectedModifications = modifications;
+
+        NodeIterator(boolean removable) {
+            this.removable = removable;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public E next() {
+            if (modifications != expectedModifications)
+                throw new ConcurrentModificationException();
+
+            if (next == null)
+                throw new NoSuchElementException();
+
+            current = next;
+            next = next.next;
+
+            return current.element;
+        }
+
+        @Override
+        public void remove() {
+            if (!removable)
+                throw new UnsupportedOperationException("IdentityLinkedSet: read-only view.");
+
+            if (current == null)
+                throw new IllegalStateException("IdentityLinkedSet.remove: no current element.");
+
+            if (modifications != expectedModifications)
+                throw new ConcurrentModificationException();
+
+            nodes.remove(current.element);
+            unlink(current);
+            current = null;
+            expectedModifications = modifications;
+        }
+    }
+
+    /**
+     * Read-only list view of this set.
+     */
+    private class ListView extends AbstractList<E> {
+
+        @Override
+        public E get(int index) {
+            if (index < 0 || index >= nodes.size())
+                throw new IndexOutOfBoundsException("IdentityLinkedSet.get: index " + index);
+
+            Node<E> node = first;
+            for (int i = 0; i < index; i++)
+                node = node.next;
+
+            return node.element;
+        }
+
+        @Override
+        public int size() {
+            return nodes.size();
+        }
+
+        @Override
+        public boolean contains(Object element) {
+            return nodes.containsKey(element);
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return new NodeIterator(false);
+        }
+    }
+}
@@ -1,7 +1,5 @@
 package rea.components;
 
-import java.util.Objects;
-
 /**
  * <p>An item in the game, such as a key, a sword, a potion, etc.
  * Some items can be picked up and used, to open a door, cast a spell, etc.
@@ -14,6 +12,8 @@ public class Item
         extends Positionable
         implements Element {
 
+    private static final long serialVersionUID = 1L;
+
     private boolean isPickable;
     private boolean isReusable;
 
@@ -64,29 +64,6 @@ public class Item
         this.isReusable = reusable;
     }
 
-    @Override
-    public boolean equals(Object o){
-        if (this == o)
-            return true;
-
-        if (o instanceof Item item){
-            return Objects.equals(this.getPosition(), item.getPosition())
-                    && Objects.equals(this.getDescription(), item.getDescription())
-                    && Objects.equals(this.getVisual(), item.getVisual())
-                    && Objects.equals(this.isPickable(), item.isPickable())
-                    && Objects.equals(this.isReusable(), item.isReusable());
-        }
-        else
-            return false;
-    }
-
-    @Override
-    public int hashCode() {
-        // Objects.hashCode(this);
-        return Objects.hash(this.isPickable, this.isReusable,
-                this.getPosition(), this.getDescription(), this.getVisual());
-    }
-
     /**
      * Accept a visitor.
      * @param visitor the visitor to accept
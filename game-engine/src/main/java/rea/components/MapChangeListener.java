@@ -0,0 +1,22 @@
+package rea.components;
+
+/**
+ * <p>Listener of positionables entering or leaving the places of a {@link GameMap}.
+ * A positionable moving between places of the map neither enters nor leaves it.
+ * Used to maintain incrementally values that depend on the whole map, such as end conditions.</p>
+ * @see GameMap#addChangeListener(MapChangeListener)
+ */
+public interface MapChangeListener {
+
+    /**
+     * A positionable entered a place of the map, and it was in none before.
+     * @param positionable added to the map
+     */
+    void positionableAdded(Positionable positionable);
+
+    /**
+     * A positionable left a place of the map, and it is in none now.
+     * @param positionable removed from the map
+     */
+    void positionableRemoved(Positionable positionable);
+}
@@ -8,6 +8,8 @@ public class Passage
         extends Positionable
         implements Element {
 
+    private static final long serialVersionUID = 1L;
+
     Place passagePlace;
 
     /**
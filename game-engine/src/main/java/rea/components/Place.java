@@ -1,19 +1,37 @@
 package rea.components;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
  * <p>A place in the game. A place can contain connections to other places and
  *  game components such as characters, items, etc.</p>
+ * <p>A place records the positionables added, removed or moved since the changes were last drained,
+ * and numbers each drained set of changes with a sequence, to send scene deltas to the players.</p>
+ * <p>Positionables are stored by identity in insertion order, with sub-indexes of characters, items and passages
+ * maintained on every change. Their getters return read-only views that reflect later changes,
+ * hence callers that change this place while iterating should copy them first.</p>
+ * <p>Positionables with a position are kept in a {@link SpatialIndex}, by their position and the size of their visual,
+ * updated as they are added, removed or moved, for hit-tests and proximity queries.
+ * Crowded places can also keep their positionables in columnar storage, see {@link #setColumnarStorage(boolean)},
+ * so that scene snapshots are array copies.</p>
+ * <p>Characters with an interest radius, see {@link Character#setInterestRadius(int)}, have an area of interest
+ * around their visual, kept in another spatial index updated as they move, so that the characters interested
+ * in a change are found among those nearby, see {@link #getInterestedInChange(Positionable)}.</p>
  * implNote - Corresponds to a <b>Container</b> in the <b>Composite</b> design pattern.
  */
 public class Place
         extends Component
         implements Element {
 
+    private static final long serialVersionUID = 1L;
+
     /**
      * Position where the character enters this place.
      */
@@ -22,7 +40,74 @@ public class Place
     /**
      * The positionable components in this place.
      */
-    List<Positionable> placePositionables;
+    final IdentityLinkedSet<Positionable> placePositionables = new IdentityLinkedSet<>();
+
+    /**
+     * Sub-indexes of the positionable components in this place, by type.
+     */
+    private final IdentityLinkedSet<Character> placeCharacters = new IdentityLinkedSet<>();
+    private final IdentityLinkedSet<Item> placeItems = new IdentityLinkedSet<>();
+    private final IdentityLinkedSet<Passage> placePassages = new IdentityLinkedSet<>();
+
+    /**
+     * Columnar storage of the positionables, or <code>null</code> if not enabled.
+     */
+    private PositionableColumns columns;
+
+    /**
+     * Spatial index of the positionables with a position, by position and size of their visual.
+     */
+    private final SpatialIndex<Positionable> spatialIndex = new SpatialIndex<>();
+
+    /**
+     * Spatial index of the areas of interest of the characters with an interest radius and a position.
+     */
+    private final SpatialIndex<Character> interestAreas = new SpatialIndex<>();
+
+    /**
+     * Characters interested in the whole place, having no interest radius or no position.
+     */
+    private final IdentityLinkedSet<Character> wideInterest = new IdentityLinkedSet<>();
+
+    /**
+     * The game map to which this place was added, which indexes where positionables are.
+     */
+    GameMap gameMap;
+
+    /**
+     * Kinds of change of a positionable in this place.
+     */
+    public enum Change { ADDED, REMOVED, MOVED }
+
+    /**
+     * Changes since they were last drained, and the last drained changes,
+     * keyed by identity since items redefine equality.
+     */
+    private IdentityHashMap<Positionable, Change> pendingChanges = new IdentityHashMap<>();
+    private IdentityHashMap<Positionable, Change> drainedChanges = new IdentityHashMap<>();
+
+    /**
+     * Order in which positionables first changed since the changes were last drained.
+     */
+    private final IdentityLinkedSet<Positionable> pendingOrder = new IdentityLinkedSet<>();
+
+    /**
+     * Packed positions of the positionables before the pending changes, and before the last drained changes,
+     * for those that were in this place with a position.
+     */
+    private IdentityHashMap<Positionable, Long> pendingOrigins = new IdentityHashMap<>();
+    private IdentityHashMap<Positionable, Long> drainedOrigins = new IdentityHashMap<>();
+
+    /**
+     * Spatial index of the positionables of the last drained changes at their positions before those changes,
+     * created on first use after each drain.
+     */
+    private transient SpatialIndex<Positionable> drainedOriginIndex;
+
+    /**
+     * Sequence of the last drained changes.
+     */
+    private long sequence;
 
     /**
      * Create a place.
@@ -33,7 +118,6 @@ public class Place
     public Place(Visual background, String description, Position entrance) {
         super(background, description);
         this.placeEntrance = entrance;
-        this.placePositionables = new ArrayList<>();
     }
 
     /**
@@ -65,24 +149,51 @@ public class Place
     public Place addGameComponent(Positionable positionable, Position position) {
         positionable.moveTo(position);
 
-        if (!(this.placePositionables.contains(positionable)))
-            this.placePositionables.add(positionable);
+        if (this.placePositionables.add(positionable)) {
+            switch (positionable) {
+                case Character character -> placeCharacters.add(character);
+                case Item item -> placeItems.add(item);
+                case Passage passage -> placePassages.add(passage);
+                default -> { }
+            }
+            if (gameMap != null)
+                gameMap.placed(positionable, this);
+            positionable.container = this;
+            if (columns != null)
+                columns.add(positionable);
+            index(positionable);
+            recordChange(positionable, Change.ADDED);
+        }
+        else
+            recordChange(positionable, Change.MOVED);
 
         return this;
     }
 
     /**
-     * Get the characters in this place. Convenience methods to get the positionables that are players.
-     * @return the set of players in this place.
+     * Move a positionable component in this place to another position.
+     * Moving a positionable with this method, rather than with {@link Positionable#moveTo(Position)},
+     * records the change to be sent in scene deltas.
+     * @param positionable component to move.
+     * @param position where to move the component.
+     * @return <code>true</code> if the component was moved, <code>false</code> if it is not in this place.
      */
-    public Set<Character> getCharacters() {
-        Set<Character> characterSet = new HashSet<>();
+    public boolean moveGameComponent(Positionable positionable, Position position) {
+        if (!this.placePositionables.contains(positionable))
+            return false;
 
-        for(Positionable positionable : placePositionables)
-            if (positionable instanceof Character characterToAdd)
-                characterSet.add(characterToAdd);
+        positionable.moveTo(position);
+        recordChange(positionable, Change.MOVED);
 
-        return characterSet;
+        return true;
+    }
+
+    /**
+     * Get the characters in this place. Convenience methods to get the positionables that are players.
+     * @return read-only view of the set of players in this place.
+     */
+    public Set<Character> getCharacters() {
+        return this.placeCharacters.readOnlySet();
     }
 
     /**
@@ -95,24 +206,439 @@ public class Place
 
     /**
      * Get the items in this place. Convenience methods to get the positionables that are item.
-     * @return the set of items in this place.
+     * @return read-only view of the set of items in this place.
      */
     public Set<Item> getItems() {
-        Set<Item> itemSet = new HashSet<>();
-
-        for(Positionable item : this.placePositionables)
-            if (item instanceof Item itemToAdd)
-                itemSet.add(itemToAdd);
+        return this.placeItems.readOnlySet();
+    }
 
-        return itemSet;
+    /**
+     * Get the passages in this place. Convenience methods to get the positionables that are passages.
+     * @return read-only view of the set of passages in this place.
+     */
+    public Set<Passage> getPassages() {
+        return this.placePassages.readOnlySet();
     }
 
     /**
      * Get the list of game positionable components in this place.
-     * @return the list of positionable components.
+     * @return read-only view of the list of positionable components, in the order they were added.
      */
     public List<Positionable> getPositionables() {
-        return this.placePositionables;
+        return this.placePositionables.readOnlyList();
+    }
+
+    /**
+     * Additional method.
+     * Get the packed coordinates of the positionable components in this place, for scene snapshots.
+     * @return coordinates packed with {@link Position#pack(int, int)}, in the order of {@link #getPositionables()},
+     * 0 for components without a position
+     */
+    public long[] getPackedPositions() {
+        if (this.columns != null)
+            return this.columns.packedPositions();
+
+        long[] positions = new long[this.placePositionables.size()];
+        int index = 0;
+
+        for (Positionable positionable : this.placePositionables)
+            positions[index++] = positionable.getPackedPosition();
+
+        return positions;
+    }
+
+    /**
+     * Additional method.
+     * Enable or disable columnar storage of the positionables in this place, for crowded places
+     * with hundreds of characters and items. Their coordinates are kept in a primitive array,
+     * updated as positionables are added, removed or moved, and copied for scene snapshots.
+     * @param columnar <code>true</code> to enable columnar storage, <code>false</code> to disable it
+     */
+    public void setColumnarStorage(boolean columnar) {
+        if (columnar && this.columns == null) {
+            this.columns = new PositionableColumns(this);
+            for (Positionable positionable : this.placePositionables)
+                this.columns.add(positionable);
+        }
+        else if (!columnar)
+            this.columns = null;
+    }
+
+    /**
+     * Additional method.
+     * Check if the positionables in this place are kept in columnar storage.
+     * @return <code>true</code> if columnar storage is enabled
+     */
+    public boolean isColumnarStorage() {
+        return this.columns != null;
+    }
+
+    /**
+     * Additional method.
+     * Find the characters of this place interested in a positionable, i.e. those whose area of interest
+     * overlaps its visual at its position, and those interested in the whole place.
+     * @param positionable of interest, for instance a character speaking
+     * @return interested characters, those with an area of interest first, in the order they were indexed
+     */
+    public Set<Character> getInterested(Positionable positionable) {
+        Set<Character> interested = new LinkedHashSet<>();
+
+        if (positionable.hasPosition())
+            addInterested(interested, positionable, positionable.getPackedPosition());
+        interested.addAll(wideInterest);
+
+        return interested;
+    }
+
+    /**
+     * Additional method.
+     * Find the characters of this place interested in a positionable of the last drained changes,
+     * i.e. those whose area of interest overlaps its visual at its current position or at its position
+     * before those changes, and those interested in the whole place.
+     * Characters that left the place are not interested, even if they were when the change was made.
+     * @param positionable added, removed or moved in the last drained changes
+     * @return interested characters, those with an area of interest first
+     */
+    public Set<Character> getInterestedInChange(Positionable positionable) {
+        Set<Character> interested = new LinkedHashSet<>();
+        Long origin = drainedOrigins.get(positionable);
+
+        if (origin != null)
+            addInterested(interested, positionable, origin);
+        if (positionable.hasPosition())
+            addInterested(interested, positionable, positionable.getPackedPosition());
+        interested.addAll(wideInterest);
+
+        return interested;
+    }
+
+    /**
+     * Additional method.
+     * Check if a character of this place is interested in a positionable, i.e. if the positionable is in this place
+     * and its visual at its position overlaps the area of interest of the character,
+     * or if the character is interested in the whole place.
+     * @param character of this place
+     * @param positionable to check
+     * @return <code>true</code> if the character is interested in the positionable
+     */
+    public boolean isInInterest(Character character, Positionable positionable) {
+        if (!this.placePositionables.contains(positionable))
+            return false;
+
+        if (character.getInterestRadius() == 0 || !character.hasPosition())
+            return true;
+
+        return positionable.hasPosition() && overlapsInterest(character, character.getPackedPosition(),
+                positionable, positionable.getPackedPosition());
+    }
+
+    /**
+     * Additional method.
+     * Check if a character of this place was interested in a positionable before the last drained changes,
+     * as {@link #isInInterest(Character, Positionable)} with the positions before those changes.
+     * The interest radius of the character is taken as it is now.
+     * @param character of this place, not added in the last drained changes
+     * @param positionable in this place or removed in the last drained changes
+     * @return <code>true</code> if the character was interested in the positionable
+     */
+    public boolean wasInInterest(Character character, Positionable positionable) {
+        Change change = drainedChanges.get(positionable);
+
+        if (change == Change.ADDED || (change == null && !this.placePositionables.contains(positionable)))
+            return false;
+
+        Long area = positionBefore(character);
+
+        if (character.getInterestRadius() == 0 || area == null)
+            return true;
+
+        Long position = positionBefore(positionable);
+
+        return position != null && overlapsInterest(character, area, positionable, position);
+    }
+
+    /**
+     * Additional method.
+     * Find the positionables that entered the area of interest of a character because it moved
+     * in the last drained changes, i.e. those it is interested in now but was not before those changes.
+     * A character interested in the whole place before and after moving sees nothing new.
+     * @param character moved in the last drained changes
+     * @return positionables that entered its area of interest, in the order they were added
+     */
+    public List<Positionable> getEnteredInterest(Character character) {
+        List<Positionable> entered = new ArrayList<>();
+
+        if (character.getInterestRadius() == 0 || positionBefore(character) == null)
+            return entered;
+
+        Collection<Positionable> candidates = character.hasPosition() ? this.spatialIndex.intersecting(
+                interestX(character, character.getPackedPosition()), interestY(character, character.getPackedPosition()),
+                interestWidth(character), interestHeight(character)) : this.placePositionables;
+
+        for (Positionable positionable : candidates)
+            if (!wasInInterest(character, positionable))
+                entered.add(positionable);
+
+        return entered;
+    }
+
+    /**
+     * Additional method.
+     * Find the positionables that left the area of interest of a character in the last drained changes,
+     * i.e. those it was interested in before those changes but is not now, either because they moved,
+     * were removed, or the character moved. The counterpart of {@link #getEnteredInterest(Character)}.
+     * @param character of this place, not added in the last drained changes
+     * @return positionables that left its area of interest
+     */
+    public List<Positionable> getLeftInterest(Character character) {
+        List<Positionable> left = new ArrayList<>();
+
+        if (character.getInterestRadius() == 0 || !character.hasPosition())
+            return left;
+
+        Long area = positionBefore(character);
+        Set<Positionable> candidates = new IdentityLinkedSet<>();
+
+        if (area == null) {
+            candidates.addAll(this.placePositionables);
+            candidates.addAll(this.drainedOrigins.keySet());
+        }
+        else {
+            int x = interestX(character, area);
+            int y = interestY(character, area);
+
+            candidates.addAll(this.spatialIndex.intersecting(x, y, interestWidth(character), interestHeight(character)));
+            candidates.addAll(drainedOriginIndex().intersecting(x, y, interestWidth(character), interestHeight(character)));
+        }
+
+        for (Positionable positionable : candidates)
+            if (wasInInterest(character, positionable) && !isInInterest(character, positionable))
+                left.add(positionable);
+
+        return left;
+    }
+
+    /**
+     * Packed position of a positionable of this place before the last drained changes.
+     * @param positionable in this place or changed in the last drained changes
+     * @return packed position, or <code>null</code> if it had none or was not in this place
+     */
+    private Long positionBefore(Positionable positionable) {
+        if (this.drainedChanges.containsKey(positionable))
+            return this.drainedOrigins.get(positionable);
+
+        return positionable.hasPosition() ? positionable.getPackedPosition() : null;
+    }
+
+    /**
+     * Spatial index of the positionables of the last drained changes at their positions before those changes.
+     * @return index, created on first use after each drain
+     */
+    private SpatialIndex<Positionable> drainedOriginIndex() {
+        if (this.drainedOriginIndex == null) {
+            this.drainedOriginIndex = new SpatialIndex<>();
+
+            for (Map.Entry<Positionable, Long> origin : this.drainedOrigins.entrySet()) {
+                Visual visual = origin.getKey().getVisual();
+
+                this.drainedOriginIndex.put(origin.getKey(),
+                        Position.unpackX(origin.getValue()), Position.unpackY(origin.getValue()),
+                        visual == null ? 0 : visual.getWidth(), visual == null ? 0 : visual.getHeight());
+            }
+        }
+
+        return this.drainedOriginIndex;
+    }
+
+    /**
+     * Check if the visual of a positionable at a position overlaps the area of interest of a character
+     * at a position, as the spatial indexes of this place do.
+     * @param character with an interest radius
+     * @param area packed position of the character
+     * @param positionable to check
+     * @param packed position of the positionable
+     * @return <code>true</code> if they overlap
+     */
+    private static boolean overlapsInterest(Character character, long area, Positionable positionable, long packed) {
+        Visual visual = positionable.getVisual();
+        int x = Position.unpackX(packed);
+        int y = Position.unpackY(packed);
+        int width = Math.max(1, visual == null ? 0 : visual.getWidth());
+        int height = Math.max(1, visual == null ? 0 : visual.getHeight());
+        int areaX = interestX(character, area);
+        int areaY = interestY(character, area);
+
+        return x < areaX + interestWidth(character) && areaX < x + width
+                && y < areaY + interestHeight(character) && areaY < y + height;
+    }
+
+    /**
+     * Left side of the area of interest of a character at a position.
+     */
+    private static int interestX(Character character, long packed) {
+        return Position.unpackX(packed) - character.getInterestRadius();
+    }
+
+    /**
+     * Top side of the area of interest of a character at a position.
+     */
+    private static int interestY(Character character, long packed) {
+        return Position.unpackY(packed) - character.getInterestRadius();
+    }
+
+    /**
+     * Width of the area of interest of a character, its visual enlarged by its interest radius.
+     */
+    private static int interestWidth(Character character) {
+        Visual visual = character.getVisual();
+
+        return Math.max(1, (visual == null ? 0 : visual.getWidth()) + 2 * character.getInterestRadius());
+    }
+
+    /**
+     * Height of the area of interest of a character, its visual enlarged by its interest radius.
+     */
+    private static int interestHeight(Character character) {
+        Visual visual = character.getVisual();
+
+        return Math.max(1, (visual == null ? 0 : visual.getHeight()) + 2 * character.getInterestRadius());
+    }
+
+    /**
+     * Add the characters whose area of interest overlaps the visual of a positionable at a position.
+     * @param interested characters found so far
+     * @param positionable of interest
+     * @param packed position of the positionable
+     */
+    private void addInterested(Set<Character> interested, Positionable positionable, long packed) {
+        Visual visual = positionable.getVisual();
+
+        interested.addAll(this.interestAreas.intersecting(Position.unpackX(packed), Position.unpackY(packed),
+                Math.max(1, visual == null ? 0 : visual.getWidth()), Math.max(1, visual == null ? 0 : visual.getHeight())));
+    }
+
+    /**
+     * Record the position of a positionable of this place before it moves,
+     * since its container may be moved, as to another place, before it is removed from here.
+     * @param positionable about to move
+     */
+    void positionableMoving(Positionable positionable) {
+        recordOrigin(positionable);
+    }
+
+    /**
+     * Update the columns and the spatial index for a positionable of this place that moved.
+     * @param positionable that moved
+     */
+    void positionableMoved(Positionable positionable) {
+        if (this.columns != null)
+            this.columns.moved(positionable);
+        index(positionable);
+    }
+
+    /**
+     * Put a positionable in the spatial index, with its position and the size of its visual,
+     * or remove it if it has no position.
+     * @param positionable of this place
+     */
+    private void index(Positionable positionable) {
+        if (positionable instanceof Character character)
+            indexInterest(character);
+
+        if (!positionable.hasPosition()) {
+            this.spatialIndex.remove(positionable);
+            return;
+        }
+
+        long packed = positionable.getPackedPosition();
+        Visual visual = positionable.getVisual();
+
+        this.spatialIndex.put(positionable, Position.unpackX(packed), Position.unpackY(packed),
+                visual == null ? 0 : visual.getWidth(), visual == null ? 0 : visual.getHeight());
+    }
+
+    /**
+     * Put the area of interest of a character in its spatial index, its visual enlarged by its interest radius,
+     * or record it as interested in the whole place if it has no interest radius or no position.
+     * @param character of this place
+     */
+    private void indexInterest(Character character) {
+        int radius = character.getInterestRadius();
+
+        if (radius == 0 || !character.hasPosition()) {
+            this.interestAreas.remove(character);
+            this.wideInterest.add(character);
+            return;
+        }
+
+        long packed = character.getPackedPosition();
+
+        this.wideInterest.remove(character);
+        this.interestAreas.put(character, interestX(character, packed), interestY(character, packed),
+                interestWidth(character), interestHeight(character));
+    }
+
+    /**
+     * Additional method.
+     * Find the positionable component on top at a point of this place, i.e. the last added
+     * whose visual, scaled to its size and placed at its position, covers the point.
+     * @param x coordinate of the point
+     * @param y coordinate of the point
+     * @return positionable at that point, or <code>null</code> if there is none
+     */
+    public Positionable hitTest(int x, int y) {
+        List<Positionable> hits = this.spatialIndex.at(x, y);
+
+        return hits.isEmpty() ? null : hits.getLast();
+    }
+
+    /**
+     * Additional method.
+     * Find the positionable components of this place whose visuals, placed at their positions,
+     * intersect a rectangle.
+     * @param x coordinate of the left side of the rectangle
+     * @param y coordinate of the top side of the rectangle
+     * @param width of the rectangle
+     * @param height of the rectangle
+     * @return positionables intersecting the rectangle, in the order they were added
+     */
+    public List<Positionable> getIntersecting(int x, int y, int width, int height) {
+        return this.spatialIndex.intersecting(x, y, width, height);
+    }
+
+    /**
+     * Additional method.
+     * Find the positionable components of this place within a distance of a position.
+     * @param position center of the search
+     * @param radius maximum distance
+     * @return positionables within the distance, in the order they were added
+     */
+    public List<Positionable> getNear(Position position, int radius) {
+        List<Positionable> found = new ArrayList<>();
+        long squaredRadius = (long) radius * radius;
+
+        for (Positionable positionable : this.spatialIndex.intersecting(position.getX() - radius,
+                position.getY() - radius, 2 * radius + 1, 2 * radius + 1)) {
+            long dx = Position.unpackX(positionable.getPackedPosition()) - (long) position.getX();
+            long dy = Position.unpackY(positionable.getPackedPosition()) - (long) position.getY();
+
+            if (dx * dx + dy * dy <= squaredRadius)
+                found.add(positionable);
+        }
+
+        return found;
+    }
+
+    /**
+     * Additional method.
+     * Find the positionable components of this place nearest to a position,
+     * by the distance from the position to their visuals.
+     * @param position center of the search
+     * @param count maximum number of positionables to find
+     * @return up to count positionables, nearest first
+     */
+    public List<Positionable> getNearest(Position position, int count) {
+        return this.spatialIndex.nearest(position.getX(), position.getY(), count);
     }
 
     /**
@@ -122,7 +648,111 @@ public class Place
      * @return <code>true</code> if the component was removed, <code>false</code> otherwise.
      */
     public boolean removeGameComponent(Positionable positionable) {
-        return placePositionables.remove(positionable);
+        if (!placePositionables.remove(positionable))
+            return false;
+
+        recordOrigin(positionable);
+
+        switch (positionable) {
+            case Character character -> placeCharacters.remove(character);
+            case Item item -> placeItems.remove(item);
+            case Passage passage -> placePassages.remove(passage);
+            default -> { }
+        }
+        if (gameMap != null)
+            gameMap.displaced(positionable, this);
+        if (columns != null)
+            columns.remove(positionable);
+        spatialIndex.remove(positionable);
+        if (positionable instanceof Character character) {
+            interestAreas.remove(character);
+            wideInterest.remove(character);
+        }
+        if (positionable.container == this)
+            positionable.container = null;
+        recordChange(positionable, Change.REMOVED);
+
+        return true;
+    }
+
+    /**
+     * Record the position of a positionable of this place before it changes,
+     * unless it was added or already moved since the changes were last drained.
+     * @param positionable about to change
+     */
+    private void recordOrigin(Positionable positionable) {
+        if (positionable.hasPosition() && !pendingChanges.containsKey(positionable))
+            pendingOrigins.putIfAbsent(positionable, positionable.getPackedPosition());
+    }
+
+    /**
+     * Merge a change of a positionable with the changes already recorded for it.
+     * @param positionable that changed
+     * @param change of the positionable
+     */
+    private void recordChange(Positionable positionable, Change change) {
+        Change previous = pendingChanges.get(positionable);
+        Change merged;
+
+        if (previous == null)
+            merged = change;
+        else
+            merged = switch (previous) {
+                case ADDED -> change == Change.REMOVED ? null : Change.ADDED;
+                case MOVED -> change == Change.REMOVED ? Change.REMOVED : Change.MOVED;
+                case REMOVED -> change == Change.ADDED ? Change.MOVED : Change.REMOVED;
+            };
+
+        if (merged == null) {
+            pendingChanges.remove(positionable);
+            pendingOrder.remove(positionable);
+            pendingOrigins.remove(positionable);
+        }
+        else if (pendingChanges.put(positionable, merged) == null)
+            pendingOrder.add(positionable);
+    }
+
+    /**
+     * Get the changes recorded since they were last drained and clear them.
+     * If there are changes, the sequence of this place is incremented.
+     * @return lists of positionables by kind of change, in the order they first changed, empty if there were none.
+     */
+    public Map<Change, List<Positionable>> drainChanges() {
+        Map<Change, List<Positionable>> changes = new EnumMap<>(Change.class);
+
+        if (pendingOrder.isEmpty()) {
+            // positions moved without a change recorded are the baseline for the next changes
+            pendingOrigins.clear();
+            return changes;
+        }
+
+        for (Positionable positionable : pendingOrder)
+            changes.computeIfAbsent(pendingChanges.get(positionable), change -> new ArrayList<>()).add(positionable);
+
+        pendingOrder.clear();
+        sequence++;
+
+        IdentityHashMap<Positionable, Change> drained = drainedChanges;
+        drainedChanges = pendingChanges;
+        pendingChanges = drained;
+        pendingChanges.clear();
+
+        IdentityHashMap<Positionable, Long> origins = drainedOrigins;
+        drainedOrigins = pendingOrigins;
+        pendingOrigins = origins;
+        pendingOrigins.clear();
+        drainedOriginIndex = null;
+
+        return changes;
+    }
+
+    /**
+     * Sequence of the last drained changes. A full scene of this place corresponds to this sequence,
+     * and the next drained changes will have the following one.
+     * @return sequence of this place.
+     */
+    public long getSequence() {
+        return sequence;
     }
 
 }
@@ -0,0 +1,217 @@
+package rea.components;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * <p>Queries over the places and passages of a {@link GameMap}, used by gameplays and hints
+ * to know whether a place can be reached from another and by how many passages.
+ * The place of a character is given by {@link GameMap#locate(Positionable)}.</p>
+ * <p>Places are identified by their component ids in the map, see {@link Component#getId()},
+ * hence the places reachable from a place are kept in a {@link BitSet}. A breadth-first search is performed once for each place of origin,
+ * and its distances, paths and reachable places are cached, as is the topological order of places.
+ * The cache is discarded only when the version of the map changes, i.e. when a place or passage is added,
+ * either when the map is built or by {@link GameMap#getChange(Positionable, Item)} during the game.</p>
+ * implNote - queries are synchronized, but the map should not change while they run,
+ * as with other accesses to the map of a game instance.
+ */
+public class PlaceGraphQueries {
+
+    /**
+     * Result of a breadth-first search from a place.
+     * @param distance number of passages to each place, -1 if not reachable
+     * @param previous id of the place before each place in a shortest path, -1 for the origin or if not reachable
+     * @param reachable ids of places reachable from the origin, including itself
+     */
+    private record Search(int[] distance, int[] previous, BitSet reachable) {
+    }
+
+    private final GameMap graph;
+
+    private long version = -1;
+    private Search[] searches = new Search[0];
+    private List<Place> topologicalOrder;
+
+    /**
+     * Create queries over the graph of places of a map.
+     * @param graph map of places and passages
+     */
+    PlaceGraphQueries(GameMap graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Check if a place can be reached from another, following passages.
+     * @param from place of origin
+     * @param to place of destiny
+     * @return <code>true</code> if there is a path or they are the same place,
+     * <code>false</code> otherwise or if any of them is not in the map
+     */
+    public synchronized boolean isReachable(Place from, Place to) {
+        Search search = search(from);
+        int id = idOf(to);
+
+        return search != null && id >= 0 && search.reachable().get(id);
+    }
+
+    /**
+     * Get the places that can be reached from a place, including itself.
+     * @param from place of origin
+     * @return places reachable from origin, in the order of their ids,
+     * empty if origin is not in the map
+     */
+    public synchronized List<Place> getReachablePlaces(Place from) {
+        Search search = search(from);
+        List<Place> places = new ArrayList<>();
+
+        if (search != null)
+            for (int id = search.reachable().nextSetBit(0); id >= 0; id = search.reachable().nextSetBit(id + 1))
+                places.add((Place) graph.getComponent(id));
+
+        return places;
+    }
+
+    /**
+     * Get the least number of passages from a place to another.
+     * @param from place of origin
+     * @param to place of destiny
+     * @return number of passages, 0 for the same place, -1 if not reachable or not in the map
+     */
+    public synchronized int getDistance(Place from, Place to) {
+        Search search = search(from);
+        int id = idOf(to);
+
+        return search == null || id < 0 || id >= search.distance().length ? -1 : search.distance()[id];
+    }
+
+    /**
+     * Get a shortest path from a place to another.
+     * @param from place of origin
+     * @param to place of destiny
+     * @return places in the path, starting with origin and ending with destiny,
+     * empty if not reachable or not in the map
+     */
+    public synchronized List<Place> getShortestPath(Place from, Place to) {
+        Search search = search(from);
+        int id = idOf(to);
+
+        if (search == null || id < 0 || id >= search.distance().length || search.distance()[id] < 0)
+            return Collections.emptyList();
+
+        List<Place> path = new ArrayList<>(search.distance()[id] + 1);
+
+        for (; id >= 0; id = search.previous()[id])
+            path.add((Place) graph.getComponent(id));
+        Collections.reverse(path);
+
+        return path;
+    }
+
+    /**
+     * Get the places in topological order: each passage leads to a place later in the list.
+     * @return places of the map in topological order
+     */
+    public synchronized List<Place> getTopologicalOrder() {
+        validate();
+
+        if (topologicalOrder == null) {
+            List<Place> places = new ArrayList<>(graph.getPlaces());
+
+            places.sort(Comparator.comparingInt(graph::getOrder));
+            topologicalOrder = Collections.unmodifiableList(places);
+        }
+
+        return topologicalOrder;
+    }
+
+    /**
+     * Get the breadth-first search from a place, performing it if not cached.
+     * @param from place of origin
+     * @return search from origin, or <code>null</code> if not in the map
+     */
+    private Search search(Place from) {
+        validate();
+
+        int origin = idOf(from);
+
+        if (origin < 0)
+            return null;
+
+        if (origin >= searches.length)
+            searches = Arrays.copyOf(searches, graph.getComponentCount());
+
+        if (searches[origin] == null)
+            searches[origin] = breadthFirstSearch(origin);
+
+        return searches[origin];
+    }
+
+    /**
+     * Discard cached results if the graph changed since they were computed.
+     */
+    private void validate() {
+        long current = graph.getVersion();
+
+        if (current != version) {
+            version = current;
+            searches = new Search[graph.getComponentCount()];
+            topologicalOrder = null;
+        }
+    }
+
+    /**
+     * Breadth-first search from a place.
+     * @param origin id of the place of origin
+     * @return distances, previous places and reachable places from origin
+     */
+    private Search breadthFirstSearch(int origin) {
+        int count = graph.getComponentCount();
+        int[] distance = new int[count];
+        int[] previous = new int[count];
+        BitSet reachable = new BitSet(count);
+        Deque<Integer> queue = new ArrayDeque<>();
+
+        Arrays.fill(distance, -1);
+        Arrays.fill(previous, -1);
+        distance[origin] = 0;
+        reachable.set(origin);
+        queue.add(origin);
+
+        while (!queue.isEmpty()) {
+            int id = queue.poll();
+
+            for (Place place : graph.successors((Place) graph.getComponent(id))) {
+                int next = place.getId();
+
+                if (!reachable.get(next)) {
+                    reachable.set(next);
+                    distance[next] = distance[id] + 1;
+                    previous[next] = id;
+                    queue.add(next);
+                }
+            }
+        }
+
+        return new Search(distance, previous, reachable);
+    }
+
+    /**
+     * Id of a place of the map.
+     * @param place to look up
+     * @return component id of the place, or {@link Component#NO_ID} if it is not a place of the map
+     */
+    private int idOf(Place place) {
+        if (place == null || place.gameMap != graph)
+            return Component.NO_ID;
+
+        int id = place.getId();
+
+        return graph.getComponent(id) == place ? id : Component.NO_ID;
+    }
+}
@@ -1,13 +1,21 @@
 package rea.components;
 
+import java.io.Serializable;
+
 /**
  * A position in the game map. Provides the x and y coordinates of the position to
  * the {@link Positionable} components.
+ * Positions are immutable values, hence they can be shared by several components, and equal if their coordinates are.
+ * The engine stores them packed in a <code>long</code>, with {@link #pack(int, int)},
+ * and this class is a view of the packed coordinates for the API.
  */
-public class Position {
+public final class Position
+        implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
-    private int positionX = 0;
-    private int positionY = 0;
+    private final int positionX;
+    private final int positionY;
 
     /**
      * Create a position with the given coordinates.
@@ -15,8 +23,8 @@ public class Position {
      * @param y coordinate
      */
     public Position(int x, int y) {
-        this.setX(x);
-        this.setY(y);
+        this.positionX = x;
+        this.positionY = y;
     }
 
     /**
@@ -37,18 +45,69 @@ public class Position {
 
     /**
      * Additional method.
-     * @param x x coordinate value
+     * Coordinates of this position packed in a <code>long</code>.
+     * @return packed coordinates
+     * @see #pack(int, int)
      */
-    public void setX(int x) {
-        this.positionX = x;
+    public long pack() {
+        return pack(this.positionX, this.positionY);
     }
 
     /**
      * Additional method.
-     * @param y y coordinate value
+     * Pack coordinates in a <code>long</code>, x in the high 32 bits and y in the low 32 bits.
+     * @param x coordinate
+     * @param y coordinate
+     * @return packed coordinates
      */
-    public void setY(int y) {
-        this.positionY = y;
+    public static long pack(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Additional method.
+     * The x coordinate of packed coordinates.
+     * @param packed coordinates
+     * @return x coordinate
+     */
+    public static int unpackX(long packed) {
+        return (int) (packed >> 32);
+    }
+
+    /**
+     * Additional method.
+     * The y coordinate of packed coordinates.
+     * @param packed coordinates
+     * @return y coordinate
+     */
+    public static int unpackY(long packed) {
+        return (int) packed;
+    }
+
+    /**
+     * Additional method.
+     * Position with packed coordinates.
+     * @param packed coordinates
+     * @return position with those coordinates
+     */
+    public static Position unpack(long packed) {
+        return new Position(unpackX(packed), unpackY(packed));
+    }
+
+    @Override
+    public boolean equals(Object o){
+        if (this == o)
+            return true;
+
+        if (o instanceof Position position)
+            return this.positionX == position.positionX && this.positionY == position.positionY;
+        else
+            return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(this.pack());
     }
 
     /**
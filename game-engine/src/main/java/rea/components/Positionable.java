@@ -3,12 +3,29 @@ package rea.components;
 /**
  * A positionable object in the game. The object has a {@link Position} in a {@link Place}.
  * When created, the object lacks a specific position in a place.
+ * The position is stored as packed coordinates, hence moving the object does not allocate,
+ * and {@link #getPosition()} builds a position from them.
  */
 public abstract class Positionable
         extends Component
         implements Element {
 
-    private Position positionablePosition;
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Coordinates of the object, packed with {@link Position#pack(int, int)}, if it has a position.
+     * Volatile since positions are read by other threads than the one moving the object,
+     * and a <code>long</code> is otherwise not read atomically.
+     */
+    private volatile long positionablePosition;
+    private volatile boolean hasPosition;
+
+    /**
+     * Place where this object was last added, notified when it moves,
+     * and its slot in the columns of that place, if in columnar storage.
+     */
+    Place container;
+    int containerSlot;
 
     /**
      * Create a positionable object.
@@ -18,24 +35,75 @@ public abstract class Positionable
     public Positionable(Visual visual,
                         String description){
         super(visual, description);
-        this.positionablePosition = null;
+        this.hasPosition = false;
 
     }
 
     /**
      * Move point to a new location.
-     * @param position new position
+     * @param position new position, or <code>null</code> to have no position
      */
     public void moveTo(Position position){
-        this.positionablePosition = position;
+        if (position == null) {
+            if (this.container != null)
+                this.container.positionableMoving(this);
+            // the coordinates are left as they were, and no longer read
+            this.hasPosition = false;
+            if (this.container != null)
+                this.container.positionableMoved(this);
+        }
+        else
+            this.moveTo(position.pack());
+    }
+
+    /**
+     * Additional method.
+     * Move point to a new location, given by packed coordinates.
+     * @param packedPosition new position, packed with {@link Position#pack(int, int)}
+     */
+    public void moveTo(long packedPosition){
+        if (this.container != null)
+            this.container.positionableMoving(this);
+
+        // coordinates before the flag, read in the opposite order by getPosition()
+        this.positionablePosition = packedPosition;
+        this.hasPosition = true;
+
+        if (this.container != null)
+            this.container.positionableMoved(this);
     }
 
     /**
      * The position of the object in the place.
-     * @return the position of the object
+     * implNote - Not cached, since a cached position could be written by a reading thread
+     * after the object moved and then returned as if current.
+     * @return the position of the object, or <code>null</code> if it has none
      */
     public Position getPosition() {
-        return this.positionablePosition;
+        if (!this.hasPosition)
+            return null;
+
+        return Position.unpack(this.positionablePosition);
+    }
+
+    /**
+     * Additional method.
+     * Check if the object has a position.
+     * @return <code>true</code> if it has a position
+     */
+    public boolean hasPosition() {
+        return this.hasPosition;
+    }
+
+    /**
+     * Additional method.
+     * The coordinates of the object packed in a <code>long</code>, valid if {@link #hasPosition()}.
+     * @return packed coordinates, or 0 if it has no position
+     * @see Position#unpackX(long)
+     * @see Position#unpackY(long)
+     */
+    public long getPackedPosition() {
+        return this.hasPosition ? this.positionablePosition : 0;
     }
 
 }
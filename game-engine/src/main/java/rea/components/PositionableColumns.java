@@ -0,0 +1,109 @@
+package rea.components;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * <p>Columnar storage of the positionables in a crowded {@link Place}: their packed coordinates
+ * are kept in a primitive array parallel to the positionables, in the order positionables were added,
+ * hence the coordinates of a scene snapshot are an array copy.</p>
+ * <p>Each positionable refers back to the place it was last added to, with its slot in these columns,
+ * so that moving it with {@link Positionable#moveTo(long)} updates its coordinates here.</p>
+ * implNote - a <b>Struct of arrays</b>, growing by doubling and shifted on removal to keep the order.
+ */
+final class PositionableColumns
+        implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Place owner;
+
+    private Positionable[] positionables = new Positionable[INITIAL_CAPACITY];
+    private long[] positions = new long[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Create empty columns.
+     * @param owner place whose positionables are stored
+     */
+    PositionableColumns(Place owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * Append a positionable, recording its slot if it refers back to the owner place.
+     * @param positionable to append
+     */
+    void add(Positionable positionable) {
+        if (size == positionables.length) {
+            int capacity = size * 2;
+
+            positionables = Arrays.copyOf(positionables, capacity);
+            positions = Arrays.copyOf(positions, capacity);
+        }
+
+        positionables[size] = positionable;
+        positions[size] = positionable.getPackedPosition();
+        if (positionable.container == owner)
+            positionable.containerSlot = size;
+        size++;
+    }
+
+    /**
+     * Remove a positionable, shifting the following ones to keep the order.
+     * @param positionable to remove
+     */
+    void remove(Positionable positionable) {
+        int slot = slotOf(positionable);
+
+        if (slot < 0)
+            return;
+
+        int moved = size - slot - 1;
+
+        System.arraycopy(positionables, slot + 1, positionables, slot, moved);
+        System.arraycopy(positions, slot + 1, positions, slot, moved);
+        positionables[--size] = null;
+
+        for (int index = slot; index < size; index++)
+            if (positionables[index].container == owner)
+                positionables[index].containerSlot = index;
+    }
+
+    /**
+     * Update the coordinates of a positionable that moved.
+     * @param positionable that moved, referring back to the owner place
+     */
+    void moved(Positionable positionable) {
+        int slot = slotOf(positionable);
+
+        if (slot >= 0)
+            positions[slot] = positionable.getPackedPosition();
+    }
+
+    /**
+     * Copy of the packed coordinates of the positionables, in order.
+     * @return packed coordinates
+     */
+    long[] packedPositions() {
+        return Arrays.copyOf(positions, size);
+    }
+
+    /**
+     * Slot of a positionable, direct if it refers back to the owner place, searched otherwise.
+     * @param positionable to find
+     * @return slot of the positionable, or -1 if it is not stored here
+     */
+    private int slotOf(Positionable positionable) {
+        if (positionable.container == owner)
+            return positionable.containerSlot;
+
+        for (int index = 0; index < size; index++)
+            if (positionables[index] == positionable)
+                return index;
+
+        return -1;
+    }
+}
@@ -0,0 +1,332 @@
+package rea.components;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>Spatial index of rectangles, used by {@link Place} for hit-tests and proximity queries on its positionables,
+ * and by scene layouts to find overlaps. Elements are compared by identity, and each has a rectangle,
+ * given by its top left corner and size, that may change as the element moves.</p>
+ * <p>The plane is divided in square cells, and each element is listed in the cells its rectangle covers,
+ * hence a query only looks at the elements in the cells it covers, rather than at all the elements.
+ * Results are in the order the elements were added.</p>
+ * implNote - a <b>Uniform grid</b> with cells in a hash map keyed by packed cell coordinates,
+ * so that the plane is unbounded and empty cells take no memory.
+ * @param <T> type of elements
+ */
+public class SpatialIndex<T>
+        implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Default side of the cells, in pixels.
+     */
+    public static final int CELL_SIZE = 64;
+
+    /**
+     * An element with its rectangle.
+     */
+    private static final class Entry<T> implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        @SuppressWarnings("serial") // elements are serializable wherever the index is serialized
+        final T element;
+        final long order;
+        int x;
+        int y;
+        int width;
+        int height;
+
+        Entry(T element, long order) {
+            this.element = element;
+            this.order = order;
+        }
+
+        boolean contains(int px, int py) {
+            return px >= x && px < x + width && py >= y && py < y + height;
+        }
+
+        boolean intersects(int rx, int ry, int rwidth, int rheight) {
+            return rx < x + width && x < rx + rwidth && ry < y + height && y < ry + rheight;
+        }
+
+        long squaredDistance(int px, int py) {
+            long dx = px < x ? (long) x - px : px >= x + width ? (long) px - (x + width - 1) : 0;
+            long dy = py < y ? (long) y - py : py >= y + height ? (long) py - (y + height - 1) : 0;
+
+            return dx * dx + dy * dy;
+        }
+    }
+
+    private static final Comparator<Entry<?>> BY_ORDER = Comparator.comparingLong(entry -> entry.order);
+
+    private final int cellSize;
+    private final HashMap<Long, List<Entry<T>>> cells = new HashMap<>();
+    private final IdentityHashMap<T, Entry<T>> entries = new IdentityHashMap<>();
+    private long nextOrder;
+
+    // bounds of the cells ever occupied, to end the search of nearest elements
+    private int minCellX = Integer.MAX_VALUE;
+    private int minCellY = Integer.MAX_VALUE;
+    private int maxCellX = Integer.MIN_VALUE;
+    private int maxCellY = Integer.MIN_VALUE;
+
+    /**
+     * Create a spatial index with cells of the default size.
+     */
+    public SpatialIndex() {
+        this(CELL_SIZE);
+    }
+
+    /**
+     * Create a spatial index.
+     * @param cellSize side of the cells, ideally close to the size of the elements
+     */
+    public SpatialIndex(int cellSize) {
+        if (cellSize <= 0)
+            throw new IllegalArgumentException("SpatialIndex: cell size must be positive.");
+
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * Add an element with a rectangle, or move it to a new rectangle if already in this index.
+     * Sizes lower than 1 are taken as 1, so that an element without size is a point.
+     * @param element to add or move
+     * @param x coordinate of the left side
+     * @param y coordinate of the top side
+     * @param width of the rectangle
+     * @param height of the rectangle
+     */
+    public void put(T element, int x, int y, int width, int height) {
+        if (element == null)
+            throw new IllegalArgumentException("SpatialIndex.put: element is null.");
+
+        Entry<T> entry = entries.get(element);
+
+        if (entry == null) {
+            entry = new Entry<>(element, nextOrder++);
+            entries.put(element, entry);
+        }
+        else
+            unlist(entry);
+
+        entry.x = x;
+        entry.y = y;
+        entry.width = Math.max(1, width);
+        entry.height = Math.max(1, height);
+
+        for (int cellX = cell(x); cellX <= cell(x + entry.width - 1); cellX++)
+            for (int cellY = cell(y); cellY <= cell(y + entry.height - 1); cellY++) {
+                cells.computeIfAbsent(Position.pack(cellX, cellY), key -> new ArrayList<>(4)).add(entry);
+                minCellX = Math.min(minCellX, cellX);
+                minCellY = Math.min(minCellY, cellY);
+                maxCellX = Math.max(maxCellX, cellX);
+                maxCellY = Math.max(maxCellY, cellY);
+            }
+    }
+
+    /**
+     * Remove an element from this index.
+     * @param element to remove
+     * @return <code>true</code> if it was in this index
+     */
+    public boolean remove(T element) {
+        Entry<T> entry = entries.remove(element);
+
+        if (entry == null)
+            return false;
+
+        unlist(entry);
+
+        return true;
+    }
+
+    /**
+     * Check if an element is in this index.
+     * @param element to check
+     * @return <code>true</code> if it is in this index
+     */
+    public boolean contains(T element) {
+        return entries.containsKey(element);
+    }
+
+    /**
+     * Check if the rectangle of an element intersects a rectangle.
+     * @param element in this index
+     * @param x coordinate of the left side
+     * @param y coordinate of the top side
+     * @param width of the rectangle
+     * @param height of the rectangle
+     * @return <code>true</code> if the element is in this index and its rectangle intersects the given one
+     */
+    public boolean intersects(T element, int x, int y, int width, int height) {
+        Entry<T> entry = entries.get(element);
+
+        return entry != null && entry.intersects(x, y, width, height);
+    }
+
+    /**
+     * Number of elements in this index.
+     * @return number of elements
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Find the elements whose rectangles contain a point.
+     * @param x coordinate of the point
+     * @param y coordinate of the point
+     * @return elements at that point, in the order they were added
+     */
+    public List<T> at(int x, int y) {
+        List<Entry<T>> cell = cells.get(Position.pack(cell(x), cell(y)));
+        List<Entry<T>> found = new ArrayList<>();
+
+        if (cell != null)
+            for (Entry<T> entry : cell)
+                if (entry.contains(x, y))
+                    found.add(entry);
+
+        return elements(found);
+    }
+
+    /**
+     * Find the elements whose rectangles intersect a rectangle.
+     * @param x coordinate of the left side
+     * @param y coordinate of the top side
+     * @param width of the rectangle, positive
+     * @param height of the rectangle, positive
+     * @return elements intersecting the rectangle, in the order they were added
+     */
+    public List<T> intersecting(int x, int y, int width, int height) {
+        List<Entry<T>> found = new ArrayList<>();
+
+        if (width <= 0 || height <= 0)
+            return elements(found);
+
+        int firstCellX = cell(x);
+        int firstCellY = cell(y);
+
+        for (int cellX = firstCellX; cellX <= cell(x + width - 1); cellX++)
+            for (int cellY = firstCellY; cellY <= cell(y + height - 1); cellY++) {
+                List<Entry<T>> cell = cells.get(Position.pack(cellX, cellY));
+
+                if (cell != null)
+                    for (Entry<T> entry : cell)
+                        // an element covering several cells is found only in the first one searched
+                        if (cellX == Math.max(firstCellX, cell(entry.x)) && cellY == Math.max(firstCellY, cell(entry.y))
+                                && entry.intersects(x, y, width, height))
+                            found.add(entry);
+            }
+
+        return elements(found);
+    }
+
+    /**
+     * Find the elements nearest to a point, by the distance from the point to their rectangles.
+     * Cells are searched in rings around the point, until no element in farther rings can be nearer.
+     * @param x coordinate of the point
+     * @param y coordinate of the point
+     * @param count maximum number of elements to find
+     * @return up to count elements, nearest first, ties in the order they were added
+     */
+    public List<T> nearest(int x, int y, int count) {
+        List<Entry<T>> candidates = new ArrayList<>();
+
+        if (count <= 0 || entries.isEmpty())
+            return new ArrayList<>();
+
+        Set<Entry<T>> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        Comparator<Entry<T>> byDistance = Comparator.<Entry<T>>comparingLong(entry -> entry.squaredDistance(x, y))
+                .thenComparing(BY_ORDER);
+        int centerX = cell(x);
+        int centerY = cell(y);
+        int maxRing = Math.max(Math.max(centerX - minCellX, maxCellX - centerX),
+                Math.max(centerY - minCellY, maxCellY - centerY));
+
+        for (int ring = 0; ring <= maxRing; ring++) {
+            for (int cellX = centerX - ring; cellX <= centerX + ring; cellX++)
+                for (int cellY = centerY - ring; cellY <= centerY + ring; cellY++) {
+                    if (Math.abs(cellX - centerX) != ring && Math.abs(cellY - centerY) != ring)
+                        continue; // inner cells were searched in previous rings
+
+                    List<Entry<T>> cell = cells.get(Position.pack(cellX, cellY));
+
+                    if (cell != null)
+                        for (Entry<T> entry : cell)
+                            if (seen.add(entry))
+                                candidates.add(entry);
+                }
+
+            // elements not seen yet only cover cells in farther rings, at least ring * cellSize away
+            if (candidates.size() >= count) {
+                candidates.sort(byDistance);
+
+                long bound = (long) ring * cellSize;
+
+                if (candidates.get(count - 1).squaredDistance(x, y) <= bound * bound)
+                    break;
+            }
+        }
+
+        candidates.sort(byDistance);
+
+        List<T> nearest = new ArrayList<>(Math.min(count, candidates.size()));
+        for (int index = 0; index < count && index < candidates.size(); index++)
+            nearest.add(candidates.get(index).element);
+
+        return nearest;
+    }
+
+    /**
+     * Remove an element from the cells its rectangle covers.
+     * @param entry of the element
+     */
+    private void unlist(Entry<T> entry) {
+        for (int cellX = cell(entry.x); cellX <= cell(entry.x + entry.width - 1); cellX++)
+            for (int cellY = cell(entry.y); cellY <= cell(entry.y + entry.height - 1); cellY++) {
+                long key = Position.pack(cellX, cellY);
+                List<Entry<T>> cell = cells.get(key);
+
+                if (cell != null) {
+                    cell.remove(entry);
+                    if (cell.isEmpty())
+                        cells.remove(key);
+                }
+            }
+    }
+
+    /**
+     * Cell of a coordinate.
+     * @param coordinate x or y
+     * @return cell coordinate, rounding down also for negative coordinates
+     */
+    private int cell(int coordinate) {
+        return Math.floorDiv(coordinate, cellSize);
+    }
+
+    /**
+     * Elements of entries, in the order they were added.
+     * @param found entries
+     * @return elements
+     */
+    private List<T> elements(List<Entry<T>> found) {
+        found.sort(BY_ORDER);
+
+        List<T> elements = new ArrayList<>(found.size());
+        for (Entry<T> entry : found)
+            elements.add(entry.element);
+
+        return elements;
+    }
+}
@@ -1,12 +1,16 @@
 package rea.components;
 
+import java.io.Serializable;
 import java.util.Objects;
 
 /**
  * A visual representation of a game component.
  * It includes an image and the size in pixels to which it should be scaled.
  */
-public class Visual {
+public class Visual
+        implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private String visualPathname;
     private int visualWidth;
@@ -38,6 +42,11 @@ public class Visual {
             return false;
     }
 
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.getPathname(), this.getWidth(), this.getHeight());
+    }
+
     /**
      * The path to image to be displayed. The path is relative to {resources/META-INF/resources} directory.
      * @return path to image
@@ -0,0 +1,281 @@
+package rea.events;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <p>A listener that queues events and delivers them asynchronously to another listener.
+ * Each instance has a bounded queue drained by its own virtual thread, started with {@link #start()}, hence a slow listener
+ * does not stall the thread dispatching the events, nor the other listeners.
+ * When the queue is full, the {@link OverflowPolicy} decides what happens to new events.</p>
+ * <p>If the delegate throws an exception, this listener stops delivering events and
+ * throws an {@link IllegalStateException} on the next event it receives,
+ * so that {@link EventBroadcast} and {@link EventMulticast} remove it as any other failed listener.
+ * Closing it ends the thread, hence listeners of a game that is discarded should be closed.
+ * The queue depth and the lag of delivery are available for monitoring.</p>
+ * implNote - a <b>Decorator</b> of {@link UpdateListener}.
+ * @param <T> the type of the update event.
+ */
+public class AsyncUpdateListener<T extends UpdateEvent>
+        implements UpdateListener<T> {
+
+    /**
+     * Counter used to name the delivery threads.
+     */
+    private static final AtomicLong THREAD_COUNTER = new AtomicLong();
+
+    /**
+     * A queued event with the time it was queued.
+     * @param event queued
+     * @param queuedAt time when it was queued, in nanoseconds
+     */
+    private record Queued<T>(T event, long queuedAt) {
+    }
+
+    private final UpdateListener<T> delegate;
+    private final int capacity;
+    private final OverflowPolicy policy;
+
+    private final ArrayDeque<Queued<T>> queue;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private volatile Thread deliveryThread;
+
+    private volatile boolean closed;
+    private volatile Throwable failure;
+    private volatile long lastDeliveryLagNanos;
+    private final AtomicLong deliveredCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    /**
+     * Create an asynchronous listener delivering to a given listener.
+     * Events are queued but not delivered until {@link #start()}.
+     * @param delegate listener to which events are delivered
+     * @param capacity maximum number of queued events
+     * @param policy when the queue is full
+     */
+    public AsyncUpdateListener(UpdateListener<T> delegate, int capacity, OverflowPolicy policy) {
+        if (delegate == null || policy == null)
+            throw new IllegalArgumentException("AsyncUpdateListener: delegate or policy is null.");
+
+        if (capacity < 1)
+            throw new IllegalArgumentException("AsyncUpdateListener: capacity must be positive.");
+
+        this.delegate = delegate;
+        this.capacity = capacity;
+        this.policy = policy;
+        this.queue = new ArrayDeque<>(Math.min(capacity, 64));
+    }
+
+    /**
+     * Start the thread delivering queued events to the delegate.
+     * It returns the listener itself to allow chaining.
+     * @return the listener itself.
+     */
+    public synchronized AsyncUpdateListener<T> start() {
+        if (deliveryThread != null)
+            throw new IllegalStateException("AsyncUpdateListener.start: already started.");
+
+        deliveryThread = Thread.ofVirtual()
+                .name("rea-listener-" + THREAD_COUNTER.incrementAndGet())
+                .start(this::deliver);
+
+        return this;
+    }
+
+    /**
+     * Queue an event to be delivered to the delegate.
+     * @param updateEvent the update event.
+     * @throws IllegalStateException if this listener was closed or the delegate failed
+     */
+    @Override
+    public void onUpdate(T updateEvent) {
+        if (closed || failure != null)
+            throw new IllegalStateException("AsyncUpdateListener.onUpdate: listener is no longer active.", failure);
+
+        lock.lock();
+        try {
+            switch (policy) {
+                case LATEST_WINS -> {
+                    droppedCount.addAndGet(queue.size());
+                    queue.clear();
+                }
+                case DROP_OLDEST -> {
+                    if (queue.size() >= capacity) {
+                        queue.pollFirst();
+                        droppedCount.incrementAndGet();
+                    }
+                }
+                case BLOCK -> {
+                    while (queue.size() >= capacity && !closed)
+                        notFull.awaitUninterruptibly();
+                }
+            }
+
+            queue.addLast(new Queued<>(updateEvent, System.nanoTime()));
+            notEmpty.signal();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deliver queued events to the delegate until closed or the delegate fails.
+     * Runs in the delivery thread.
+     */
+    private void deliver() {
+        while (true) {
+            Queued<T> next;
+
+            lock.lock();
+            try {
+                while (queue.isEmpty() && !closed)
+                    notEmpty.awaitUninterruptibly();
+
+                if (closed)
+                    return;
+
+                next = queue.pollFirst();
+                notFull.signal();
+            }
+            finally {
+                lock.unlock();
+            }
+
+            lastDeliveryLagNanos = System.nanoTime() - next.queuedAt();
+
+            try {
+                delegate.onUpdate(next.event());
+                deliveredCount.incrementAndGet();
+            }
+            catch (Exception e) {
+                failure = e;
+                close();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Stop delivering events. Queued events are discarded.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            droppedCount.addAndGet(queue.size());
+            queue.clear();
+            notEmpty.signalAll();
+            notFull.signalAll();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The listener to which events are delivered.
+     * @return the delegate listener
+     */
+    public UpdateListener<T> getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Is this listener delivering events? It stops when closed or when the delegate fails.
+     * @return <code>true</code> if active, <code>false</code> otherwise
+     */
+    public boolean isActive() {
+        return !closed && failure == null;
+    }
+
+    /**
+     * The exception raised by the delegate, if any.
+     * @return the failure, or <code>null</code> if the delegate has not failed
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    /**
+     * Number of events waiting to be delivered.
+     * @return queue depth
+     */
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return queue.size();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Time the oldest queued event has been waiting, or 0 if the queue is empty.
+     * @return lag in nanoseconds
+     */
+    public long getLagNanos() {
+        lock.lock();
+        try {
+            Queued<T> oldest = queue.peekFirst();
+
+            return oldest == null ? 0L : System.nanoTime() - oldest.queuedAt();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Time the last delivered event waited in the queue.
+     * @return lag in nanoseconds
+     */
+    public long getLastDeliveryLagNanos() {
+        return lastDeliveryLagNanos;
+    }
+
+    /**
+     * Number of events delivered to the delegate.
+     * @return delivered events
+     */
+    public long getDeliveredCount() {
+        return deliveredCount.get();
+    }
+
+    /**
+     * Number of events discarded, due to the overflow policy or because this listener was closed.
+     * @return dropped events
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Maximum number of queued events.
+     * @return capacity of the queue
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * What happens to new events when the queue is full.
+     * @return overflow policy
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        return policy;
+    }
+
+    /**
+     * The thread delivering events to the delegate.
+     * @return delivery thread, or <code>null</code> if not started
+     */
+    Thread getDeliveryThread() {
+        return deliveryThread;
+    }
+}
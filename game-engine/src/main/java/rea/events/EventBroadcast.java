@@ -1,6 +1,10 @@
 package rea.events;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -9,14 +13,35 @@ import java.util.Set;
  * {@link #removeListener(UpdateListener)} methods.
  * Listeners are automatically removed if they throw an exception.
  * Events are broadcast to all listeners using the {@link #broadcast(T)} method.</p>
+ * <p>In asynchronous mode, set with {@link #setAsynchronous(int, OverflowPolicy)},
+ * each listener added afterwards receives events through its own {@link AsyncUpdateListener},
+ * hence a slow listener does not delay the broadcast.</p>
+ * <p>Listeners can be added and removed concurrently with broadcasts.
+ * Each listener is mapped to the target to which events are delivered, itself or its queue,
+ * in a copy-on-write map, hence each broadcast iterates a stable snapshot without locking,
+ * a listener and its queue are removed together, and listeners that fail are removed after the iteration.</p>
  * @param <T> the type of event that can be listened to.
  */
 public class EventBroadcast<T extends UpdateEvent> {
 
     /**
-     * The listeners registered to receive events.
+     * The listeners registered to receive events, in the order they were added,
+     * each with the target to which events are delivered: the listener itself,
+     * or its queue if it was added in asynchronous mode.
+     * Replaced by a new map on every change, hence never modified while iterated.
      */
-    Set<UpdateListener<UpdateEvent>> listeners = new HashSet<>();
+    volatile Map<UpdateListener<T>, UpdateListener<T>> listeners = Collections.emptyMap();
+
+    /**
+     * Capacity of the queues of listeners added in asynchronous mode.
+     */
+    volatile int queueCapacity;
+
+    /**
+     * Overflow policy of the queues of listeners added in asynchronous mode,
+     * or <code>null</code> in synchronous mode.
+     */
+    volatile OverflowPolicy overflowPolicy;
 
     /**
      * Create an instance of this class. No particular initializations are performed.
@@ -28,44 +53,141 @@ public class EventBroadcast<T extends UpdateEvent> {
      * Add a listener to the list of listeners.
      * @param listener the listener to add.
      */
-    public void addListener(UpdateListener<T> listener) {
-        if (! listeners.contains(listener))
-            listeners.add((UpdateListener<UpdateEvent>) listener);
+    public synchronized void addListener(UpdateListener<T> listener) {
+        if (listeners.containsKey(listener))
+            return;
+
+        OverflowPolicy policy = overflowPolicy;
+        UpdateListener<T> target = policy == null ? listener
+                : new AsyncUpdateListener<>(listener, queueCapacity, policy).start();
+
+        Map<UpdateListener<T>, UpdateListener<T>> changed = new LinkedHashMap<>(listeners);
+        changed.put(listener, target);
+        listeners = Collections.unmodifiableMap(changed);
     }
 
     /**
      * Remove a listener from the list of listeners.
+     * If the listener has a queue, events still queued are discarded.
+     * @param listener the listener to remove.
+     */
+    public synchronized void removeListener(UpdateListener<T> listener) {
+        if (!listeners.containsKey(listener))
+            return;
+
+        Map<UpdateListener<T>, UpdateListener<T>> changed = new LinkedHashMap<>(listeners);
+        close(changed.remove(listener));
+        listeners = Collections.unmodifiableMap(changed);
+    }
+
+    /**
+     * Remove a listener only if it is still delivered to the given target,
+     * i.e. it was not removed and added again meanwhile.
      * @param listener the listener to remove.
+     * @param target to which its events were delivered.
+     */
+    private synchronized void removeListener(UpdateListener<T> listener, UpdateListener<T> target) {
+        if (listeners.get(listener) == target)
+            removeListener(listener);
+    }
+
+    /**
+     * Remove all the listeners, discarding the events still queued and ending the threads of their queues.
+     */
+    public synchronized void removeAllListeners() {
+        Map<UpdateListener<T>, UpdateListener<T>> removed = listeners;
+
+        listeners = Collections.emptyMap();
+
+        for (UpdateListener<T> target : removed.values())
+            close(target);
+    }
+
+    /**
+     * Discard the events queued for a listener that is no longer registered, if it has a queue.
+     * @param target to which the events of the listener were delivered
+     */
+    private void close(UpdateListener<T> target) {
+        if (target instanceof AsyncUpdateListener<T> queue)
+            queue.close();
+    }
+
+    /**
+     * Set asynchronous mode: listeners added afterwards receive events through a queue
+     * drained by a virtual thread. Listeners already registered are not affected.
+     * @param capacity of each listener queue
+     * @param policy when a listener queue is full
+     */
+    public void setAsynchronous(int capacity, OverflowPolicy policy) {
+        if (capacity < 1 || policy == null)
+            throw new IllegalArgumentException("EventBroadcast.setAsynchronous: invalid capacity or policy is null.");
+
+        this.queueCapacity = capacity;
+        this.overflowPolicy = policy;
+    }
+
+    /**
+     * Set synchronous mode: listeners added afterwards receive events in the broadcasting thread.
+     * Listeners already registered are not affected.
      */
-    public void removeListener(UpdateListener<T> listener) {
-        listeners.remove(listener);
+    public void setSynchronous() {
+        this.overflowPolicy = null;
+    }
+
+    /**
+     * Are listeners added in asynchronous mode?
+     * @return <code>true</code> if asynchronous, <code>false</code> otherwise
+     */
+    public boolean isAsynchronous() {
+        return overflowPolicy != null;
+    }
+
+    /**
+     * Get the queue of a listener added in asynchronous mode, with its depth and lag.
+     * @param listener registered
+     * @return queue of the listener, or <code>null</code> if the listener has no queue
+     */
+    public AsyncUpdateListener<T> getQueue(UpdateListener<T> listener) {
+        return listeners.get(listener) instanceof AsyncUpdateListener<T> queue ? queue : null;
     }
 
     /**
      * Get all the currently registered listeners.
      * Listeners are automatically removed if they throw an exception.
      *
-     * @return set of listeners.
+     * @return read-only set of listeners, as registered when this method was called.
      */
-    public Set<UpdateListener<UpdateEvent>> getListeners() {
-        return this.listeners;
+    public Set<UpdateListener<T>> getListeners() {
+        return this.listeners.keySet();
     }
 
     /**
      * Broadcast an event to all listeners.
      * If the events is not handled by a listener, the listener is removed.
+     * implNote - iterates a snapshot of the listeners and their targets; failed listeners are removed after the iteration.
+     * A listener removed during the iteration is still delivered to its closed queue, which rejects the event,
+     * rather than being called in the broadcasting thread.
      * @param event the event to broadcast.
      */
     public void broadcast(T event) {
-        for(UpdateListener updateListener : listeners){
+        List<Map.Entry<UpdateListener<T>, UpdateListener<T>>> failed = null;
+
+        for (Map.Entry<UpdateListener<T>, UpdateListener<T>> entry : listeners.entrySet()) {
             try {
-                updateListener.onUpdate(event);
+                entry.getValue().onUpdate(event);
             }
             catch (Exception e)   // remove listener because it threw an exception
             {
-                removeListener(updateListener);
+                if (failed == null)
+                    failed = new ArrayList<>();
+
+                failed.add(entry);
             }
         }
+
+        if (failed != null)
+            for (Map.Entry<UpdateListener<T>, UpdateListener<T>> entry : failed)
+                removeListener(entry.getKey(), entry.getValue());
     }
 
 }
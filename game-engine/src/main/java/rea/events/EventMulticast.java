@@ -2,9 +2,11 @@ package rea.events;
 
 import rea.components.Character;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * <p>Event multicast to groups of registered listeners.
@@ -15,6 +17,11 @@ import java.util.Set;
  * Events are multicast to listeners using the {@link #multicast(Set, UpdateEvent)} method,
  * specifying a set of players to multicast to.
  * Alternatively, events can be unicast to a single player using the {@link #unicast(Character, T)} method.</p>
+ * <p>In asynchronous mode, set with {@link #setAsynchronous(int, OverflowPolicy)},
+ * listeners added afterwards are wrapped in an {@link AsyncUpdateListener},
+ * hence a slow listener does not delay the multicast to other characters.</p>
+ * <p>Listeners can be added and removed concurrently with multicasts, without locking.
+ * A listener that fails is removed after the multicast, and only if it was not replaced meanwhile.</p>
  * @param <T> the type of event to be notified about.
  */
 public class EventMulticast<T extends UpdateEvent> {
@@ -23,7 +30,18 @@ public class EventMulticast<T extends UpdateEvent> {
      * The listeners registered to receive events.
      * To support multicast, listeners are associated to a character.
      */
-    Map<Character,UpdateListener<T>> listeners = new HashMap<>();
+    Map<Character,UpdateListener<T>> listeners = new ConcurrentHashMap<>();
+
+    /**
+     * Capacity of the queues of listeners added in asynchronous mode.
+     */
+    volatile int queueCapacity;
+
+    /**
+     * Overflow policy of the queues of listeners added in asynchronous mode,
+     * or <code>null</code> in synchronous mode.
+     */
+    volatile OverflowPolicy overflowPolicy;
 
     /**
      * Create an instance of this class.
@@ -51,7 +69,14 @@ public class EventMulticast<T extends UpdateEvent> {
             throw new RuntimeException("EventMulticast.addListener: listener is null");
         }
 
-        listeners.put(character, listener);
+        if (character == null)
+            throw new RuntimeException("EventMulticast.addListener: character is null");
+
+        OverflowPolicy policy = overflowPolicy;
+        if (policy != null && !(listener instanceof AsyncUpdateListener))
+            listener = new AsyncUpdateListener<>(listener, queueCapacity, policy).start();
+
+        close(listeners.put(character, listener));
     }
 
     /**
@@ -59,7 +84,74 @@ public class EventMulticast<T extends UpdateEvent> {
      * @param character to remove listener for
      */
     protected void removeListener(Character character) {
-        listeners.remove(character);
+        if (character != null)
+            close(listeners.remove(character));
+    }
+
+    /**
+     * Remove the listeners of all characters, discarding the events still queued and ending the threads of their queues.
+     */
+    public void removeAllListeners() {
+        for (Character character : listeners.keySet())
+            removeListener(character);
+    }
+
+    /**
+     * Remove the listener of a character only if it is still the given listener.
+     * @param character to remove listener for
+     * @param listener expected to be registered
+     */
+    private void removeListener(Character character, UpdateListener<T> listener) {
+        if (listeners.remove(character, listener))
+            close(listener);
+    }
+
+    /**
+     * Discard the events queued for a listener that is no longer registered, if it has a queue.
+     * @param listener removed or replaced
+     */
+    private void close(UpdateListener<T> listener) {
+        if (listener instanceof AsyncUpdateListener<T> queue)
+            queue.close();
+    }
+
+    /**
+     * Set asynchronous mode: listeners added afterwards receive events through a queue
+     * drained by a virtual thread. Listeners already registered are not affected.
+     * @param capacity of each listener queue
+     * @param policy when a listener queue is full
+     */
+    public void setAsynchronous(int capacity, OverflowPolicy policy) {
+        if (capacity < 1 || policy == null)
+            throw new IllegalArgumentException("EventMulticast.setAsynchronous: invalid capacity or policy is null.");
+
+        this.queueCapacity = capacity;
+        this.overflowPolicy = policy;
+    }
+
+    /**
+     * Set synchronous mode: listeners added afterwards receive events in the multicasting thread.
+     * Listeners already registered are not affected.
+     */
+    public void setSynchronous() {
+        this.overflowPolicy = null;
+    }
+
+    /**
+     * Are listeners added in asynchronous mode?
+     * @return <code>true</code> if asynchronous, <code>false</code> otherwise
+     */
+    public boolean isAsynchronous() {
+        return overflowPolicy != null;
+    }
+
+    /**
+     * Get the queue of the listener of a character, with its depth and lag.
+     * @param character with a registered listener
+     * @return queue of the listener, or <code>null</code> if none or the listener has no queue
+     */
+    public AsyncUpdateListener<T> getQueue(Character character) {
+        return listeners.get(character) instanceof AsyncUpdateListener<T> queue ? queue : null;
     }
 
     /**
@@ -69,16 +161,10 @@ public class EventMulticast<T extends UpdateEvent> {
      * @param event the event to unicast.
      */
     public void unicast(Character character, T event) {
-        if (!listeners.isEmpty() && listeners.containsKey(character)) {
-            UpdateListener<T> uListener = listeners.get(character);
-            try {
-                uListener.onUpdate(event);
-            }
-            catch (Exception e )
-            {
-                listeners.remove(character);
-            }
-        }
+        UpdateListener<T> uListener = character == null ? null : listeners.get(character);
+
+        if (uListener != null && !deliver(uListener, event))
+            removeListener(character, uListener);
     }
 
     /**
@@ -88,16 +174,41 @@ public class EventMulticast<T extends UpdateEvent> {
      * @param event the event to multicast.
      */
     public void multicast(Set<Character> characters, T event) {
+        List<Character> failed = null;
+        List<UpdateListener<T>> failedListeners = null;
+
         for (Character c: characters){
-            if (this.getListeners().containsKey(c)){
-                try{
-                    this.unicast(c, event);
-                }
-                catch(Exception e) {
-                    this.removeListener(c);
+            UpdateListener<T> uListener = c == null ? null : listeners.get(c);
+
+            if (uListener != null && !deliver(uListener, event)) {
+                if (failed == null) {
+                    failed = new ArrayList<>();
+                    failedListeners = new ArrayList<>();
                 }
+                failed.add(c);
+                failedListeners.add(uListener);
             }
         }
+
+        if (failed != null)
+            for (int i = 0; i < failed.size(); i++)
+                removeListener(failed.get(i), failedListeners.get(i));
+    }
+
+    /**
+     * Deliver an event to a listener.
+     * @param uListener to deliver to
+     * @param event to deliver
+     * @return <code>true</code> if delivered, <code>false</code> if the listener threw an exception
+     */
+    private boolean deliver(UpdateListener<T> uListener, T event) {
+        try {
+            uListener.onUpdate(event);
+            return true;
+        }
+        catch (Exception e) {
+            return false;
+        }
     }
 
 }
@@ -5,18 +5,52 @@ import rea.gaming.GameInstance;
 import java.util.List;
 
 /**
- * An event that is sent to the client to update the list of games to play.
+ * <p>An event that is sent to the client to update the list of games to play.</p>
+ * <p>Besides the list of games to play, the event carries the changes in the pool of games
+ * since the previous event: the games added, removed and changed (e.g. players joined, or the game started).
+ * Events are numbered by a version that increases by one with each delta.
+ * A snapshot event, sent to new listeners, lists all the games in the pool as added
+ * and has the version of the last delta, so that deltas can be applied from there on.</p>
  */
 public class GamesUpdateEvent
         implements UpdateEvent {
 
     final private List<GameInstance> gamesToPlay;
+    final private long version;
+    final private boolean snapshot;
+    final private List<GameInstance> added;
+    final private List<GameInstance> removed;
+    final private List<GameInstance> changed;
+
     /**
      * Create a games update event with a list of games to play
      * @param gamesToPlay the list of games to play
      */
     public GamesUpdateEvent(List<GameInstance> gamesToPlay) {
+        this(0L, false, gamesToPlay, List.of(), List.of(), List.of());
+    }
+
+    /**
+     * Create a games update event with a list of games to play and the changes in the pool of games.
+     * @param version of this event
+     * @param snapshot <code>true</code> if the added games are the whole pool, <code>false</code> if a delta
+     * @param gamesToPlay the list of games to play
+     * @param added games added to the pool
+     * @param removed games removed from the pool
+     * @param changed games that changed in the pool
+     */
+    public GamesUpdateEvent(long version,
+                            boolean snapshot,
+                            List<GameInstance> gamesToPlay,
+                            List<GameInstance> added,
+                            List<GameInstance> removed,
+                            List<GameInstance> changed) {
+        this.version = version;
+        this.snapshot = snapshot;
         this.gamesToPlay = gamesToPlay;
+        this.added = added;
+        this.removed = removed;
+        this.changed = changed;
     }
 
     /**
@@ -27,5 +61,44 @@ public class GamesUpdateEvent
         return this.gamesToPlay;
     }
 
+    /**
+     * Version of this event. Deltas have consecutive versions.
+     * @return version of the event
+     */
+    public long getVersion() {
+        return this.version;
+    }
+
+    /**
+     * Is this a snapshot of the whole pool of games, rather than a delta?
+     * @return <code>true</code> if a snapshot, <code>false</code> otherwise
+     */
+    public boolean isSnapshot() {
+        return this.snapshot;
+    }
+
+    /**
+     * Games added to the pool since the previous version.
+     * In a snapshot, all the games in the pool.
+     * @return list of games added
+     */
+    public List<GameInstance> getAdded() {
+        return this.added;
+    }
+
+    /**
+     * Games removed from the pool since the previous version.
+     * @return list of games removed
+     */
+    public List<GameInstance> getRemoved() {
+        return this.removed;
+    }
 
+    /**
+     * Games that changed since the previous version and were neither added nor removed.
+     * @return list of games changed
+     */
+    public List<GameInstance> getChanged() {
+        return this.changed;
+    }
 }
@@ -0,0 +1,23 @@
+package rea.events;
+
+/**
+ * What an {@link AsyncUpdateListener} does with a new event when its queue is full.
+ */
+public enum OverflowPolicy {
+
+    /**
+     * Discard the oldest queued event to make room for the new one.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Keep only the newest event: queued events are discarded whenever a new one arrives.
+     * Suited to events carrying a full state, such as a scene or an inventory.
+     */
+    LATEST_WINS,
+
+    /**
+     * Block the dispatching thread until there is room in the queue.
+     */
+    BLOCK
+}
@@ -0,0 +1,172 @@
+package rea.events;
+
+import rea.components.Place;
+import rea.components.Position;
+import rea.components.Positionable;
+import rea.components.Visual;
+
+import java.util.List;
+
+/**
+ * <p>An event that is sent to the client to update the scene incrementally,
+ * with the positionables added, removed or moved in a place since the previous event.</p>
+ * <p>Events are numbered by a sequence of the place that increases by one with each delta.
+ * A snapshot event, sent when a character enters a place or asks for a resync,
+ * lists all the positionables in the place as added and has the current sequence of the place,
+ * so that deltas can be applied from there on. A client that detects a gap in the sequence,
+ * or a delta of another place, should ask for a resync.</p>
+ * <p>The positions of the added and moved positionables are copied when the event is created,
+ * since they may move again before a listener reads the event.</p>
+ */
+public class SceneDeltaEvent
+        implements UpdateEvent {
+
+    final private Place place;
+    final private long sequence;
+    final private boolean snapshot;
+    final private List<Positionable> added;
+    final private long[] addedPositions;
+    final private List<Positionable> removed;
+    final private List<Positionable> moved;
+    final private long[] movedPositions;
+
+    /**
+     * Create a scene delta event, copying the current positions of the added and moved positionables.
+     * @param place where the scene changed
+     * @param sequence of the place after these changes
+     * @param snapshot <code>true</code> if the added positionables are the whole place, <code>false</code> if a delta
+     * @param added positionables added to the place
+     * @param removed positionables removed from the place
+     * @param moved positionables moved in the place
+     */
+    public SceneDeltaEvent(Place place,
+                           long sequence,
+                           boolean snapshot,
+                           List<Positionable> added,
+                           List<Positionable> removed,
+                           List<Positionable> moved) {
+        this(place, sequence, snapshot, added, packedPositions(added), removed, moved);
+    }
+
+    /**
+     * Create a scene delta event with the positions of the added positionables already copied,
+     * as from {@link Place#getPackedPositions()} for a snapshot.
+     * @param place where the scene changed
+     * @param sequence of the place after these changes
+     * @param snapshot <code>true</code> if the added positionables are the whole place, <code>false</code> if a delta
+     * @param added positionables added to the place
+     * @param addedPositions packed positions of the added positionables, in the same order
+     * @param removed positionables removed from the place
+     * @param moved positionables moved in the place
+     */
+    public SceneDeltaEvent(Place place,
+                           long sequence,
+                           boolean snapshot,
+                           List<Positionable> added,
+                           long[] addedPositions,
+                           List<Positionable> removed,
+                           List<Positionable> moved) {
+        if (addedPositions.length != added.size())
+            throw new IllegalArgumentException("SceneDeltaEvent: positions do not match the added positionables.");
+
+        this.place = place;
+        this.sequence = sequence;
+        this.snapshot = snapshot;
+        this.added = added;
+        this.addedPositions = addedPositions;
+        this.removed = removed;
+        this.moved = moved;
+        this.movedPositions = packedPositions(moved);
+    }
+
+    /**
+     * Copy the current positions of positionables.
+     * @param positionables whose positions are copied
+     * @return packed positions, in the same order
+     */
+    private static long[] packedPositions(List<Positionable> positionables) {
+        long[] positions = new long[positionables.size()];
+        int index = 0;
+
+        for (Positionable positionable : positionables)
+            positions[index++] = positionable.getPackedPosition();
+
+        return positions;
+    }
+
+    /**
+     * The place where the scene changed.
+     * @return place of the scene
+     */
+    public Place getPlace() {
+        return this.place;
+    }
+
+    /**
+     * The background of the scene.
+     * @return background visual of the place
+     */
+    public Visual getBackground() {
+        return this.place.getVisual();
+    }
+
+    /**
+     * Sequence of the place after these changes. Deltas of the same place have consecutive sequences.
+     * @return sequence of the event
+     */
+    public long getSequence() {
+        return this.sequence;
+    }
+
+    /**
+     * Is this a snapshot of the whole place, rather than a delta?
+     * @return <code>true</code> if a snapshot, <code>false</code> otherwise
+     */
+    public boolean isSnapshot() {
+        return this.snapshot;
+    }
+
+    /**
+     * Positionables added to the place. In a snapshot, all the positionables in the place.
+     * @return list of positionables added
+     */
+    public List<Positionable> getAdded() {
+        return this.added;
+    }
+
+    /**
+     * Additional method.
+     * Position of an added positionable when this event was created.
+     * @param index of the positionable in {@link #getAdded()}
+     * @return position of the positionable
+     */
+    public Position getAddedPosition(int index) {
+        return Position.unpack(this.addedPositions[index]);
+    }
+
+    /**
+     * Positionables removed from the place.
+     * @return list of positionables removed
+     */
+    public List<Positionable> getRemoved() {
+        return this.removed;
+    }
+
+    /**
+     * Positionables moved to another position in the place.
+     * @return list of positionables moved
+     */
+    public List<Positionable> getMoved() {
+        return this.moved;
+    }
+
+    /**
+     * Additional method.
+     * Position of a moved positionable when this event was created.
+     * @param index of the positionable in {@link #getMoved()}
+     * @return position of the positionable
+     */
+    public Position getMovedPosition(int index) {
+        return Position.unpack(this.movedPositions[index]);
+    }
+}
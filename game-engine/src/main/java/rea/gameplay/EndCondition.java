@@ -0,0 +1,68 @@
+package rea.gameplay;
+
+import rea.components.GameMap;
+import rea.components.Positionable;
+
+/**
+ * <p>Condition in which a game instance ends, checked by the engine after each command.
+ * Conditions are created for the map of each game instance by {@link Gameplay#makeEndCondition(GameMap)},
+ * and should be maintained incrementally, so that checking them takes constant time.
+ * The factory methods of this interface create conditions on {@link PositionableCounter}s
+ * that are updated as positionables enter or leave the map.</p>
+ * implNote - conditions are combined as a <b>Composite</b>.
+ */
+@FunctionalInterface
+public interface EndCondition {
+
+    /**
+     * Is the condition met?
+     * @return <code>true</code> if the game should end, <code>false</code> otherwise
+     */
+    boolean isMet();
+
+    /**
+     * Condition met when this condition and another are both met.
+     * @param other condition
+     * @return combined condition
+     */
+    default EndCondition and(EndCondition other) {
+        return () -> this.isMet() && other.isMet();
+    }
+
+    /**
+     * Condition met when this condition or another is met.
+     * @param other condition
+     * @return combined condition
+     */
+    default EndCondition or(EndCondition other) {
+        return () -> this.isMet() || other.isMet();
+    }
+
+    /**
+     * Condition met when there are no positionables of a type whose description contains a text in the map.
+     * For instance, when all eggs were collected.
+     * @param gameMap of the game instance
+     * @param type of positionables
+     * @param text in the description, ignoring case
+     * @return condition on the map
+     */
+    static EndCondition none(GameMap gameMap, Class<? extends Positionable> type, String text) {
+        PositionableCounter counter = PositionableCounter.attach(gameMap, type, text);
+
+        return () -> counter.getCount() == 0;
+    }
+
+    /**
+     * Condition met when there is some positionable of a type whose description contains a text in the map.
+     * For instance, when a door was opened into a passage.
+     * @param gameMap of the game instance
+     * @param type of positionables
+     * @param text in the description, ignoring case
+     * @return condition on the map
+     */
+    static EndCondition some(GameMap gameMap, Class<? extends Positionable> type, String text) {
+        PositionableCounter counter = PositionableCounter.attach(gameMap, type, text);
+
+        return () -> counter.getCount() > 0;
+    }
+}
@@ -0,0 +1,70 @@
+package rea.gameplay;
+
+import rea.components.GameMap;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>Templates of the game maps of gameplays, so that creating a game instance does not rebuild its map.
+ * The map of a gameplay is built once, as a template that is never played on,
+ * and each game instance gets a {@link GameMap#copy()} of it.</p>
+ * <p>Gameplays that redefine {@link Gameplay#makeGameMap(java.util.Random)} make random choices,
+ * hence their maps depend on the seed of each instance and are built for each one.</p>
+ * <p>Templates are kept by gameplay class, since gameplays keep no state of their own
+ * and are instantiated again each time a {@link GameplayFactory} collects them,
+ * and are discarded by {@link GameplayFactory#refresh()}.</p>
+ * implNote - follows the <b>Prototype</b> design pattern.
+ */
+public final class GameMapTemplates {
+
+    /**
+     * Template of each gameplay class, empty for gameplays whose maps depend on the random source.
+     */
+    private static final Map<Class<? extends Gameplay>, Optional<GameMap>> TEMPLATES = new ConcurrentHashMap<>();
+
+    private GameMapTemplates() {
+    }
+
+    /**
+     * Make a map for a game instance, copying the template of the gameplay
+     * or, if its maps depend on the random source, building a new one.
+     * @param gameplay of the game instance
+     * @param random source of the random choices, provided by the game instance
+     * @return map for the game instance
+     */
+    public static GameMap makeGameMap(Gameplay gameplay, Random random) {
+        if (gameplay == null)
+            throw new IllegalArgumentException("GameMapTemplates.makeGameMap: gameplay is null.");
+
+        Optional<GameMap> template = TEMPLATES.computeIfAbsent(gameplay.getClass(),
+                type -> hasRandomMap(type) ? Optional.empty() : Optional.of(gameplay.makeGameMap()));
+
+        return template.isPresent() ? template.get().copy() : gameplay.makeGameMap(random);
+    }
+
+    /**
+     * Discard all templates, for instance after gameplays are collected again,
+     * so that the classes of gameplays no longer deployed are not kept.
+     */
+    public static void clear() {
+        TEMPLATES.clear();
+    }
+
+    /**
+     * Does a gameplay class make random choices when building its map,
+     * i.e. does it redefine {@link Gameplay#makeGameMap(Random)}?
+     * @param type of gameplay to check
+     * @return <code>true</code> if its maps depend on the random source
+     */
+    private static boolean hasRandomMap(Class<? extends Gameplay> type) {
+        try {
+            return type.getMethod("makeGameMap", Random.class).getDeclaringClass() != Gameplay.class;
+        }
+        catch (NoSuchMethodException e) {
+            return true;
+        }
+    }
+}
@@ -2,7 +2,11 @@ package rea.gameplay;
 
 import rea.components.Avatar;
 import rea.components.GameMap;
+import rea.gaming.Action;
+import rea.gaming.CommandHandler;
 
+import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 
 /**
@@ -10,6 +14,9 @@ import java.util.Set;
  * That is, the distinctive features of each game, such as its name,
  * its game map with places and items, the number of characters,
  * the condition in which it is completed.</p>
+ * <p>A gameplay is created once by the {@link GameplayFactory} and shared by all instances of the game,
+ * hence it must not keep state of a particular game instance.
+ * Gameplays can be registered in <code>META-INF/services/rea.gameplay.Gameplay</code>.</p>
  * implNote - an abstract participant of the <b>Factory method</b> design pattern.
  */
 public interface Gameplay {
@@ -34,10 +41,26 @@ public interface Gameplay {
      * The place can (and should) be connected to other places.
      * Each invocation of this method must return a new instance,
      * although with a similar structure.
+     * Gameplays with random choices should also redefine {@link #makeGameMap(Random)};
+     * otherwise this method is invoked once, to build a template that is copied for each game instance
+     * (see {@link GameMapTemplates}), hence it should only build the map, with no other side effects.
      * @return the place where the game starts
      */
     GameMap makeGameMap();
 
+    /**
+     * Produce a map for a game instance, making any random choice (e.g. the position of items)
+     * with the given random source, provided by the game instance from its seed.
+     * Maps produced with random sources created with the same seed must be identical,
+     * so that game instances can be replayed and their maps reproduced.
+     * By default, gameplays have no random choices and produce the map of {@link #makeGameMap()}.
+     * @param random source of the random choices
+     * @return the place where the game starts
+     */
+    default GameMap makeGameMap(Random random) {
+        return makeGameMap();
+    }
+
     /**
      * The set of avatars that can be used in this game.
      * @return the set of avatars
@@ -53,6 +76,18 @@ public interface Gameplay {
      */
     boolean gamedEnded(GameMap gameMap);
 
+    /**
+     * Create the end condition for the map of a game instance, checked by the engine after each command.
+     * Gameplays should declare conditions that are maintained incrementally as the map changes,
+     * such as those created by {@link EndCondition#none(GameMap, Class, String)}.
+     * By default, the condition checks {@link #gamedEnded(GameMap)}, that may cost as much as the size of the map.
+     * @param gameMap for this game instance
+     * @return end condition for the game instance
+     */
+    default EndCondition makeEndCondition(GameMap gameMap) {
+        return () -> gamedEnded(gameMap);
+    }
+
     /**
      * Maximum number of players accepted in this game
      * @return maximum number of players
@@ -64,4 +99,14 @@ public interface Gameplay {
      * @return minimum number of players
      */
     int getMinPlayers();
+
+    /**
+     * Command handlers specific to this gameplay.
+     * They replace the default handlers of the game instance for the same actions.
+     * By default, a gameplay uses the default handlers.
+     * @return map of handlers indexed by action
+     */
+    default Map<Action, CommandHandler> getCommandHandlers() {
+        return Map.of();
+    }
 }
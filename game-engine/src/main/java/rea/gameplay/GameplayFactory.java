@@ -2,12 +2,19 @@ package rea.gameplay;
 
 import rea.ReaException;
 
+import java.net.JarURLConnection;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
 import java.util.stream.Stream;
 
 /**
@@ -17,6 +24,11 @@ import java.util.stream.Stream;
  * The available games are collected from a package, either {@link #GAMEPLAY_PACKAGE}
  * if the default constructor is used, or package name passed as parameter
  * to the constructor.</p>
+ * <p>Gameplays are collected once, when the factory is created, and then served from an immutable map,
+ * hence gameplays are shared by all game instances and must not keep state of a game.
+ * They are collected from <code>META-INF/services/rea.gameplay.Gameplay</code> entries of {@link ServiceLoader},
+ * and from the classes in the package, either in a directory or in a jar (as in a packaged application).
+ * Use {@link #refresh()} to collect them again.</p>
  * implNote - a concrete participant of the <b>Factory method</b> design pattern.
  */
 public class GameplayFactory
@@ -36,7 +48,12 @@ public class GameplayFactory
      */
     static final String GAMEPLAY_PACKAGE = "rea.gameplay.games";
 
-    private String gameplayPackage;
+    private final String gameplayPackage;
+
+    /**
+     * The gameplays collected, indexed by name.
+     */
+    private volatile Map<String, Gameplay> gameplays;
 
     /**
      * Create a factory for gameplays.
@@ -45,12 +62,7 @@ public class GameplayFactory
      */
     public GameplayFactory()
             throws ReaException {
-        try {
-            this.gameplayPackage = GAMEPLAY_PACKAGE;
-        }
-        catch (Exception e){
-            throw new ReaException(e.getMessage());
-        }
+        this(GAMEPLAY_PACKAGE);
     }
 
     /**
@@ -61,12 +73,24 @@ public class GameplayFactory
      */
     public GameplayFactory(String gameplayPackage)
             throws ReaException {
-        try {
-            this.gameplayPackage = gameplayPackage;
-        }
-        catch (Exception e){
-            throw new ReaException(e.getMessage());
-        }
+        if (gameplayPackage == null)
+            throw new ReaException("GameplayFactory: package is null.");
+
+        this.gameplayPackage = gameplayPackage;
+        // collected directly rather than with refresh(), which subclasses may override
+        this.gameplays = Map.copyOf(this.collectGameplay(gameplayPackage));
+    }
+
+    /**
+     * Collect the gameplays again, for instance after new gameplays were deployed.
+     * Until it completes, the gameplays previously collected are still served.
+     * The templates of their game maps are then discarded, see {@link GameMapTemplates}.
+     * @throws ReaException if no gameplays can be collected from the package.
+     */
+    public void refresh()
+            throws ReaException {
+        this.gameplays = Map.copyOf(this.collectGameplay(this.gameplayPackage));
+        GameMapTemplates.clear();
     }
 
     /**
@@ -75,13 +99,7 @@ public class GameplayFactory
      * @return the available games as a set.
      */
     public Set<String> getAvailableGameplays() {
-        try {
-            Map<String,Gameplay> gameplayMap = this.collectGameplayInPackage(this.gameplayPackage);
-            return gameplayMap.keySet();
-        }
-        catch (ReaException e) {
-            return  null;
-        }
+        return this.gameplays.keySet();
     }
 
     /**
@@ -91,14 +109,7 @@ public class GameplayFactory
      * @return the gameplay for the given game, or <code>null</code> if the game does not exist.
      */
     public Gameplay getGameplay(String name) {
-        try {
-            Map<String,Gameplay> gameplayMap = this.collectGameplayInPackage(this.gameplayPackage);
-            return gameplayMap.get(name);
-        }
-        catch (ReaException e) {
-            throw new RuntimeException(e);
-        }
-
+        return name == null ? null : this.gameplays.get(name);
     }
 
     /**
@@ -109,7 +120,7 @@ public class GameplayFactory
      * @param className the name of the class to get an instance of.
      * @return an instance of the class or <code>null</code>.
      */
-    Gameplay getGameplayInstance(String className) {
+    final Gameplay getGameplayInstance(String className) {
         try {
             var clazz = LOADER.loadClass(className);
             return (Gameplay) clazz.getDeclaredConstructor().newInstance();
@@ -119,16 +130,64 @@ public class GameplayFactory
         }
     }
 
+    /**
+     * <p>Collect the gameplays of a package, registered with {@link ServiceLoader} or found in the package.
+     * Gameplays registered with {@link ServiceLoader} take precedence over those with the same name in the package.</p>
+     * @param gameplayPackage with the gameplay to collect.
+     * @return a map with the gameplay, indexed by their name.
+     * @throws ReaException if no gameplays were registered and the package cannot be read.
+     */
+    final Map<String,Gameplay> collectGameplay(String gameplayPackage)
+            throws ReaException {
+        Map<String, Gameplay> collected = this.collectRegisteredGameplay(gameplayPackage);
+
+        try {
+            this.collectGameplayInPackage(gameplayPackage).forEach(collected::putIfAbsent);
+        }
+        catch (ReaException e) {
+            if (collected.isEmpty())
+                throw e;
+        }
+
+        return collected;
+    }
+
+    /**
+     * Collect the gameplays of a package registered as {@link ServiceLoader} providers.
+     * Providers that cannot be instanced are ignored.
+     * @param gameplayPackage with the gameplay to collect.
+     * @return a map with the gameplay, indexed by their name.
+     */
+    final Map<String,Gameplay> collectRegisteredGameplay(String gameplayPackage) {
+        Map<String, Gameplay> registered = new HashMap<>();
+
+        for (ServiceLoader.Provider<Gameplay> provider : ServiceLoader.load(Gameplay.class, LOADER).stream().toList()) {
+            if (!provider.type().getPackageName().equals(gameplayPackage))
+                continue;
+
+            try {
+                Gameplay g = provider.get();
+                registered.put(g.getName(), g);
+            }
+            catch (ServiceConfigurationError e) {
+                // ignored, as classes without a default constructor in the package
+            }
+        }
+
+        return registered;
+    }
+
     /**
      * <p>Collect all gameplay in a package.
      * All classes in the package implementing {@link Gameplay} are instanced and returned as a <code>Map</code>.
-     * The map uses the gameplay's name as the key Gameplay.getName() and an instance of the gameplay as the value.</p>
+     * The map uses the gameplay's name as the key Gameplay.getName() and an instance of the gameplay as the value.
+     * The package may be a directory or an entry of a jar file.</p>
      * implNote - use streams to collect the gameplay
      * @param gameplayPackage with the gameplay to collect.
      * @return a map with the gameplay, indexed by their name.
      * @throws ReaException if the package does not exist, or IO exception related to the package directory was raised.
      */
-    Map<String,Gameplay> collectGameplayInPackage(String gameplayPackage)
+    final Map<String,Gameplay> collectGameplayInPackage(String gameplayPackage)
             throws ReaException {
         Map<String, Gameplay> gameplayInPackage = new HashMap<>();
 
@@ -137,10 +196,11 @@ public class GameplayFactory
 
             URL resource = LOADER.getResource(packagePath);
 
-            Stream<Path> f = Files.list(Path.of(resource.toURI()));
+            if (resource == null)
+                throw new ReaException("GameplayFactory.collectGameplayInPackage: package not found " + gameplayPackage);
 
-            for (Path p : f.toList()){
-                String className = p.getFileName().toString().replace(".class", "");
+            for (String fileName : listClassFiles(resource)){
+                String className = fileName.replace(".class", "");
                 String binaryName = gameplayPackage + "." + className;
 
                 // IntelliJ gets the test classes, this removes the test classes.
@@ -154,12 +214,50 @@ public class GameplayFactory
             }
             return gameplayInPackage;
         }
+        catch (ReaException e){
+            throw e;
+        }
         catch (Exception e){
             throw new ReaException(e.getMessage());
         }
 
     }
 
+    /**
+     * List the names of the class files directly in a package, given its resource URL.
+     * @param resource URL of the package, either a directory or an entry in a jar file
+     * @return names of the class files, without the package path
+     * @throws Exception if the package cannot be read
+     */
+    private static Set<String> listClassFiles(URL resource)
+            throws Exception {
+        if (resource.openConnection() instanceof JarURLConnection connection) {
+            String prefix = connection.getEntryName() + "/";
+            Set<String> fileNames = new TreeSet<>();
+
+            connection.setUseCaches(false);
+            try (JarFile jar = connection.getJarFile()) {
+                Enumeration<JarEntry> entries = jar.entries();
+
+                while (entries.hasMoreElements()) {
+                    String name = entries.nextElement().getName();
+                    String fileName = name.startsWith(prefix) ? name.substring(prefix.length()) : "";
+
+                    if (fileName.endsWith(".class") && !fileName.contains("/"))
+                        fileNames.add(fileName);
+                }
+            }
+
+            return fileNames;
+        }
+
+        try (Stream<Path> files = Files.list(Path.of(resource.toURI()))) {
+            return new TreeSet<>(files.map(path -> path.getFileName().toString())
+                    .filter(fileName -> fileName.endsWith(".class"))
+                    .toList());
+        }
+    }
+
     private String cleanTestFromString (String s){
         String resultString;
 
@@ -182,7 +280,7 @@ public class GameplayFactory
      * @return the class name.
      * @see rea.gameplay
      */
-    String getClassName(Path path){
+    final String getClassName(Path path){
         String start = "rea.gameplay.";
         String fileName = path.getFileName().toString().replace(".class","");
 
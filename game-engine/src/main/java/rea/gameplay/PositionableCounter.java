@@ -0,0 +1,85 @@
+package rea.gameplay;
+
+import rea.components.GameMap;
+import rea.components.MapChangeListener;
+import rea.components.Positionable;
+
+/**
+ * <p>Counter of the positionables of a given type in a game map whose description contains a given text,
+ * ignoring case. The count is updated as positionables enter or leave the map,
+ * hence reading it takes constant time. Descriptions are not expected to change while in the map.</p>
+ * @see EndCondition
+ */
+public class PositionableCounter
+        implements MapChangeListener {
+
+    private final Class<? extends Positionable> type;
+    private final String text;
+    private int count;
+
+    /**
+     * Create a counter, not yet attached to a game map.
+     * @param type of positionables to count
+     * @param text that the description must contain, in lower case, or <code>null</code> to count all of the type
+     */
+    private PositionableCounter(Class<? extends Positionable> type, String text) {
+        this.type = type;
+        this.text = text;
+    }
+
+    /**
+     * Create a counter and attach it to a game map, counting the positionables already in it.
+     * The counter is registered as listener of the map only once fully constructed.
+     * @param gameMap where positionables are counted
+     * @param type of positionables to count, for instance {@link rea.components.Item}
+     * @param text that the description must contain, or <code>null</code> to count all of the type
+     * @return the counter attached to the map
+     */
+    public static PositionableCounter attach(GameMap gameMap, Class<? extends Positionable> type, String text) {
+        if (gameMap == null || type == null)
+            throw new IllegalArgumentException("PositionableCounter.attach: game map or type is null.");
+
+        PositionableCounter counter = new PositionableCounter(type, text == null ? null : text.toLowerCase());
+
+        gameMap.addChangeListener(counter);
+
+        return counter;
+    }
+
+    /**
+     * Is this positionable counted?
+     * @param positionable to check
+     * @return <code>true</code> if it has the type and its description contains the text
+     */
+    private boolean matches(Positionable positionable) {
+        if (!type.isInstance(positionable))
+            return false;
+
+        if (text == null)
+            return true;
+
+        String description = positionable.getDescription();
+
+        return description != null && description.toLowerCase().contains(text);
+    }
+
+    @Override
+    public void positionableAdded(Positionable positionable) {
+        if (matches(positionable))
+            count++;
+    }
+
+    @Override
+    public void positionableRemoved(Positionable positionable) {
+        if (matches(positionable))
+            count--;
+    }
+
+    /**
+     * Number of matching positionables in the map.
+     * @return current count
+     */
+    public int getCount() {
+        return count;
+    }
+}
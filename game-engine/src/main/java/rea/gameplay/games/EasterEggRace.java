@@ -1,6 +1,7 @@
 package rea.gameplay.games;
 
 import rea.components.*;
+import rea.gameplay.EndCondition;
 import rea.gameplay.Gameplay;
 
 import java.util.*;
@@ -72,6 +73,16 @@ public class EasterEggRace
 
 
     public GameMap makeGameMap() {
+        return makeGameMap(new Random());
+    }
+
+    /**
+     * Make the lawn with the eggs in positions chosen by the given random source.
+     * @param random source of the positions of the eggs
+     * @return game map with the lawn
+     */
+    @Override
+    public GameMap makeGameMap(Random random) {
 
         Position position = new Position(0,0);
         Place startPlace = new Place(LAWN_VISUAL, "lawn", position); // entrada em Null na posicao.
@@ -80,20 +91,15 @@ public class EasterEggRace
         int i=0;
         for (Visual easterEggVisual : EGG_VISUAL){
             easterEggs.add(new Item(easterEggVisual, "egg " + (++i)));
-            Random random = new Random();
 
-            Position eggPosition = new Position(0,0);
-            eggPosition.setX(random.nextInt(EGG_WIDTH));
-            eggPosition.setY(random.nextInt(EGG_HEIGHT));
+            int eggX = random.nextInt(EGG_WIDTH);
+            int eggY = random.nextInt(EGG_HEIGHT);
+            Position eggPosition = new Position(eggX, eggY);
 
             startPlace.addGameComponent(easterEggs.peek(), eggPosition);
         }
 
-        GameMap gameMap = new GameMap(startPlace);
-
-        gameMap.visitMap(new SimpleVisitor());
-
-        return gameMap;
+        return new GameMap(startPlace);
     }
 
     /**
@@ -120,6 +126,16 @@ public class EasterEggRace
         return 1;
     }
 
+    /**
+     * Game ends when there are no more eggs to collect
+     * @param gameMap for this game instance
+     * @return end condition maintained as the map changes
+     */
+    @Override
+    public EndCondition makeEndCondition(GameMap gameMap) {
+        return EndCondition.none(gameMap, Item.class, "egg");
+    }
+
     /**
      * Game ends when there are no more eggs to collect
      * @param gameMap for this game instance
@@ -26,19 +26,19 @@ public class SimpleVisitor
     /**
      * Set of characters
      */
-    protected static Set<Character> characters = null;
+    protected Set<Character> characters = null;
     /**
      * Set of places
      */
-    protected static Set<Place> places = null;
+    protected Set<Place> places = null;
     /**
      * Set of items
      */
-    protected static Set<Item> items = null;
+    protected Set<Item> items = null;
     /**
      * Set of passages
      */
-    protected static Set<Passage> passages = null;
+    protected Set<Passage> passages = null;
 
     /**
      * Create an instance of this class. No particular initializations are performed.
@@ -1,6 +1,7 @@
 package rea.gameplay.games;
 
 import rea.components.*;
+import rea.gameplay.EndCondition;
 import rea.gameplay.Gameplay;
 
 import java.util.EnumSet;
@@ -107,15 +108,11 @@ public class TreasureHunt
      */
     static final Visual HOUSE_OPEN_DOOR_VISUAL = new Visual (HOUSE_CLOSE_OPEN_IMAGE, HOUSE_WIDTH, HOUSE_HEIGHT);
 
-    private GameMap gameMap;
-    SimpleVisitor v;
-
     /**
-     * Create a new instance of the game
+     * Create a new instance of the game.
+     * The instance keeps no state of a game, hence it can be shared by game instances.
      */
     public TreasureHunt() {
-        gameMap = null;
-        v = new SimpleVisitor();
     }
 
     public String getName() {
@@ -153,12 +150,10 @@ public class TreasureHunt
         treasure.setPickable(true);
         insideHouse.addGameComponent(treasure, new Position(0, 0));
 
-        gameMap = new GameMap(startPlace);
+        GameMap gameMap = new GameMap(startPlace);
 
         gameMap.defineChange(closedDoor, key, openDoor);
 
-        gameMap.visitMap(v);
-
         return gameMap;
     }
 
@@ -187,6 +182,18 @@ public class TreasureHunt
         return 1;
     }
 
+    /**
+     * Game ends when there is a passage (house with open door)
+     * and there are no treasures left in the map.
+     * @param gameMap for this game instance
+     * @return end condition maintained as the map changes
+     */
+    @Override
+    public EndCondition makeEndCondition(GameMap gameMap) {
+        return EndCondition.some(gameMap, Passage.class, "open door")
+                .and(EndCondition.none(gameMap, Item.class, "treasure"));
+    }
+
     /**
      * Game ends when there is a passage (house with open door)
      * and there are no items left (treasure was collected).
@@ -201,6 +208,7 @@ public class TreasureHunt
         boolean treasureCollected;
         boolean thereIsPassage;
 
+        SimpleVisitor v = new SimpleVisitor();
         gameMap.visitMap(v);
 
         // Checks if are there any "treasure" Item
@@ -0,0 +1,23 @@
+package rea.gaming;
+
+import rea.components.Character;
+
+/**
+ * <p>Handler of an {@link Action} executed in a {@link GameInstance}.
+ * Each game instance keeps a table with a handler for each action, built once
+ * from the defaults of {@link GameInstance} and from the handlers supplied by the gameplay.
+ * Handlers can also be registered with {@link GameInstance#setCommandHandler(Action, CommandHandler)}.</p>
+ * implNote - a <b>Command</b> in the <b>Command</b> design pattern.
+ */
+@FunctionalInterface
+public interface CommandHandler {
+
+    /**
+     * Execute an action of a character on an object.
+     * @param gameInstance where the action is executed
+     * @param character executing the action
+     * @param object of the action (e.g. a {@link rea.components.Position} to move to)
+     * @return <code>null</code> if successful, otherwise an error message
+     */
+    String execute(GameInstance gameInstance, Character character, Object object);
+}
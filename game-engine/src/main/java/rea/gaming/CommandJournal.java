@@ -0,0 +1,622 @@
+package rea.gaming;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * <p>Append-only journal of a game instance, with a {@link JournalRecord} for each accepted change:
+ * players added, game started or ended, and commands executed.
+ * The first record is a header with the gameplay name and the seed of the game map,
+ * hence a game instance can be rebuilt by replaying the journal, see {@link JournalReplay}.</p>
+ * <p>Each record is framed by its length and a CRC32 checksum, so that a record torn by a crash
+ * is detected and discarded when reading. Appending a record only queues it:
+ * a virtual thread writes the queued records as a group and forces them to disk once per group,
+ * hence writes do not delay commands, and records appended while a group is forced go in the next one.
+ * Use {@link #sync()} to wait until the records appended so far are on disk.</p>
+ * <p>Every {@link #getSnapshotInterval()} records, the game instance saves a snapshot of its state,
+ * written next to the journal with the position of the journal it covers,
+ * so that recovery only replays the records after the last snapshot.</p>
+ * implNote - <b>Group commit</b>, with a writer thread started on demand as in {@link CommandMailbox}.
+ */
+public class CommandJournal
+        implements Closeable {
+
+    /**
+     * Suffix of journal files.
+     */
+    public static final String JOURNAL_SUFFIX = ".journal";
+
+    /**
+     * Suffix of snapshot files, which have the same name as the journal they refer to.
+     */
+    public static final String SNAPSHOT_SUFFIX = ".snapshot";
+
+    /**
+     * Suffix appended to the files of a journal that cannot be recovered, so that it is no longer listed.
+     */
+    public static final String QUARANTINE_SUFFIX = ".rejected";
+
+    /**
+     * Maximum number of records written before forcing them to disk.
+     */
+    private static final int MAX_GROUP_SIZE = 1024;
+
+    /**
+     * Bytes before the payload of a record: length and checksum.
+     */
+    private static final int FRAME_HEADER_SIZE = 8;
+
+    /**
+     * Work queued for the writer thread.
+     */
+    private sealed interface Pending {}
+    private record Append(byte[] frame) implements Pending {}
+    private record Snapshot(long sequence, byte[] state) implements Pending {}
+    private record Sync(CompletableFuture<Void> future) implements Pending {}
+
+    /**
+     * A snapshot read from disk.
+     * @param journalPosition position in the journal after the last record covered by the snapshot
+     * @param sequence of the last record covered by the snapshot
+     * @param state serialized state of the game instance
+     */
+    record SnapshotFile(long journalPosition, long sequence, byte[] state) {}
+
+    /**
+     * Records read from a journal.
+     * @param records valid records, in order
+     * @param validLength position in the journal after the last valid record
+     */
+    record Contents(List<JournalRecord> records, long validLength) {}
+
+    private final Path journalPath;
+    private final Path snapshotPath;
+    private final FileChannel channel;
+    private final int snapshotInterval;
+
+    private final Queue<Pending> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean writing = new AtomicBoolean();
+    private final AtomicLong writtenCount = new AtomicLong();
+    private final AtomicLong groupCount = new AtomicLong();
+
+    private long nextSequence;
+    private long sinceSnapshot;
+    private volatile boolean closed;
+    private volatile IOException failure;
+
+    /**
+     * Create a journal writing at the end of a file.
+     * @param journalPath path of the journal
+     * @param channel open for writing at the end of the valid records
+     * @param nextSequence sequence of the next record
+     * @param sinceSnapshot records appended since the last snapshot
+     * @param snapshotInterval records between snapshots
+     */
+    private CommandJournal(Path journalPath,
+                           FileChannel channel,
+                           long nextSequence,
+                           long sinceSnapshot,
+                           int snapshotInterval) {
+        this.journalPath = journalPath;
+        this.snapshotPath = snapshotPath(journalPath);
+        this.channel = channel;
+        this.nextSequence = nextSequence;
+        this.sinceSnapshot = sinceSnapshot;
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    /**
+     * Create a new journal for a game instance in a directory, starting with its header.
+     * @param directory where journals are kept, created if needed
+     * @param gameInstance to journal
+     * @param snapshotInterval records between snapshots
+     * @return journal of the game instance
+     * @throws IOException if the journal cannot be created
+     */
+    public static CommandJournal create(Path directory,
+                                        GameInstance gameInstance,
+                                        int snapshotInterval)
+            throws IOException {
+        if (directory == null || gameInstance == null)
+            throw new IllegalArgumentException("CommandJournal.create: directory or game instance is null.");
+
+        if (snapshotInterval <= 0)
+            throw new IllegalArgumentException("CommandJournal.create: snapshot interval must be positive.");
+
+        Files.createDirectories(directory);
+
+        Path journalPath = directory.resolve("game-" + UUID.randomUUID() + JOURNAL_SUFFIX);
+        FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        CommandJournal journal = new CommandJournal(journalPath, channel, 0, 0, snapshotInterval);
+
+        journal.append(JournalRecord.Type.HEADER, gameInstance.getName(), Long.toString(gameInstance.getSeed()));
+
+        return journal;
+    }
+
+    /**
+     * Open an existing journal to append records after its valid ones, discarding a torn tail.
+     * @param journalPath path of the journal
+     * @param validLength position after the last valid record
+     * @param nextSequence sequence of the next record
+     * @param sinceSnapshot records after the last snapshot
+     * @param snapshotInterval records between snapshots
+     * @return journal ready to append
+     * @throws IOException if the journal cannot be opened
+     */
+    static CommandJournal reopen(Path journalPath,
+                                 long validLength,
+                                 long nextSequence,
+                                 long sinceSnapshot,
+                                 int snapshotInterval)
+            throws IOException {
+        FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.WRITE);
+
+        channel.truncate(validLength);
+        channel.position(validLength);
+
+        return new CommandJournal(journalPath, channel, nextSequence, sinceSnapshot, snapshotInterval);
+    }
+
+    /**
+     * Append a record to this journal. The record is written in the background.
+     * Records are ignored after a write failure, reported by {@link #getFailure()}.
+     * Called from the mailbox of the game instance, hence records are appended one at a time.
+     * @param type of record
+     * @param fields of the record
+     */
+    void append(JournalRecord.Type type, String... fields) {
+        if (closed)
+            throw new IllegalStateException("CommandJournal.append: journal is closed.");
+
+        if (failure != null)
+            return;
+
+        JournalRecord record = new JournalRecord(type, nextSequence++, List.of(fields));
+
+        pending.add(new Append(frame(record.encode())));
+        sinceSnapshot++;
+        schedule();
+    }
+
+    /**
+     * Is it time for a snapshot, since enough records were appended after the last one?
+     * @return <code>true</code> if a snapshot should be saved
+     */
+    boolean isSnapshotDue() {
+        return sinceSnapshot >= snapshotInterval;
+    }
+
+    /**
+     * Save a snapshot of the state of the game instance after the last record appended.
+     * The snapshot is written in the background, once the records it covers are on disk.
+     * @param state serialized state of the game instance
+     */
+    void snapshot(byte[] state) {
+        if (closed || failure != null)
+            return;
+
+        pending.add(new Snapshot(nextSequence - 1, state));
+        sinceSnapshot = 0;
+        schedule();
+    }
+
+    /**
+     * Skip the snapshot that is due, when the state of the game instance cannot be serialized.
+     * Recovery then replays more records, but the journal alone is still enough.
+     */
+    void skipSnapshot() {
+        sinceSnapshot = 0;
+    }
+
+    /**
+     * Wait until the records appended so far are on disk.
+     * @return future completed when the records are on disk, or exceptionally if they cannot be written
+     */
+    public CompletableFuture<Void> sync() {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+
+        if (failure != null)
+            future.completeExceptionally(failure);
+        else {
+            pending.add(new Sync(future));
+            schedule();
+        }
+
+        return future;
+    }
+
+    /**
+     * Write the pending records and close this journal. Records can no longer be appended.
+     */
+    @Override
+    public void close() {
+        if (closed)
+            return;
+
+        closed = true;
+        sync().exceptionally(e -> null).join();
+
+        try {
+            channel.close();
+        }
+        catch (IOException e) {
+            if (failure == null)
+                failure = e;
+        }
+    }
+
+    /**
+     * Close this journal and delete its files, typically when the game instance is recycled.
+     */
+    public void delete() {
+        close();
+
+        try {
+            Files.deleteIfExists(journalPath);
+            Files.deleteIfExists(snapshotPath);
+        }
+        catch (IOException e) {
+            if (failure == null)
+                failure = e;
+        }
+    }
+
+    /**
+     * Path of the file of this journal.
+     * @return journal path
+     */
+    public Path getPath() {
+        return journalPath;
+    }
+
+    /**
+     * Number of records between snapshots.
+     * @return snapshot interval
+     */
+    public int getSnapshotInterval() {
+        return snapshotInterval;
+    }
+
+    /**
+     * Number of records written to disk since this journal was opened.
+     * @return records written
+     */
+    public long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    /**
+     * Number of groups of records forced to disk since this journal was opened.
+     * The ratio of records written to groups is the average size of a group commit.
+     * @return groups forced
+     */
+    public long getGroupCount() {
+        return groupCount.get();
+    }
+
+    /**
+     * The failure that stopped this journal, if any.
+     * @return exception raised writing to disk, or <code>null</code> if none
+     */
+    public IOException getFailure() {
+        return failure;
+    }
+
+    /**
+     * Frame an encoded record with its length and checksum.
+     * @param payload encoded record
+     * @return framed record
+     */
+    private static byte[] frame(byte[] payload) {
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER_SIZE + payload.length);
+
+        frame.putInt(payload.length);
+        frame.putInt(checksum(payload));
+        frame.put(payload);
+
+        return frame.array();
+    }
+
+    /**
+     * CRC32 checksum of some bytes.
+     * @param bytes to check
+     * @return checksum
+     */
+    private static int checksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+
+        crc.update(bytes);
+
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Start a thread to write the pending work, unless one is already writing it.
+     */
+    private void schedule() {
+        if (writing.compareAndSet(false, true))
+            Thread.ofVirtual().name("rea-journal").start(this::write);
+    }
+
+    /**
+     * Write the pending work in groups, forcing each group to disk before completing its syncs.
+     */
+    private void write() {
+        try {
+            List<ByteBuffer> group = new ArrayList<>();
+            List<CompletableFuture<Void>> syncs = new ArrayList<>();
+            Pending next;
+
+            while ((next = pending.poll()) != null) {
+                switch (next) {
+                    case Append append -> group.add(ByteBuffer.wrap(append.frame()));
+                    case Snapshot snapshot -> {
+                        commit(group, syncs);
+                        writeSnapshot(snapshot);
+                    }
+                    case Sync sync -> syncs.add(sync.future());
+                }
+
+                if (group.size() >= MAX_GROUP_SIZE)
+                    commit(group, syncs);
+            }
+
+            commit(group, syncs);
+        }
+        finally {
+            writing.set(false);
+        }
+
+        if (!pending.isEmpty())
+            schedule();
+    }
+
+    /**
+     * Write a group of records and force them to disk, then complete the syncs waiting for them.
+     * After a failure, records are discarded and syncs completed exceptionally.
+     * @param group of framed records
+     * @param syncs waiting for the group
+     */
+    private void commit(List<ByteBuffer> group, List<CompletableFuture<Void>> syncs) {
+        if (failure == null && !group.isEmpty()) {
+            try {
+                ByteBuffer[] buffers = group.toArray(new ByteBuffer[0]);
+
+                while (buffers[buffers.length - 1].hasRemaining())
+                    channel.write(buffers);
+                channel.force(false);
+
+                writtenCount.addAndGet(group.size());
+                groupCount.incrementAndGet();
+            }
+            catch (IOException e) {
+                failure = e;
+            }
+        }
+
+        for (CompletableFuture<Void> sync : syncs)
+            if (failure == null)
+                sync.complete(null);
+            else
+                sync.completeExceptionally(failure);
+
+        group.clear();
+        syncs.clear();
+    }
+
+    /**
+     * Write a snapshot with the current position of the journal, replacing the previous one atomically.
+     * A snapshot that cannot be written is skipped, since the journal alone is enough to recover.
+     * @param snapshot to write
+     */
+    private void writeSnapshot(Snapshot snapshot) {
+        if (failure != null)
+            return;
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeLong(channel.position());
+                out.writeLong(snapshot.sequence());
+                out.write(snapshot.state());
+            }
+
+            Path temporary = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+
+            try (FileChannel file = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer frame = ByteBuffer.wrap(frame(bytes.toByteArray()));
+
+                while (frame.hasRemaining())
+                    file.write(frame);
+                file.force(false);
+            }
+
+            try {
+                Files.move(temporary, snapshotPath, StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, snapshotPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        catch (IOException e) {
+            // the previous snapshot, if any, is still valid
+        }
+    }
+
+    /**
+     * Path of the snapshot of a journal.
+     * @param journalPath path of the journal
+     * @return path of its snapshot
+     */
+    public static Path snapshotPath(Path journalPath) {
+        String name = journalPath.getFileName().toString();
+
+        if (name.endsWith(JOURNAL_SUFFIX))
+            name = name.substring(0, name.length() - JOURNAL_SUFFIX.length());
+
+        return journalPath.resolveSibling(name + SNAPSHOT_SUFFIX);
+    }
+
+    /**
+     * Set aside a journal that cannot be recovered, and its snapshot if any, by appending
+     * {@link #QUARANTINE_SUFFIX} to their names, so that they are kept for inspection but no longer listed.
+     * @param journalPath path of the journal
+     * @return path of the quarantined journal
+     * @throws IOException if the journal cannot be renamed
+     */
+    public static Path quarantine(Path journalPath)
+            throws IOException {
+        Path snapshotPath = snapshotPath(journalPath);
+        Path quarantined = journalPath.resolveSibling(journalPath.getFileName() + QUARANTINE_SUFFIX);
+
+        if (Files.exists(snapshotPath))
+            Files.move(snapshotPath, snapshotPath.resolveSibling(snapshotPath.getFileName() + QUARANTINE_SUFFIX),
+                    StandardCopyOption.REPLACE_EXISTING);
+
+        return Files.move(journalPath, quarantined, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * List the journals in a directory.
+     * @param directory where journals are kept
+     * @return paths of journals, empty if the directory does not exist
+     * @throws IOException if the directory cannot be read
+     */
+    public static List<Path> list(Path directory)
+            throws IOException {
+        if (directory == null || !Files.isDirectory(directory))
+            return List.of();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(JOURNAL_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * Read the valid records of a journal from a position.
+     * Reading stops at the end of the file, at the first record that is truncated or fails its checksum,
+     * or after a maximum number of records.
+     * @param journalPath path of the journal
+     * @param position where to start reading, after a valid record
+     * @param limit maximum number of records to read
+     * @return records read and position after the last one
+     * @throws IOException if the journal cannot be read
+     */
+    static Contents read(Path journalPath, long position, int limit)
+            throws IOException {
+        List<JournalRecord> records = new ArrayList<>();
+
+        try (FileChannel file = FileChannel.open(journalPath, StandardOpenOption.READ)) {
+            long size = file.size();
+            ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_SIZE);
+
+            while (records.size() < limit && position + FRAME_HEADER_SIZE <= size) {
+                header.clear();
+                readFully(file, header, position);
+                header.flip();
+
+                int length = header.getInt();
+                int checksum = header.getInt();
+
+                if (length < 0 || position + FRAME_HEADER_SIZE + length > size)
+                    break;
+
+                ByteBuffer payload = ByteBuffer.allocate(length);
+                readFully(file, payload, position + FRAME_HEADER_SIZE);
+
+                if (checksum(payload.array()) != checksum)
+                    break;
+
+                records.add(JournalRecord.decode(payload.array()));
+                position += FRAME_HEADER_SIZE + length;
+            }
+        }
+
+        return new Contents(records, position);
+    }
+
+    /**
+     * Read bytes from a file until a buffer is full.
+     * @param file to read from
+     * @param buffer to fill
+     * @param position in the file of the first byte
+     * @throws IOException if the file ends before the buffer is full
+     */
+    private static void readFully(FileChannel file, ByteBuffer buffer, long position)
+            throws IOException {
+        long start = position - buffer.position();
+
+        while (buffer.hasRemaining())
+            if (file.read(buffer, start + buffer.position()) < 0)
+                throw new EOFException("CommandJournal.read: unexpected end of journal.");
+    }
+
+    /**
+     * Read the snapshot of a journal, if there is a valid one.
+     * @param journalPath path of the journal
+     * @return snapshot, or <code>null</code> if there is none or it is corrupted
+     * @throws IOException if the snapshot exists but cannot be read
+     */
+    static SnapshotFile readSnapshot(Path journalPath)
+            throws IOException {
+        Path path = snapshotPath(journalPath);
+
+        if (!Files.exists(path))
+            return null;
+
+        byte[] bytes = Files.readAllBytes(path);
+
+        if (bytes.length < FRAME_HEADER_SIZE)
+            return null;
+
+        ByteBuffer frame = ByteBuffer.wrap(bytes);
+        int length = frame.getInt();
+        int checksum = frame.getInt();
+
+        if (length != bytes.length - FRAME_HEADER_SIZE)
+            return null;
+
+        byte[] payload = new byte[length];
+        frame.get(payload);
+
+        if (checksum(payload) != checksum)
+            return null;
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            long journalPosition = in.readLong();
+            long sequence = in.readLong();
+
+            return new SnapshotFile(journalPosition, sequence, in.readAllBytes());
+        }
+        catch (EOFException e) {
+            return null;
+        }
+    }
+}
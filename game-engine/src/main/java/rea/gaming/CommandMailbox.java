@@ -0,0 +1,156 @@
+package rea.gaming;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * <p>Mailbox of the tasks that change a {@link GameInstance}, such as executing commands.
+ * Tasks are executed one at a time, in the order they were submitted, by a single virtual thread,
+ * hence they never run concurrently and need no further synchronization among them.
+ * Each instance has its own mailbox, so that instances progress independently of each other.</p>
+ * <p>The virtual thread is started when a task is submitted to an idle mailbox
+ * and ends when the mailbox is empty, so idle instances hold no thread.
+ * Tasks submitted from the thread of the mailbox, for instance by a synchronous listener
+ * reacting to an event sent by a task, are executed immediately, since waiting would deadlock.</p>
+ * implNote - the <b>Actor</b> pattern, with a lock-free queue and a flag to start at most one drain thread.
+ */
+final class CommandMailbox {
+
+    private final String name;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicLong executedCount = new AtomicLong();
+    private volatile Thread actor;
+
+    /**
+     * Create an empty mailbox.
+     * @param name of the threads draining this mailbox
+     */
+    CommandMailbox(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Submit a task to be executed after those already in the mailbox.
+     * Exceptions raised by the task complete the future exceptionally.
+     * @param task to execute
+     * @param <T> type of result
+     * @return future completed with the result of the task
+     */
+    <T> CompletableFuture<T> submit(Supplier<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+
+        tasks.add(() -> {
+            T result;
+
+            try {
+                result = task.get();
+            }
+            catch (Throwable e) {
+                executedCount.incrementAndGet();
+                future.completeExceptionally(e);
+                return;
+            }
+            // counted before completing, so that callers waiting on the future see it
+            executedCount.incrementAndGet();
+            future.complete(result);
+        });
+        schedule();
+
+        return future;
+    }
+
+    /**
+     * Execute a task in the mailbox and wait for its result.
+     * If called from the thread of this mailbox the task is executed immediately.
+     * Unchecked exceptions raised by the task are raised to the caller.
+     * @param task to execute
+     * @param <T> type of result
+     * @return result of the task
+     */
+    <T> T call(Supplier<T> task) {
+        if (isActorThread())
+            return task.get();
+
+        try {
+            return submit(task).join();
+        }
+        catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            if (e.getCause() instanceof Error cause)
+                throw cause;
+            throw e;
+        }
+    }
+
+    /**
+     * Execute a task without result in the mailbox and wait for it to complete.
+     * @param task to execute
+     */
+    void run(Runnable task) {
+        call(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Is the current thread the one executing the tasks of this mailbox?
+     * @return <code>true</code> if called from a task of this mailbox
+     */
+    boolean isActorThread() {
+        return Thread.currentThread() == actor;
+    }
+
+    /**
+     * Number of tasks waiting to be executed.
+     * @return tasks in the mailbox
+     */
+    int getPendingCount() {
+        return tasks.size();
+    }
+
+    /**
+     * Number of tasks executed since this mailbox was created.
+     * @return tasks executed
+     */
+    long getExecutedCount() {
+        return executedCount.get();
+    }
+
+    /**
+     * Start a thread to drain the mailbox, unless one is already draining it.
+     */
+    private void schedule() {
+        if (draining.compareAndSet(false, true))
+            Thread.ofVirtual().name(name).start(this::drain);
+    }
+
+    /**
+     * Execute the tasks in the mailbox until it is empty.
+     * A task submitted after the last poll but before the flag is cleared
+     * did not start a thread, hence the mailbox is checked again.
+     */
+    private void drain() {
+        actor = Thread.currentThread();
+        try {
+            Runnable task;
+
+            while ((task = tasks.poll()) != null)
+                task.run();
+        }
+        finally {
+            actor = null;
+            draining.set(false);
+        }
+
+        if (!tasks.isEmpty())
+            schedule();
+    }
+}
@@ -0,0 +1,20 @@
+package rea.gaming;
+
+/**
+ * <p>A command to be executed in a batch by {@link GameInstance#executeCommands(Player, java.util.List)},
+ * i.e. an {@link Action} on an object, as the arguments of {@link GameInstance#executeCommand(Player, Action, Object)}.</p>
+ * @param action to be executed
+ * @param object of the action, possibly <code>null</code> for actions that take none (e.g. {@link Action#BACK})
+ */
+public record CommandRequest(Action action, Object object) {
+
+    /**
+     * Create a command request.
+     * @param action to be executed
+     * @param object of the action
+     */
+    public CommandRequest {
+        if (action == null)
+            throw new IllegalArgumentException("CommandRequest: action is null.");
+    }
+}
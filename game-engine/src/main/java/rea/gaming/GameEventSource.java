@@ -3,10 +3,20 @@ package rea.gaming;
 import rea.ReaException;
 import rea.components.Character;
 import rea.components.Place;
+import rea.components.Positionable;
 import rea.events.*;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * <p>Source of game related events.
@@ -14,6 +24,18 @@ import java.util.Set;
  * to which it provides methods for adding listeners and methods for broadcasting,
  * multicasting or unicasting events.
  * This class delegates on methods of {@link EventBroadcast} and {@link EventMulticast} instances.</p>
+ * <p>Events sent to players can be dispatched asynchronously, see {@link #setAsynchronousDispatch(int)},
+ * hence events carry copies of the lists they refer to, rather than the lists of the game map.</p>
+ * <p>Players with a {@link SceneDeltaEvent} listener receive only the changes in their scene,
+ * numbered by a per-place sequence, and a snapshot when they enter a place or ask for a resync
+ * with {@link #requestSceneResync(Player)}. Players with only a {@link SceneUpdateEvent} listener
+ * keep receiving the full scene.</p>
+ * <p>Scene and inventory updates can be deferred while a batch of commands is executed,
+ * see {@link #beginUpdateBatch()}, so that each changed scene and inventory is sent once when the batch ends.</p>
+ * <p>In crowded places, scene deltas and messages can be delivered by area of interest, see {@link #setAreaOfInterest(int)},
+ * only to the characters whose area of interest overlaps the change, found in the index of areas that
+ * each place updates as characters move. Each character then has its own sequence of scene deltas,
+ * and its scene, snapshots included, only holds the positionables in its area.</p>
  */
 public class GameEventSource {
 
@@ -37,10 +59,36 @@ public class GameEventSource {
      */
     final EventMulticast<SceneUpdateEvent> sceneUpdate = new EventMulticast<>();
 
+    /**
+     * The listeners registered to receive scene delta events.
+     */
+    final EventMulticast<SceneDeltaEvent> sceneDelta = new EventMulticast<>();
+
     /**
      * The set of players in this game.
+     * Changed by the game instance and read by the threads of players adding listeners.
+     */
+    final Set<Player> players = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Places whose scene changed in the current batch, or <code>null</code> if not in a batch.
+     */
+    private Set<Place> batchScenes;
+
+    /**
+     * Characters whose inventory changed in the current batch, or <code>null</code> if not in a batch.
      */
-    final Set<Player> players = new HashSet<>();
+    private Set<Character> batchInventories;
+
+    /**
+     * Interest radius given to the characters of players, or 0 if not delivering by area of interest.
+     */
+    int areaOfInterest;
+
+    /**
+     * Sequence of the last scene delta sent to each character, when delivering by area of interest.
+     */
+    private final Map<Character, Long> interestSequences = new HashMap<>();
 
     /**
      * Create an instance of this class.
@@ -63,6 +111,15 @@ public class GameEventSource {
         }
     }
 
+    /**
+     * Additional method.
+     * Remove a listener for {@link GameChangedEvent}.
+     * @param listener of game changed events
+     */
+    public void removeGameChangedListener(UpdateListener<GameChangedEvent> listener){
+        this.gameChanged.removeListener(listener);
+    }
+
     /**
      * Add a listener for {@link InventoryUpdateEvent}.
      * Only identified players can add these listeners.
@@ -144,6 +201,171 @@ public class GameEventSource {
         }
     }
 
+    /**
+     * Add a listener for {@link SceneDeltaEvent}.
+     * Only identified players can add these listeners.
+     * The player will be used as key to this listener in multicasting.
+     * Players with this listener no longer receive {@link SceneUpdateEvent}.
+     * @param player adding the listener
+     * @param listener of scene delta events
+     * @throws ReaException if player not in this game
+     */
+    public void addSceneDeltaListener(Player player,
+                                      UpdateListener<SceneDeltaEvent> listener)
+            throws ReaException {
+        if (player == null)
+            throw new ReaException("GameEventSource.addSceneDeltaListener: Player is null");
+
+        if (player.playerCharacter == null)
+            throw new ReaException("GameEventSource.addSceneDeltaListener: Character is null for Player.");
+
+        if (!players.contains(player))
+            throw new ReaException("GameEventSource.addSceneDeltaListener: Player is not in this game.");
+
+        try{
+            this.sceneDelta.addListener(player.playerCharacter, listener);
+        }
+        catch (Exception e){
+            throw new ReaException(e.getMessage());
+        }
+    }
+
+    /**
+     * Send the player a snapshot of the place where its character is,
+     * typically after the client detects a gap in the sequence of scene deltas.
+     * @param player asking for a resync
+     */
+    public void requestSceneResync(Player player) {
+        if (player == null || !players.contains(player))
+            throw new IllegalArgumentException("GameEventSource.requestSceneResync: Player is not in this game.");
+
+        Character character = player.playerCharacter;
+        Place place = character.getPlace();
+
+        if (place == null)
+            return;
+
+        if (sceneDelta.getListeners().containsKey(character))
+            sceneDelta.unicast(character, createSceneSnapshot(place, character));
+        else
+            sceneUpdate.unicast(character, new SceneUpdateEvent(place.getVisual(), new ArrayList<>(place.getPositionables())));
+    }
+
+    /**
+     * Deliver scene deltas and messages only to the characters whose area of interest overlaps the change,
+     * so that the events sent grow with the density around each change rather than with the population of the place.
+     * The radius is given to the characters of the players in this game and of those added afterwards,
+     * and can be changed for each player with {@link #setInterestRadius(Player, int)}.
+     * Characters with radius 0 remain interested in the whole place.
+     * Players with only a {@link SceneUpdateEvent} listener receive the full scene when a change is in their area.
+     * Players with a {@link SceneDeltaEvent} listener receive a snapshot if their area or the numbering of deltas changes.
+     * @param radius of the areas of interest, or 0 to deliver to all characters in the place
+     */
+    public void setAreaOfInterest(int radius) {
+        if (radius < 0)
+            throw new IllegalArgumentException("GameEventSource.setAreaOfInterest: radius is negative.");
+
+        // deltas are numbered by place or by character depending on the mode
+        boolean modeChanged = (radius == 0) != (this.areaOfInterest == 0);
+
+        this.areaOfInterest = radius;
+
+        for (Player player : players) {
+            Character character = player.playerCharacter;
+            boolean areaChanged = character.getInterestRadius() != radius;
+
+            character.setInterestRadius(radius);
+            if (areaChanged || modeChanged)
+                unicastSceneSnapshot(character);
+        }
+    }
+
+    /**
+     * Get the interest radius given to the characters of players.
+     * @return radius of the areas of interest, or 0 if not delivering by area of interest
+     */
+    public int getAreaOfInterest() {
+        return this.areaOfInterest;
+    }
+
+    /**
+     * Change the radius of the area of interest of a player's character,
+     * used when delivering by area of interest.
+     * The player receives a snapshot of the positionables in its new area, if it has a {@link SceneDeltaEvent} listener.
+     * @param player whose character's area changes
+     * @param radius of the area of interest, or 0 to be interested in the whole place
+     */
+    public void setInterestRadius(Player player, int radius) {
+        if (player == null || !players.contains(player))
+            throw new IllegalArgumentException("GameEventSource.setInterestRadius: Player is not in this game.");
+
+        if (radius == player.playerCharacter.getInterestRadius())
+            return;
+
+        player.playerCharacter.setInterestRadius(radius);
+        unicastSceneSnapshot(player.playerCharacter);
+    }
+
+    /**
+     * Send a character with a scene delta listener a snapshot of the place where it is, if any.
+     * @param character whose scene changed other than by the changes of its place
+     */
+    private void unicastSceneSnapshot(Character character) {
+        Place place = character.getPlace();
+
+        if (place != null && sceneDelta.getListeners().containsKey(character))
+            sceneDelta.unicast(character, createSceneSnapshot(place, character));
+    }
+
+    /**
+     * Dispatch events to the listeners of players added afterwards through per-listener queues,
+     * each drained by a virtual thread, so that a slow player does not delay the game for the others.
+     * Inventory and scene updates carry the full state, hence only the latest queued one is kept;
+     * messages and scene deltas are queued, dropping the oldest when the queue is full
+     * (clients detect the gap in scene deltas and ask for a resync).
+     * Game changed listeners remain synchronous, since the {@link rea.Manager} relies on them to index games.
+     * @param capacity of each listener queue
+     */
+    public void setAsynchronousDispatch(int capacity) {
+        this.inventoryUpdate.setAsynchronous(capacity, OverflowPolicy.LATEST_WINS);
+        this.messageUpdate.setAsynchronous(capacity, OverflowPolicy.DROP_OLDEST);
+        this.sceneUpdate.setAsynchronous(capacity, OverflowPolicy.LATEST_WINS);
+        this.sceneDelta.setAsynchronous(capacity, OverflowPolicy.DROP_OLDEST);
+    }
+
+    /**
+     * Remove all the listeners of this game, closing their queues so that their delivery threads end
+     * and the callbacks they hold are released. Typically called when the game is removed from the pool.
+     */
+    public void closeListeners() {
+        this.gameChanged.removeAllListeners();
+
+        for (EventMulticast<?> multicast : List.of(inventoryUpdate, messageUpdate, sceneUpdate, sceneDelta))
+            multicast.removeAllListeners();
+    }
+
+    /**
+     * Get the queues of the listeners of a player, to monitor their depth and lag.
+     * Only listeners added in asynchronous dispatch have queues.
+     * @param player with listeners
+     * @return list of queues of the player's listeners, possibly empty
+     */
+    public List<AsyncUpdateListener<?>> getListenerQueues(Player player) {
+        List<AsyncUpdateListener<?>> queues = new ArrayList<>();
+
+        if (player == null || player.playerCharacter == null)
+            return queues;
+
+        for (EventMulticast<?> multicast : List.of(inventoryUpdate, messageUpdate, sceneUpdate, sceneDelta)) {
+            AsyncUpdateListener<?> queue = multicast.getQueue(player.playerCharacter);
+
+            if (queue != null)
+                queues.add(queue);
+        }
+
+        return queues;
+    }
+
     /**
      * Broadcast major game changes to all registered listeners.
      * It is typically called when players are added to a game, or when the game starts or ends.
@@ -156,7 +378,45 @@ public class GameEventSource {
     }
 
     /**
-     * Multicast players in the given scene with the current state of that scene.
+     * Start deferring scene and inventory updates, until {@link #endUpdateBatch()}.
+     * Places and characters to update are recorded in the order they were first notified.
+     * Scene changes accumulate in each place, hence a single delta carries all the changes of the batch.
+     */
+    void beginUpdateBatch() {
+        if (this.batchScenes != null)
+            throw new IllegalStateException("GameEventSource.beginUpdateBatch: already in a batch.");
+
+        this.batchScenes = new LinkedHashSet<>();
+        this.batchInventories = new LinkedHashSet<>();
+    }
+
+    /**
+     * Stop deferring updates and send one inventory update to each character whose inventory changed,
+     * and one scene update to the players in each place whose scene changed, since {@link #beginUpdateBatch()}.
+     */
+    void endUpdateBatch() {
+        if (this.batchScenes == null)
+            throw new IllegalStateException("GameEventSource.endUpdateBatch: not in a batch.");
+
+        Set<Place> scenes = this.batchScenes;
+        Set<Character> inventories = this.batchInventories;
+
+        this.batchScenes = null;
+        this.batchInventories = null;
+
+        for (Character character : inventories)
+            unicastInventoryUpdate(character);
+
+        for (Place place : scenes)
+            multicastSceneUpdate(place);
+    }
+
+    /**
+     * Multicast players in the given scene with the changes in that scene since the last update.
+     * Players whose character entered the place receive a snapshot instead,
+     * and players without a scene delta listener receive the current state of the scene.
+     * Nothing is sent if the scene did not change.
+     * In a batch, the place is only recorded to be notified when the batch ends.
      * @param place to notify
      */
     void multicastSceneUpdate(Place place) {
@@ -164,14 +424,195 @@ public class GameEventSource {
         if (place == null)
             throw new RuntimeException("GameEventSource.multicastSceneUpdate: place is null.");
 
-        this.sceneUpdate.multicast(
-                place.getCharacters(),
-                new SceneUpdateEvent( place.getVisual(), place.getPositionables() )
-        );
+        if (this.batchScenes != null) {
+            this.batchScenes.add(place);
+            return;
+        }
+
+        Map<Place.Change, List<Positionable>> changes = place.drainChanges();
+
+        if (changes.isEmpty())
+            return;
+
+        if (this.areaOfInterest > 0) {
+            multicastSceneUpdateByInterest(place, changes);
+            return;
+        }
+
+        List<Positionable> added = changes.getOrDefault(Place.Change.ADDED, List.of());
+        Set<Character> deltaRecipients = new HashSet<>();
+        Set<Character> snapshotRecipients = new HashSet<>();
+        Set<Character> updateRecipients = new HashSet<>();
+
+        for (Character character : place.getCharacters()) {
+            if (!sceneDelta.getListeners().containsKey(character))
+                updateRecipients.add(character);
+            else if (added.contains(character))
+                snapshotRecipients.add(character);
+            else
+                deltaRecipients.add(character);
+        }
+
+        if (!deltaRecipients.isEmpty())
+            this.sceneDelta.multicast(
+                    deltaRecipients,
+                    new SceneDeltaEvent(place, place.getSequence(), false,
+                            added,
+                            changes.getOrDefault(Place.Change.REMOVED, List.of()),
+                            changes.getOrDefault(Place.Change.MOVED, List.of()))
+            );
+
+        if (!snapshotRecipients.isEmpty())
+            this.sceneDelta.multicast(snapshotRecipients, createSceneSnapshot(place));
+
+        if (!updateRecipients.isEmpty())
+            this.sceneUpdate.multicast(
+                    updateRecipients,
+                    new SceneUpdateEvent( place.getVisual(), new ArrayList<>(place.getPositionables()) )
+            );
+    }
+
+    /**
+     * Send the changes in a scene to the characters interested in each of them, when delivering by area of interest.
+     * Each character receives one delta, numbered by its own sequence, that keeps its scene to what is in its area:
+     * positionables that entered its area are sent as added if added to the place, or as moved otherwise,
+     * those that left its area as removed, and those that changed within it as moved.
+     * Characters that moved also receive the positionables entering and leaving their area.
+     * Characters that entered the place receive a snapshot instead,
+     * and characters without a scene delta listener receive the current state of the scene.
+     * @param place whose changes were drained
+     * @param changes drained from the place
+     */
+    private void multicastSceneUpdateByInterest(Place place, Map<Place.Change, List<Positionable>> changes) {
+        Map<Positionable, Place.Change> changed = new IdentityHashMap<>();
+        Map<Character, List<Positionable>> interests = new LinkedHashMap<>();
+
+        for (Map.Entry<Place.Change, List<Positionable>> entry : changes.entrySet())
+            for (Positionable positionable : entry.getValue()) {
+                changed.put(positionable, entry.getKey());
+                for (Character character : place.getInterestedInChange(positionable))
+                    interests.computeIfAbsent(character, key -> new ArrayList<>()).add(positionable);
+            }
+
+        for (Positionable positionable : changes.getOrDefault(Place.Change.MOVED, List.of()))
+            if (positionable instanceof Character character) {
+                List<Positionable> interest = interests.computeIfAbsent(character, key -> new ArrayList<>());
+
+                interest.addAll(place.getEnteredInterest(character));
+                interest.addAll(place.getLeftInterest(character));
+            }
+
+        SceneUpdateEvent sceneUpdateEvent = null;
+
+        for (Map.Entry<Character, List<Positionable>> entry : interests.entrySet()) {
+            Character character = entry.getKey();
+
+            if (!sceneDelta.getListeners().containsKey(character)) {
+                if (sceneUpdateEvent == null)
+                    sceneUpdateEvent = new SceneUpdateEvent(place.getVisual(), new ArrayList<>(place.getPositionables()));
+                this.sceneUpdate.unicast(character, sceneUpdateEvent);
+            }
+            else if (changed.get(character) == Place.Change.ADDED)
+                this.sceneDelta.unicast(character, createSceneSnapshot(place, character));
+            else {
+                List<Positionable> added = new ArrayList<>();
+                List<Positionable> removed = new ArrayList<>();
+                List<Positionable> moved = new ArrayList<>();
+                Set<Positionable> sorted = Collections.newSetFromMap(new IdentityHashMap<>());
+
+                for (Positionable positionable : entry.getValue()) {
+                    if (!sorted.add(positionable))
+                        continue;
+
+                    boolean was = place.wasInInterest(character, positionable);
+                    boolean is = place.isInInterest(character, positionable);
+                    Place.Change change = changed.get(positionable);
+
+                    if (is && !was)
+                        (change == Place.Change.ADDED ? added : moved).add(positionable);
+                    else if (was && !is)
+                        removed.add(positionable);
+                    else if (was && change != null)
+                        moved.add(positionable);
+                }
+
+                if (!added.isEmpty() || !removed.isEmpty() || !moved.isEmpty())
+                    this.sceneDelta.unicast(character, new SceneDeltaEvent(place,
+                            interestSequences.merge(character, 1L, Long::sum), false, added, removed, moved));
+            }
+        }
+    }
+
+    /**
+     * Multicast players in the given scene with its current state, as a snapshot or a full scene update.
+     * Changes recorded in the place are discarded, since the snapshot already includes them.
+     * @param place to notify
+     */
+    void multicastSceneSnapshot(Place place) {
+
+        if (place == null)
+            throw new RuntimeException("GameEventSource.multicastSceneSnapshot: place is null.");
+
+        place.drainChanges();
+
+        Set<Character> snapshotRecipients = new HashSet<>();
+        Set<Character> updateRecipients = new HashSet<>();
+
+        for (Character character : place.getCharacters())
+            if (sceneDelta.getListeners().containsKey(character))
+                snapshotRecipients.add(character);
+            else
+                updateRecipients.add(character);
+
+        if (this.areaOfInterest > 0)
+            for (Character character : snapshotRecipients)
+                this.sceneDelta.unicast(character, createSceneSnapshot(place, character));
+        else if (!snapshotRecipients.isEmpty())
+            this.sceneDelta.multicast(snapshotRecipients, createSceneSnapshot(place));
+
+        if (!updateRecipients.isEmpty())
+            this.sceneUpdate.multicast(
+                    updateRecipients,
+                    new SceneUpdateEvent( place.getVisual(), new ArrayList<>(place.getPositionables()) )
+            );
+    }
+
+    /**
+     * Create a snapshot of a place for a character, numbered by the sequence of the deltas sent to the character
+     * and with the positionables in its area when delivering by area of interest,
+     * or with all the positionables and numbered by the sequence of the place otherwise.
+     * @param place to snapshot
+     * @param character receiving the snapshot
+     * @return snapshot event
+     */
+    private SceneDeltaEvent createSceneSnapshot(Place place, Character character) {
+        if (this.areaOfInterest == 0)
+            return createSceneSnapshot(place);
+
+        List<Positionable> inInterest = new ArrayList<>();
+
+        for (Positionable positionable : place.getPositionables())
+            if (place.isInInterest(character, positionable))
+                inInterest.add(positionable);
+
+        return new SceneDeltaEvent(place, interestSequences.getOrDefault(character, 0L), true,
+                inInterest, List.of(), List.of());
+    }
+
+    /**
+     * Create a snapshot of a place, with all its positionables as added and its current sequence.
+     * Their positions are copied in bulk from the place.
+     * @param place to snapshot
+     * @return snapshot event
+     */
+    private SceneDeltaEvent createSceneSnapshot(Place place) {
+        return new SceneDeltaEvent(place, place.getSequence(), true,
+                new ArrayList<>(place.getPositionables()), place.getPackedPositions(), List.of(), List.of());
     }
 
     /**
      * Multicasts players in the given place with a message.
+     * When delivering by area of interest, only the characters whose area overlaps the speaker receive it.
      * @param place with players to multicast
      * @param character that sends the message
      * @param message to multicast
@@ -185,7 +626,7 @@ public class GameEventSource {
             throw new RuntimeException("GameEventSource.multicastMessageUpdate: Message is empty or no Character to speak message.");
 
         this.messageUpdate.multicast(
-                place.getCharacters(),
+                this.areaOfInterest > 0 ? place.getInterested(character) : place.getCharacters(),
                 new MessageUpdateEvent(character, message)
         );
 
@@ -216,9 +657,14 @@ public class GameEventSource {
         if (character == null)
             throw new RuntimeException("GameEventSource.unicastInventoryUpdate: Character is null.");
 
+        if (this.batchInventories != null) {
+            this.batchInventories.add(character);
+            return;
+        }
+
         this.inventoryUpdate.unicast(
                 character,
-                new InventoryUpdateEvent(character.getInventory(), character.getHolding())
+                new InventoryUpdateEvent(new ArrayList<>(character.getInventory()), character.getHolding())
         );
     }
 
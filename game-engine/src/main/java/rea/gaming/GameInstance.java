@@ -2,12 +2,21 @@ package rea.gaming;
 
 import rea.components.Character;
 import rea.components.*;
+import rea.gameplay.EndCondition;
+import rea.gameplay.GameMapTemplates;
 import rea.gameplay.Gameplay;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * <p>A single instance of a role playing game with given gameplay and players.
@@ -18,30 +27,210 @@ import java.util.Set;
  * but if it reaches the maximum number of players, it is automatically started.
  * This class is also responsible for executing commands on the game, such as moving,
  * picking up items, etc. through the {@link #executeCommand(Player, Action, Object)} method.
- * This public method is invoked by players and delegates in package methods specific to each action.
+ * This public method is invoked by players and delegates in a {@link CommandHandler} for each action,
+ * by default the package methods specific to each action.
  * Action commands report updates by sending events to the players.
  * Players and events listeners are managed by methods inherited from {@link GameEventSource}.</p>
+ * <p>Each instance is an actor: commands and other changes to the game, such as adding players
+ * or starting the game, are executed one at a time by the virtual thread of a {@link CommandMailbox},
+ * hence players acting at the same time never change the game map concurrently.
+ * Commands can be submitted without waiting for them with
+ * {@link #executeCommandAsync(Player, Action, Object)}, or in batches with
+ * {@link #executeCommands(Player, List)}.</p>
+ * <p>Changes accepted by an instance can be recorded in a {@link CommandJournal}, set with
+ * {@link #setJournal(CommandJournal)}, from which {@link JournalReplay} rebuilds the instance.
+ * Commands are recorded before they are executed, with the positionables they act on referred to
+ * by their component id in the game map, as <code>"C" + componentId</code>.</p>
  */
 public class GameInstance
         extends GameEventSource {
+
+    /**
+     * The default command handlers, one for each {@link Action}.
+     * Built once for the class and copied to the handler table of each instance.
+     */
+    static final Map<Action, CommandHandler> DEFAULT_COMMAND_HANDLERS = createDefaultCommandHandlers();
+
+    /**
+     * Generator of the ids of game instances.
+     */
+    private static final AtomicLong ID_GENERATOR = new AtomicLong();
+
+    private final long id;
+    private final long seed;
     public Gameplay gameplay;
     private GameMap gameMap;
-    private GameStage gameStage;
+    private volatile GameStage gameStage;
     private Date timeStarted; //private LocalDateTime timeStarted;
     private Date timeEnded; //private LocalDateTime timeEnded;
 
     /**
-     * Create a game instance with a given gameplay
+     * The command handlers of this instance, indexed by action.
+     */
+    private final Map<Action, CommandHandler> commandHandlers;
+
+    /**
+     * Condition in which this game ends, maintained as the game map changes.
+     */
+    private final EndCondition endCondition;
+
+    /**
+     * Mailbox of the tasks that change this instance, executed one at a time.
+     */
+    private final CommandMailbox mailbox;
+
+    /**
+     * The players in the order they were added, to which journal records refer.
+     */
+    private final List<Player> playerOrder = new ArrayList<>();
+
+    /**
+     * Journal recording the changes accepted by this instance, or <code>null</code> if not journaled.
+     */
+    private volatile CommandJournal journal;
+
+    /**
+     * Create a game instance with a given gameplay and a random seed.
      * @param gameplay for the game instance
      */
     public GameInstance(Gameplay gameplay) {
+        this(gameplay, ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Create a game instance with a given gameplay and seed.
+     * The game map is a copy of the template of the gameplay or,
+     * if the gameplay makes random choices, is produced with a random source created with the seed,
+     * hence instances with the same gameplay and seed have identical maps.
+     * @param gameplay for the game instance
+     * @param seed of the game map
+     */
+    public GameInstance(Gameplay gameplay, long seed) {
+        this(gameplay, seed, GameMapTemplates.makeGameMap(gameplay, new Random(seed)));
+    }
+
+    /**
+     * Restore a game instance from a snapshot of its state.
+     * @param gameplay for the game instance
+     * @param seed of the game map
+     * @param snapshot of the state of the game instance
+     */
+    GameInstance(Gameplay gameplay, long seed, GameSnapshot snapshot) {
+        this(gameplay, seed, snapshot.gameMap());
+
+        for (Character character : snapshot.characters()) {
+            Player player = new Player(character);
+
+            this.players.add(player);
+            this.playerOrder.add(player);
+        }
+
+        this.gameStage = snapshot.stage();
+        this.timeStarted = snapshot.started();
+        this.timeEnded = snapshot.ended();
+    }
+
+    /**
+     * Create a game instance with a given gameplay and game map.
+     * @param gameplay for the game instance
+     * @param seed of the game map
+     * @param gameMap of the game instance
+     */
+    private GameInstance(Gameplay gameplay, long seed, GameMap gameMap) {
+        this.id = ID_GENERATOR.incrementAndGet();
+        this.seed = seed;
+        this.mailbox = new CommandMailbox("rea-game-" + id);
         this.gameplay = gameplay;
         gameStage = GameStage.CREATED;
         timeStarted = null;
         timeEnded = null;
 
+        // Default handlers, possibly replaced by those of the gameplay
+        commandHandlers = new EnumMap<>(DEFAULT_COMMAND_HANDLERS);
+        commandHandlers.putAll(gameplay.getCommandHandlers());
+
         // Initializes the gameMap
-        gameMap = gameplay.makeGameMap();
+        this.gameMap = gameMap;
+        endCondition = gameplay.makeEndCondition(gameMap);
+    }
+
+    /**
+     * Create the table with the default command handlers.
+     * Each action is handled by the package method named after it (e.g. {@link #executeMove(Character, Object)}).
+     * @return map of handlers indexed by action
+     */
+    private static Map<Action, CommandHandler> createDefaultCommandHandlers() {
+        Map<Action, CommandHandler> handlers = new EnumMap<>(Action.class);
+
+        handlers.put(Action.MOVE, GameInstance::executeMove);
+        handlers.put(Action.BACK, GameInstance::executeBack);
+        handlers.put(Action.PICK, GameInstance::executePick);
+        handlers.put(Action.DROP, GameInstance::executeDrop);
+        handlers.put(Action.HOLD, GameInstance::executeHold);
+        handlers.put(Action.USE,  GameInstance::executeUse);
+        handlers.put(Action.TALK, GameInstance::executeTalk);
+        handlers.put(Action.LOOK, GameInstance::executeLook);
+
+        return handlers;
+    }
+
+    /**
+     * Register a handler for an action in this game instance, replacing the current one.
+     * This allows gameplays and tools to change the behaviour of an action without subclassing.
+     * @param action to be handled
+     * @param handler of the action
+     */
+    public void setCommandHandler(Action action, CommandHandler handler) {
+        if (action == null || handler == null)
+            throw new IllegalArgumentException("GameInstance.setCommandHandler: action or handler is null.");
+
+        this.commandHandlers.put(action, handler);
+    }
+
+    /**
+     * Get the handler currently registered for an action.
+     * @param action to be handled
+     * @return handler of the action, or <code>null</code> if none is registered
+     */
+    public CommandHandler getCommandHandler(Action action) {
+        return this.commandHandlers.get(action);
+    }
+
+    /**
+     * The stable id of this game instance.
+     * Ids are unique among the instances created in this JVM and increase with creation time.
+     * @return id of the game instance
+     */
+    public long getId() {
+        return this.id;
+    }
+
+    /**
+     * The seed of the random choices of this instance, such as those producing its game map.
+     * It is recorded in the journal of this instance, and can be used by clients for any decoration
+     * that should look the same whenever the game is shown.
+     * @return seed of the game map
+     */
+    public long getSeed() {
+        return this.seed;
+    }
+
+    /**
+     * Record the changes accepted from now on in a journal.
+     * The journal should have been created for this instance before any change,
+     * or reopened by {@link JournalReplay} after replaying it.
+     * @param journal of this instance, or <code>null</code> to stop journaling
+     */
+    public void setJournal(CommandJournal journal) {
+        mailbox.run(() -> this.journal = journal);
+    }
+
+    /**
+     * The journal recording the changes accepted by this instance.
+     * @return journal, or <code>null</code> if not journaled
+     */
+    public CommandJournal getJournal() {
+        return this.journal;
     }
 
     /**
@@ -52,7 +241,7 @@ public class GameInstance
      */
     public GameMap getGameMap(){
         if (this.gameMap == null && this.gameStage.equals(GameStage.CREATED))
-            this.gameMap = this.gameplay.makeGameMap();
+            this.gameMap = GameMapTemplates.makeGameMap(this.gameplay, new Random(this.seed));
 
         return this.gameMap;
     }
@@ -96,6 +285,15 @@ public class GameInstance
      * @return an {@link Player} if it was successfully added, or <code>null</code> otherwise
      */
     public Player addPlayer(Character character) {
+        return mailbox.call(() -> addPlayerInMailbox(character));
+    }
+
+    /**
+     * Add a character to the game, executed in the mailbox of this instance.
+     * @param character instance of {@link Character} to be added
+     * @return an {@link Player} if it was successfully added, or <code>null</code> otherwise
+     */
+    private Player addPlayerInMailbox(Character character) {
 
         // QUANDO TIRA ESTE COMENTARIO, 20 testes não passam,
         // mas acho que era suposto ter essa regra:
@@ -119,12 +317,19 @@ public class GameInstance
 
         // Player nao ser null no character.getPlace()
         this.players.add(player);
+        this.playerOrder.add(player);
+        if (this.areaOfInterest > 0)
+            character.setInterestRadius(this.areaOfInterest);
         player.getCharacter().move(this.gameMap.getStartPlace());
 
         // 2. player's Character added to the gamemap
         this.gameMap.getStartPlace().addGameComponent(
                 character, this.gameMap.getStartPlace().getEntrance());
 
+        Visual visual = character.getVisual();
+        this.journal(JournalRecord.Type.PLAYER, String.valueOf(character.getName()),
+                visual.getPathname(), Integer.toString(visual.getWidth()), Integer.toString(visual.getHeight()));
+
         // 3. broadcast player added
         this.broadcastGameChanged(this);
 
@@ -151,8 +356,10 @@ public class GameInstance
      * @param player player ready to start the game
      */
     public void playerReady(Player player) {
-            if (this.getPlayerCount() == this.gameplay.getMaxPlayers())
+        mailbox.run(() -> {
+            if (this.gameStage == GameStage.CREATED && this.getPlayerCount() == this.gameplay.getMaxPlayers())
                 this.startPlayingGame();
+        });
 //        if (player == null)
 //            throw new RuntimeException("playerReady: player is null");
 
@@ -243,7 +450,14 @@ public class GameInstance
      * implNote - {@link IllegalStateException} raised if game cannot be created.
      */
     public void startPlayingGame() {
+        mailbox.run(() -> startPlayingGameInMailbox(new Date()));
+    }
 
+    /**
+     * Start the game, executed in the mailbox of this instance.
+     * @param startedAt time when the game started, recorded in the journal so that replays restore it
+     */
+    private void startPlayingGameInMailbox(Date startedAt) {
         if(this.gameStage == null)
             throw new IllegalStateException("GameInstance.startPlaying: game not created");
 
@@ -254,10 +468,16 @@ public class GameInstance
             throw new IllegalStateException("GameInstance.startPlaying: Game has ended, cannot start again.");
 
         this.gameStage = GameStage.PLAYING;
-        this.timeStarted = new Date();
+        this.timeStarted = startedAt;
+        this.journal(JournalRecord.Type.START, Long.toString(startedAt.getTime()));
 
         this.broadcastGameChanged(this);
-        this.multicastSceneUpdate(this.gameMap.getStartPlace());
+
+        // changes made while building the map and adding players are not deltas of any scene seen so far
+        for (Place place : this.gameMap.getPlaces())
+            place.drainChanges();
+
+        this.multicastSceneSnapshot(this.gameMap.getStartPlace());
     }
 
     /**
@@ -272,10 +492,19 @@ public class GameInstance
      * End the game, if it is currently playing, otherwise raise an {@link IllegalStateException}.
      */
     public void endPlayingGame() {
+        mailbox.run(() -> endPlayingGameInMailbox(new Date()));
+    }
+
+    /**
+     * End the game, executed in the mailbox of this instance.
+     * @param endedAt time when the game ended, recorded in the journal so that replays restore it
+     */
+    private void endPlayingGameInMailbox(Date endedAt) {
         if (this.gameStage.equals(GameStage.PLAYING)) {
 
             this.gameStage = GameStage.ENDED;
-            this.timeEnded = new Date();
+            this.timeEnded = endedAt;
+            this.journal(JournalRecord.Type.END, Long.toString(endedAt.getTime()));
 
             // broadcast game ended.
             this.broadcastGameChanged(this);
@@ -294,6 +523,9 @@ public class GameInstance
      * (Otherwise, an {@link IllegalArgumentException} exception is raised.)
      * Errors reported by commands are returned as a string.
      * A successful command execution returns <code>null</code>.
+     * After each command the end condition of the gameplay is checked, and the game ends if it is met.
+     * The command is executed in the mailbox of this instance, after those already submitted,
+     * and this method waits for it to complete.
      * @param player player executing the command
      * @param action to be executed
      * @param object of the action
@@ -302,38 +534,324 @@ public class GameInstance
     public String executeCommand(Player player,
                                  Action action,
                                  Object object) {
+        checkCommand(player);
+
+        return mailbox.call(() -> executeCommandInMailbox(player, action, object));
+    }
+
+    /**
+     * Submit a command by an identified player, without waiting for it to be executed.
+     * Commands are executed in the order they were submitted, as {@link #executeCommand(Player, Action, Object)}.
+     * The game stage and the player are checked when submitting, raising the same exceptions,
+     * and checked again when executing, since the game may have ended in the meantime;
+     * in that case the future completes exceptionally.
+     * @param player player executing the command
+     * @param action to be executed
+     * @param object of the action
+     * @return future completed with the status of the command execution, or <code>null</code> if successful
+     */
+    public CompletableFuture<String> executeCommandAsync(Player player,
+                                                         Action action,
+                                                         Object object) {
+        checkCommand(player);
+
+        return mailbox.submit(() -> executeCommandInMailbox(player, action, object));
+    }
+
+    /**
+     * Execute a batch of commands by an identified player, with a single update per changed scene and inventory.
+     * Commands are executed in order, in the mailbox of this instance, with no other command in between.
+     * Scene and inventory updates are deferred until the batch ends, and then each place whose scene changed
+     * is multicast once, with all its changes, and each character whose inventory changed is sent it once.
+     * The batch stops at the first command that reports an error, or when the end condition is met;
+     * the commands executed before are not undone. The end condition is checked when the batch ends.
+     * @param player player executing the commands
+     * @param commands to be executed, in order
+     * @return status of each command executed, <code>null</code> if successful; fewer than the commands if stopped
+     */
+    public List<String> executeCommands(Player player,
+                                        List<CommandRequest> commands) {
+        if (commands == null)
+            throw new IllegalArgumentException("GameInstance.executeCommands: commands is null.");
+
+        for (CommandRequest command : commands)
+            if (command == null)
+                throw new IllegalArgumentException("GameInstance.executeCommands: command is null.");
+
+        checkCommand(player);
+
+        List<CommandRequest> batch = List.copyOf(commands);
+
+        return mailbox.call(() -> executeCommandsInMailbox(player, batch));
+    }
+
+    /**
+     * Check if a player can execute commands, i.e. the game is playing and the player is in it.
+     * @param player player executing the command
+     */
+    private void checkCommand(Player player) {
         if (!this.gameStage.equals(GameStage.PLAYING)){
             throw new IllegalStateException("GameInstance.executeCommand: GameStage is not PLAYING.");
         }
         if (!this.players.contains(player)){
             throw new IllegalArgumentException("GameInstance.executeCommand: Player not in the game.");
         }
+    }
 
-        // Necessary for move back, when object is null.
-        String objectName = null;
-        if (object!=null)
-            object.toString();
+    /**
+     * Execute a command, in the mailbox of this instance, and check the end condition afterwards.
+     * @param player player executing the command
+     * @param action to be executed
+     * @param object of the action
+     * @return status of the command execution, or <code>null</code> if the command was executed successfully.
+     */
+    private String executeCommandInMailbox(Player player,
+                                           Action action,
+                                           Object object) {
+        String status = handleCommand(player, action, object);
+
+        checkEndCondition();
+        saveSnapshotIfDue();
 
-        String methodName = "execute" + action.getTitle();
-        Method method;
+        return status;
+    }
+
+    /**
+     * Execute a batch of commands, in the mailbox of this instance, deferring the updates they send.
+     * @param player player executing the commands
+     * @param commands to be executed, in order
+     * @return status of each command executed
+     */
+    private List<String> executeCommandsInMailbox(Player player,
+                                                  List<CommandRequest> commands) {
+        List<String> statuses = new ArrayList<>();
 
+        this.beginUpdateBatch();
         try {
-            method = this.getClass().getDeclaredMethod(methodName, Character.class, Object.class);
-        } catch (NoSuchMethodException e) {
-            return "GameInstance.executeCommand: method " + methodName + " doesnt exist.";
+            for (CommandRequest command : commands) {
+                String status = handleCommand(player, command.action(), command.object());
+
+                statuses.add(status);
+
+                if (status != null || this.endCondition.isMet())
+                    break;
+            }
+        }
+        finally {
+            this.endUpdateBatch();
         }
-        try{
-        method.setAccessible(true);
-        System.out.println("Estou a invocar o metodo : " + method.getName());
-        method.invoke(this, player.playerCharacter, object);
+
+        checkEndCondition();
+        saveSnapshotIfDue();
+
+        return statuses;
+    }
+
+    /**
+     * Execute a command with the handler registered for its action.
+     * @param player player executing the command
+     * @param action to be executed
+     * @param object of the action
+     * @return status of the command execution, or <code>null</code> if the command was executed successfully.
+     */
+    private String handleCommand(Player player,
+                                 Action action,
+                                 Object object) {
+        checkCommand(player);
+
+        CommandHandler handler = this.commandHandlers.get(action);
+
+        if (handler == null)
+            return "GameInstance.executeCommand: no handler for action " + action + ".";
+
+        // the fields are only encoded if journaled, since commands are on the hot path
+        CommandJournal journal = this.journal;
+        if (journal != null)
+            journal.append(JournalRecord.Type.COMMAND, Integer.toString(playerOrder.indexOf(player)),
+                    action.name(), encodeObject(object));
+
+        try {
+            return handler.execute(this, player.playerCharacter, object);
         }
-        catch (InvocationTargetException | IllegalAccessException e){
-            return ("GameInstance.executeCommand: error invoking method "
-                    + methodName + "(" + this.toString() + "," + player.playerCharacter.toString()
-                    + "," + objectName + ");");
+        catch (RuntimeException e) {
+            return "GameInstance.executeCommand: error executing " + action + " on " + object + ": " + e.getMessage();
         }
+    }
 
-        return null;
+    /**
+     * Append a record to the journal of this instance, if it has one.
+     * @param type of record
+     * @param fields of the record
+     */
+    private void journal(JournalRecord.Type type, String... fields) {
+        CommandJournal journal = this.journal;
+
+        if (journal != null)
+            journal.append(type, fields);
+    }
+
+    /**
+     * Save a snapshot of this instance in its journal, if enough records were appended since the last one.
+     * The snapshot is skipped if some component of the game cannot be serialized.
+     */
+    private void saveSnapshotIfDue() {
+        CommandJournal journal = this.journal;
+
+        if (journal == null || !journal.isSnapshotDue())
+            return;
+
+        List<Character> characters = new ArrayList<>();
+        for (Player player : playerOrder)
+            characters.add(player.playerCharacter);
+
+        try {
+            journal.snapshot(new GameSnapshot(gameMap, characters, gameStage, timeStarted, timeEnded).serialize());
+        }
+        catch (IOException e) {
+            journal.skipSnapshot();
+        }
+    }
+
+    /**
+     * Encode the object of a command.
+     * Positionables of the game map are referred to by their id, which is the same when replaying the journal,
+     * since the map is built and changed in the same order. Other objects are journaled by their value.
+     * @param object of the command
+     * @return encoded object
+     */
+    private String encodeObject(Object object) {
+        return switch (object) {
+            case null -> "N";
+            case String text -> "T" + text;
+            case Position position -> "X" + position.getX() + "," + position.getY();
+            case Positionable positionable -> gameMap.getComponent(positionable.getId()) == positionable
+                    ? "C" + positionable.getId() : "U" + positionable.getDescription();
+            default -> "U" + object;
+        };
+    }
+
+    /**
+     * Decode the object of a journaled command.
+     * Objects that could not be encoded are decoded as <code>null</code>.
+     * @param code of the object
+     * @return object of the command
+     */
+    private Object decodeObject(String code) {
+        String value = code.substring(1);
+
+        return switch (code.charAt(0)) {
+            case 'T' -> value;
+            case 'X' -> {
+                String[] coordinates = value.split(",");
+
+                yield new Position(Integer.parseInt(coordinates[0]), Integer.parseInt(coordinates[1]));
+            }
+            case 'C' -> gameMap.getComponent(Integer.parseInt(value));
+            default -> null;
+        };
+    }
+
+    /**
+     * Replay records of the journal of this instance, in its mailbox.
+     * Used by {@link JournalReplay} before the instance is shared, and before a journal is set.
+     * implNote - {@link IllegalStateException} raised if a record cannot be replayed.
+     * @param records to replay, in order
+     */
+    void replay(List<JournalRecord> records) {
+        mailbox.run(() -> {
+            for (JournalRecord record : records)
+                replay(record);
+        });
+    }
+
+    /**
+     * Replay a record of the journal of this instance.
+     * @param record to replay
+     */
+    private void replay(JournalRecord record) {
+        switch (record.type()) {
+            case HEADER -> { }
+            case PLAYER -> {
+                Visual visual = new Visual(record.field(1),
+                        Integer.parseInt(record.field(2)), Integer.parseInt(record.field(3)));
+                Avatar avatar = new Avatar() {
+                    @Override
+                    public String getAvatarName() {
+                        return record.field(0);
+                    }
+
+                    @Override
+                    public Visual getAvatarVisual() {
+                        return visual;
+                    }
+                };
+
+                if (addPlayerInMailbox(new Character(record.field(0), avatar)) == null)
+                    throw new IllegalStateException("GameInstance.replay: cannot add player in record " + record.sequence() + ".");
+            }
+            case START -> startPlayingGameInMailbox(recordedTime(record));
+            case END -> {
+                // the end condition may have ended the game already, at the time of the replay
+                if (this.gameStage == GameStage.PLAYING)
+                    endPlayingGameInMailbox(recordedTime(record));
+                else if (this.gameStage == GameStage.ENDED && !record.fields().isEmpty())
+                    this.timeEnded = recordedTime(record);
+            }
+            case COMMAND -> {
+                Player player = playerOrder.get(Integer.parseInt(record.field(0)));
+
+                executeCommandInMailbox(player, Action.valueOf(record.field(1)),
+                        decodeObject(record.field(2)));
+            }
+        }
+    }
+
+    /**
+     * Time recorded in a {@link JournalRecord.Type#START} or {@link JournalRecord.Type#END} record.
+     * @param record with the time
+     * @return recorded time, or the current time for records written before times were recorded
+     */
+    private static Date recordedTime(JournalRecord record) {
+        return record.fields().isEmpty() ? new Date() : new Date(Long.parseLong(record.field(0)));
+    }
+
+    /**
+     * End the game if it is playing and the end condition of the gameplay is met.
+     */
+    private void checkEndCondition() {
+        if (this.gameStage == GameStage.PLAYING && this.endCondition.isMet())
+            this.endPlayingGame();
+    }
+
+    /**
+     * Send the player a snapshot of the place where its character is,
+     * executed in the mailbox of this instance so that it is ordered with the deltas sent by commands.
+     * @param player asking for a resync
+     */
+    @Override
+    public void requestSceneResync(Player player) {
+        mailbox.run(() -> super.requestSceneResync(player));
+    }
+
+    /**
+     * Deliver scene deltas and messages by area of interest,
+     * executed in the mailbox of this instance since places update their index of areas of interest.
+     * @param radius of the areas of interest, or 0 to deliver to all characters in the place
+     */
+    @Override
+    public void setAreaOfInterest(int radius) {
+        mailbox.run(() -> super.setAreaOfInterest(radius));
+    }
+
+    /**
+     * Change the radius of the area of interest of a player's character,
+     * executed in the mailbox of this instance since places update their index of areas of interest.
+     * @param player whose character's area changes
+     * @param radius of the area of interest, or 0 to be interested in the whole place
+     */
+    @Override
+    public void setInterestRadius(Player player, int radius) {
+        mailbox.run(() -> super.setInterestRadius(player, radius));
     }
 
     /**
@@ -355,7 +873,8 @@ public class GameInstance
             return "GameInstance.executeMove: object is not a Position nor a Place";
 
         if (object instanceof Position newPosition){ //It's a Position
-            character.moveTo(newPosition);
+            if (!character.getPlace().moveGameComponent(character, newPosition))
+                character.moveTo(newPosition);
             this.multicastSceneUpdate(character.getPlace());
         }
 
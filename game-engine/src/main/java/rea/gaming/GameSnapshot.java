@@ -0,0 +1,72 @@
+package rea.gaming;
+
+import rea.components.Character;
+import rea.components.GameMap;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * <p>Serializable state of a game instance, saved periodically with its {@link CommandJournal}
+ * so that recovery only replays the records after it. The characters of the players are
+ * in the order they were added, since journal records refer to players by that order.</p>
+ * @param gameMap of the game instance, including the characters in its places
+ * @param characters of the players, in the order they were added
+ * @param stage of the game
+ * @param started time when the game started, or <code>null</code>
+ * @param ended time when the game ended, or <code>null</code>
+ */
+record GameSnapshot(GameMap gameMap,
+                    List<Character> characters,
+                    GameStage stage,
+                    Date started,
+                    Date ended)
+        implements Serializable {
+
+    /**
+     * Create a snapshot, copying the list of characters.
+     */
+    GameSnapshot {
+        characters = new ArrayList<>(characters);
+    }
+
+    /**
+     * Serialize this snapshot.
+     * @return bytes of the snapshot
+     * @throws IOException if some component of the game cannot be serialized
+     */
+    byte[] serialize()
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(this);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Deserialize a snapshot.
+     * @param bytes of the snapshot
+     * @return snapshot
+     * @throws IOException if the bytes are not a snapshot
+     * @throws ClassNotFoundException if the class of some component is not found
+     */
+    static GameSnapshot deserialize(byte[] bytes)
+            throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            if (in.readObject() instanceof GameSnapshot snapshot)
+                return snapshot;
+
+            throw new IOException("GameSnapshot.deserialize: not a game snapshot.");
+        }
+    }
+}
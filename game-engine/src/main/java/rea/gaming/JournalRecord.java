@@ -0,0 +1,104 @@
+package rea.gaming;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>A record in the {@link CommandJournal} of a game instance.
+ * Each record has a type, the sequence in which it was appended to the journal,
+ * and text fields that depend on the type:</p>
+ * <ul>
+ *     <li>{@link Type#HEADER}: gameplay name and seed of the game map, always the first record;</li>
+ *     <li>{@link Type#PLAYER}: name and avatar name of the character added;</li>
+ *     <li>{@link Type#START} and {@link Type#END}: time when the game started or ended, in milliseconds
+ *     since the epoch (no fields in journals written before times were recorded);</li>
+ *     <li>{@link Type#COMMAND}: index of the player in the order players were added, action and object.</li>
+ * </ul>
+ * @param type of record
+ * @param sequence of the record in the journal, starting at 0 for the header
+ * @param fields of the record
+ */
+public record JournalRecord(Type type, long sequence, List<String> fields) {
+
+    /**
+     * Types of journal records.
+     */
+    public enum Type { HEADER, PLAYER, START, COMMAND, END }
+
+    /**
+     * Create a journal record.
+     * @param type of record
+     * @param sequence of the record in the journal
+     * @param fields of the record, none <code>null</code>
+     */
+    public JournalRecord {
+        if (type == null || fields == null)
+            throw new IllegalArgumentException("JournalRecord: type or fields is null.");
+
+        fields = List.copyOf(fields);
+    }
+
+    /**
+     * Get a field of this record.
+     * @param index of the field
+     * @return text of the field
+     */
+    public String field(int index) {
+        if (index < 0 || index >= fields.size())
+            throw new IllegalStateException("JournalRecord.field: " + type + " record " + sequence + " has no field " + index + ".");
+
+        return fields.get(index);
+    }
+
+    /**
+     * Encode this record as bytes, to be framed and checksummed by the journal.
+     * @return encoded record
+     */
+    byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(type.ordinal());
+            out.writeLong(sequence);
+            out.writeShort(fields.size());
+            for (String field : fields)
+                out.writeUTF(field);
+        }
+        catch (IOException e) {
+            throw new IllegalStateException("JournalRecord.encode: " + e.getMessage());
+        }
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode a record from the bytes created by {@link #encode()}.
+     * @param payload encoded record
+     * @return decoded record
+     * @throws IOException if the bytes are not a valid record
+     */
+    static JournalRecord decode(byte[] payload)
+            throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            int ordinal = in.readUnsignedByte();
+
+            if (ordinal >= Type.values().length)
+                throw new IOException("JournalRecord.decode: invalid type " + ordinal + ".");
+
+            Type type = Type.values()[ordinal];
+            long sequence = in.readLong();
+            int count = in.readUnsignedShort();
+            List<String> fields = new ArrayList<>(count);
+
+            for (int i = 0; i < count; i++)
+                fields.add(in.readUTF());
+
+            return new JournalRecord(type, sequence, fields);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package rea.gaming;
+
+import rea.ReaException;
+import rea.gameplay.AbstractGameplayFactory;
+import rea.gameplay.Gameplay;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * <p>Replay engine that rebuilds a game instance from its {@link CommandJournal}, typically after a restart.
+ * The header of the journal gives the gameplay and the seed of the game map.
+ * If there is a valid snapshot, the instance is restored from it and only the later records are replayed;
+ * otherwise a new instance is created and all the records are replayed.
+ * Records are replayed as they were executed, since the gameplay and the game map are deterministic,
+ * and a torn record at the end of the journal is discarded.
+ * The rebuilt instance keeps appending to the same journal.</p>
+ */
+public final class JournalReplay {
+
+    private JournalReplay() {
+    }
+
+    /**
+     * Rebuild a game instance from its journal.
+     * @param journalPath path of the journal
+     * @param gameplayFactory to get the gameplay named in the header
+     * @param snapshotInterval records between snapshots of the rebuilt instance
+     * @return rebuilt game instance, journaling to the same journal
+     * @throws ReaException if the journal cannot be read or replayed
+     */
+    public static GameInstance recover(Path journalPath,
+                                       AbstractGameplayFactory gameplayFactory,
+                                       int snapshotInterval)
+            throws ReaException {
+        if (journalPath == null || gameplayFactory == null)
+            throw new ReaException("JournalReplay.recover: journal or gameplay factory is null.");
+
+        try {
+            CommandJournal.Contents head = CommandJournal.read(journalPath, 0, 1);
+
+            if (head.records().isEmpty() || head.records().get(0).type() != JournalRecord.Type.HEADER)
+                throw new ReaException("JournalReplay.recover: no header in " + journalPath + ".");
+
+            JournalRecord header = head.records().get(0);
+            Gameplay gameplay = gameplayFactory.getGameplay(header.field(0));
+
+            if (gameplay == null)
+                throw new ReaException("JournalReplay.recover: unknown gameplay " + header.field(0) + ".");
+
+            long seed = Long.parseLong(header.field(1));
+            CommandJournal.SnapshotFile snapshot = CommandJournal.readSnapshot(journalPath);
+            GameInstance gameInstance = restore(gameplay, seed, snapshot);
+            long position = head.validLength();
+            long sequence = header.sequence();
+
+            if (gameInstance != null) {
+                position = snapshot.journalPosition();
+                sequence = snapshot.sequence();
+            }
+            else
+                gameInstance = new GameInstance(gameplay, seed);
+
+            CommandJournal.Contents tail = CommandJournal.read(journalPath, position, Integer.MAX_VALUE);
+            List<JournalRecord> records = tail.records();
+
+            for (JournalRecord record : records)
+                if (record.sequence() != ++sequence)
+                    throw new ReaException("JournalReplay.recover: expected record " + sequence
+                            + " but found " + record.sequence() + " in " + journalPath + ".");
+
+            gameInstance.replay(records);
+            gameInstance.setJournal(CommandJournal.reopen(journalPath, tail.validLength(),
+                    sequence + 1, records.size(), snapshotInterval));
+
+            return gameInstance;
+        }
+        catch (IOException | RuntimeException e) {
+            throw new ReaException("JournalReplay.recover: cannot replay " + journalPath + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Restore a game instance from a snapshot.
+     * @param gameplay of the game instance
+     * @param seed of the game map
+     * @param snapshot of the game instance, possibly <code>null</code>
+     * @return restored game instance, or <code>null</code> if there is no usable snapshot
+     */
+    private static GameInstance restore(Gameplay gameplay, long seed, CommandJournal.SnapshotFile snapshot) {
+        if (snapshot == null)
+            return null;
+
+        try {
+            return new GameInstance(gameplay, seed, GameSnapshot.deserialize(snapshot.state()));
+        }
+        catch (IOException | ClassNotFoundException e) {
+            // the journal alone is enough to recover
+            return null;
+        }
+    }
+}
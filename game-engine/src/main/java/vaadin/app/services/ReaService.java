@@ -1,6 +1,7 @@
 package vaadin.app.services;
 
 import java.io.Serializable;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Set;
 
@@ -18,6 +19,7 @@ import rea.gaming.GameInstance;
 @Service
 public class ReaService implements Serializable {
     public static final String REA_GAMES = "rea.gameplay";
+    public static final String JOURNAL_DIRECTORY_PROPERTY = "rea.journal.directory";
     static GameInstance gameInstanceBeingPlayed;
     static Character characterBeingPlayed;
     //Character characterBeingPlayed = createdEmptyCharacter();
@@ -38,6 +40,13 @@ public class ReaService implements Serializable {
         defaultGameplayFactory = new GameplayFactory();
         pool.setGameplayFactory(defaultGameplayFactory);
 
+        // games are journaled, and recovered after a restart, only if a journal directory is given
+        String journalDirectory = System.getProperty(JOURNAL_DIRECTORY_PROPERTY);
+        if (journalDirectory != null) {
+            Manager.setJournalDirectory(Path.of(journalDirectory));
+            pool.recoverGameInstances();
+        }
+
         //Set<String> availableGames =  defaultGameplayFactory.getAvailableGameplays();
         availableGames = pool.getAvailableGames();
 
@@ -60,6 +60,8 @@ public class MainView extends Div {
         tabSheet = createTabSheet();
 
         this.add( tabSheet );
+
+        subscribeGamesUpdate();
     }
 
     /**
@@ -68,20 +70,33 @@ public class MainView extends Div {
     private void initializesManager() {
         try {
             manager = Manager.getInstance();
-            manager.addGamesUpdateListener(e -> {
-                this.getUI().get().access(() ->{
-                    Notification.show("Added a new Game").addThemeVariants(NotificationVariant.LUMO_WARNING);
-                }
-                );
-                manager.updateGrid(manageGamesPanel.grid);
-                this.gamesCounterBadge.setText(String.valueOf(manager.getGameInstances().size()));
-            });
-
         } catch (ReaException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Subscribes to changes in the games of the Manager.
+     * A snapshot of the games is received when subscribing, and deltas afterwards.
+     */
+    private void subscribeGamesUpdate() {
+        manager.subscribeGamesUpdate(e -> {
+            if (e.isSnapshot()) {
+                manager.updateGrid(manageGamesPanel.grid, e);
+                this.gamesCounterBadge.setText(String.valueOf(manager.getGameInstanceCount()));
+                return;
+            }
+
+            this.getUI().get().access(() ->{
+                if (!e.getAdded().isEmpty())
+                    Notification.show("Added a new Game").addThemeVariants(NotificationVariant.LUMO_WARNING);
+
+                manager.updateGrid(manageGamesPanel.grid, e);
+                this.gamesCounterBadge.setText(String.valueOf(manager.getGameInstanceCount()));
+            });
+        });
+    }
+
     /**
      * Creates TabSheet that will provide access to the app areas by the user.
      * @return TabSheet
@@ -104,7 +119,7 @@ public class MainView extends Div {
 
         // Manage Games tab
         // TODO verificar linha abaixo
-        gamesCounterBadge = new Span(String.valueOf(manager.getGameInstances().size()));
+        gamesCounterBadge = new Span(String.valueOf(manager.getGameInstanceCount()));
 
         gamesCounterBadge.getElement().getThemeList().add("badge pill small contrast");
         gamesCounterBadge.getStyle().set("margin-inline-start", "var(--lumo-space-xs)");
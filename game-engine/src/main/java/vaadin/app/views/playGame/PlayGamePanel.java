@@ -13,11 +13,11 @@ import com.vaadin.flow.component.orderedlayout.Scroller;
 import com.vaadin.flow.component.orderedlayout.HorizontalLayout;
 import com.vaadin.flow.component.orderedlayout.VerticalLayout;
 import com.vaadin.flow.component.textfield.TextField;
+import com.vaadin.flow.server.Command;
 import com.vaadin.flow.theme.lumo.LumoUtility;
 import rea.Manager;
 import rea.ReaException;
 import rea.components.Character;
-import rea.components.Item;
 import rea.components.Positionable;
 import rea.gameplay.games.CartoonAvatar;
 import rea.gaming.Action;
@@ -32,6 +32,8 @@ import vaadin.app.views.playGame.inventory.InventoryPanel;
 import vaadin.app.views.playGame.scene.SceneLayout;
 import vaadin.app.views.playGame.scene.ScenePanel;
 
+import java.util.ArrayList;
+
 /**
  * Panel for playing a game.
  */
@@ -125,9 +127,11 @@ public class PlayGamePanel extends VerticalLayout {
         gameInstance.addGameChangedListener( e -> {
             if (e.getGameInstance().getCurrentStage().equals(GameStage.ENDED)){
                 // Parte que faz o "reset" da characterbeyingplayed
-                mainView.setCharacterBeingPlayed(new Character("Anonymous", CartoonAvatar.BUNNY));
-                mainView.removePlayGameTab();
-                mainView.goToTab(mainView.manageGamesTab);
+                accessUI(() -> {
+                    mainView.setCharacterBeingPlayed(new Character("Anonymous", CartoonAvatar.BUNNY));
+                    mainView.removePlayGameTab();
+                    mainView.goToTab(mainView.manageGamesTab);
+                });
 
                 //Display a notification indication tha the game ended
                 //this.getUI().get().access(()->{
@@ -137,45 +141,37 @@ public class PlayGamePanel extends VerticalLayout {
         });
 
         gameInstance.addInventoryUpdateListener(player,e ->{
-            inventoryPanel.refreshInventoryPanelData(e.getInventory(), e.getHolding());
-
-            //We tried using gameInstance.gameplay.gamedEnded(gameInstance.getGameMap())
-            // but for some reason it didn't remove the treasure from the gameMap
-            // , but it removed the key (we did a workaround , just verifying
-            // if the player has the treasure , wich indicates we can end
-            // in TreasureHunt) . For the EasterEggRace  check bellow
-            //
-            for (Item i : player.getCharacter().getInventory()){
-                if (i.getDescription().equals("treasure")){
-                    gameInstance.endPlayingGame();
-                }
-            }
-
+            accessUI(() -> inventoryPanel.refreshInventoryPanelData(e.getInventory(), e.getHolding()));
         });
 
-        gameInstance.addSceneUpdateListener(player , e ->{
-            scenePanel.resetSceneLayout();
-            scenePanel.changeBackground(e.getBackground());
-            scenePanel.displayPositionables(e.getPositionables());
-
-            //We had to put gameplay public to make this possible
-            if (gameInstance.gameplay.gamedEnded(gameInstance.getGameMap())){
-                gameInstance.endPlayingGame();
-            }
+        gameInstance.addSceneDeltaListener(player , e ->{
+            accessUI(() -> scenePanel.applySceneDelta(e));
         });
 
         gameInstance.addMessageUpdateListener(player ,e -> {
             String speaker = e.getSpeaker().getName();
             String message = e.getMessage();
 
-            this.getUI().get().access(()->{
+            accessUI(()->{
                 Notification.show(speaker + " : " + message).addThemeVariants(NotificationVariant.LUMO_SUCCESS);
             });
         });
     }
 
+    /**
+     * Run a command that changes this panel while holding the lock of its UI.
+     * Player listeners are invoked from the threads delivering game events,
+     * hence changes to components must go through {@link UI#access(Command)}.
+     * The command is discarded if this panel is no longer attached to a UI.
+     * @param command to run
+     */
+    private void accessUI(Command command) {
+        getUI().ifPresent(ui -> ui.access(command));
+    }
+
     public void testInventoryUpdateListener(GameInstance g){
-        for(Positionable p : g.getGameMap().getStartPlace().getPositionables()){
+        // copied, since picking changes the positionables in the place
+        for(Positionable p : new ArrayList<>(g.getGameMap().getStartPlace().getPositionables())){
             if(p instanceof  Character c ){
                 //System.out.println("---->Character : " + c.getName());
             }
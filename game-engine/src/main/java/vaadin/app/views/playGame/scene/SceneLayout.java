@@ -9,10 +9,9 @@ import com.vaadin.flow.component.page.Page;
 import com.vaadin.flow.dom.Element;
 import com.vaadin.flow.dom.Style;
 import elemental.json.JsonObject;
+import rea.components.SpatialIndex;
 
 import java.awt.Rectangle;
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * <p>A layout that allows absolute positioning of components while preventing overlap, if required.
@@ -175,9 +174,9 @@ public class SceneLayout extends Div {
     }
 
     /**
-     * List of non-overlapping rectangles that are already in place.
+     * Spatial index of non-overlapping rectangles that are already in place.
      */
-    List<Rectangle> rectangles = new ArrayList<>();
+    SpatialIndex<Rectangle> rectangles = new SpatialIndex<>();
 
     /**
      * The side to which a component should be moved if overlapping.
@@ -231,13 +230,14 @@ public class SceneLayout extends Div {
 
         var style = component.getElement().getStyle();
 
-        var overlap = rectangles.stream().filter(r -> r.intersects(rectangle)).findFirst().orElse(null);
+        var overlapping = rectangles.intersecting(rectangle.x, rectangle.y, rectangle.width, rectangle.height);
+        var overlap = overlapping.isEmpty() ? null : overlapping.getFirst();
 
         if (overlap != null) {
             add(component, onSide( rectangle, overlap, side), side);
         } else {
 
-            rectangles.add(rectangle);
+            rectangles.put(rectangle, rectangle.x, rectangle.y, rectangle.width, rectangle.height);
 
             add(component);
 
@@ -1,5 +1,6 @@
 package vaadin.app.views.playGame.scene;
 
+import com.vaadin.flow.component.Component;
 import com.vaadin.flow.component.Key;
 import com.vaadin.flow.component.Text;
 import com.vaadin.flow.component.button.Button;
@@ -18,13 +19,17 @@ import com.vaadin.flow.component.textfield.TextField;
 import com.vaadin.flow.theme.lumo.LumoUtility;
 import rea.components.*;
 import rea.components.Character;
+import rea.events.SceneDeltaEvent;
 import rea.gaming.Action;
 import rea.gaming.GameInstance;
 import rea.gaming.Player;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.Random;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SplittableRandom;
 
 /**
  * HorizontalPanel with scene from the game
@@ -40,6 +45,25 @@ public class ScenePanel extends HorizontalLayout {
      */
     final int POSITIONABLE_HEIGHT = 120;
 
+    /**
+     * Components displayed for each positionable, to apply scene deltas.
+     */
+    private final Map<Positionable, Component> displayedPositionables = new IdentityHashMap<>();
+
+    /**
+     * Place and sequence of the scene displayed, to detect gaps in scene deltas.
+     */
+    private Place displayedPlace;
+    private long displayedSequence;
+    private boolean resyncRequested;
+
+    /**
+     * Vertical slot of each character displayed, used to avoid overlapping.
+     * A character keeps its slot while it is in the scene, hence moving it does not push it further down,
+     * and the slot is freed when it is removed.
+     */
+    private final Map<Positionable, Integer> characterSlots = new IdentityHashMap<>();
+
     /**
      * Constructor
      * @param gi GameInstance being played
@@ -73,139 +97,229 @@ public class ScenePanel extends HorizontalLayout {
      * @param positionables List of Positionables
      */
     public void displayPositionables(List<Positionable> positionables) {
-        // used to avoid overlapping
-        int characterCount = 0;
-
-        for (Positionable p : positionables) {
-            String className = p.getClass().getName().toLowerCase();
-            className = className.substring(className.lastIndexOf(".") + 1);
-
-            Image img = createPositionableImage(p);
-
-            img.setWidth(String.valueOf(p.getVisual().getWidth()));
-            img.setHeight(String.valueOf(p.getVisual().getHeight()));
-
-            // Image Style
-            img.addClassNames("scene-positionable-max-size",
-                    className + "-positionable-img",
-                    LumoUtility.Margin.XSMALL
-            );
-
-            // Menu with actions
-            MenuBar menuBar = new MenuBar();
-            menuBar.setHeight((POSITIONABLE_HEIGHT - 10) + "px");
-            menuBar.addClassName(LumoUtility.Background.TRANSPARENT);
-            MenuItem infoMenu = menuBar.addItem(img);
-            infoMenu.addClassNames("scene-positionable-size-added",
-                    LumoUtility.Background.TRANSPARENT);
-            SubMenu subMenu = infoMenu.getSubMenu();
-
-            // - Look and Use are possible interactions with any positionable.
-            MenuItem lookMenu = subMenu.addItem(VaadinIcon.EYE.create());
-            lookMenu.add("Look");
-            lookMenu.addClickListener(e -> {
-                String thingLooked = (p == player.getCharacter())? "image of yourself and contemplated it" : p.getDescription();
-                String msg = gameInstance.executeCommand(player, Action.LOOK, p);
-                Notification notification = Notification.show((msg != null ? "You tried to look at " : "You looked at ") + getStringWithArticle(thingLooked));
-                notification.addThemeVariants(NotificationVariant.LUMO_SUCCESS);
-            });
-            lookMenu.setEnabled(true);
-
-            MenuItem useMenu = subMenu.addItem(VaadinIcon.MAGIC.create());
-            useMenu.add("Use");
-            useMenu.addClickListener(e -> {
-                Item holdingItemBeforeUse = player.getCharacter().getHolding();
-                String holdingBeforeUseName = holdingItemBeforeUse.getDescription();
-                String msg = gameInstance.executeCommand(player, Action.USE, p);
-                Notification.show((msg != null ? "You tried to use" : "You used")
-                        + (holdingItemBeforeUse == null ? " nothing" : " " + holdingBeforeUseName)
-                        + " into " + p.getDescription());
-            });
-            useMenu.setEnabled(true);
-
-            // - Set it all to Enabled = false, to set it to true if needed
-            MenuItem backMenu = subMenu.addItem(VaadinIcon.ARROW_BACKWARD.create());
-            backMenu.add("Back");
-            backMenu.addClickListener(e -> {
-                String msg = gameInstance.executeCommand(player, Action.BACK, null);
-                Notification.show((msg != null ? "You tried to move back" : "You moved back") + " to previous place");
-                if (msg != null) {
-                    Notification notification = Notification.show(p.getDescription() + ": " + msg);
-                    notification.addThemeVariants(NotificationVariant.LUMO_ERROR);
-                }
-            });
-            backMenu.setEnabled(false);
+        for (Positionable p : positionables)
+            displayPositionable(p, p.getPosition());
+    }
+
+    /**
+     * Displays the positionables added by a scene delta, at the positions they had when the event was created.
+     * @param event scene delta event
+     */
+    private void displayAdded(SceneDeltaEvent event) {
+        List<Positionable> added = event.getAdded();
 
-            MenuItem talkMenu = subMenu.addItem(VaadinIcon.MEGAPHONE.create());
-            talkMenu.add("Talk");
-            talkMenu.addClickListener(e -> {
-                Dialog dialog = new Dialog();
-                VerticalLayout talkLayout = new VerticalLayout();
-                H3 header = new H3("Talk option dialog");
-                Text hint = new Text("Please enter the message you wish to send and then press enter");
-                TextField sendMessage = new TextField();
-                sendMessage.setHelperText("Enter message");
-                Button sendButton = new Button("Send");
+        for (int index = 0; index < added.size(); index++)
+            displayPositionable(added.get(index), event.getAddedPosition(index));
+    }
 
-                sendButton.addClickListener(event -> {
-                    gameInstance.executeCommand(player, Action.TALK, sendMessage.getValue());
-                    dialog.close();
-                });
+    /**
+     * Applies a scene delta: a snapshot replaces the whole scene,
+     * and a delta removes, moves and adds only the positionables that changed.
+     * If a delta does not follow the scene displayed, a resync is requested
+     * and deltas are ignored until the snapshot arrives.
+     * @param event scene delta event
+     */
+    public void applySceneDelta(SceneDeltaEvent event) {
+        if (event.isSnapshot()) {
+            resetSceneLayout();
+            changeBackground(event.getBackground());
+            displayAdded(event);
+
+            displayedPlace = event.getPlace();
+            displayedSequence = event.getSequence();
+            resyncRequested = false;
+            return;
+        }
 
-                sendButton.addClickShortcut(Key.ENTER);
+        if (resyncRequested || (event.getPlace() == displayedPlace && event.getSequence() <= displayedSequence))
+            return; // waiting for a snapshot, or changes already displayed
 
-                talkLayout.add(header, hint, sendMessage, sendButton);
+        if (event.getPlace() != displayedPlace || event.getSequence() != displayedSequence + 1) {
+            resyncRequested = true;
+            gameInstance.requestSceneResync(player);
+            return;
+        }
 
-                dialog.add(talkLayout);
-                dialog.open();
+        for (Positionable p : event.getRemoved()) {
+            removePositionable(p);
+            characterSlots.remove(p);
+        }
 
-            });
+        List<Positionable> moved = event.getMoved();
 
-            // Only talks if to a Player, and if there is someone else in the scene
-            talkMenu.setEnabled((p instanceof Character) && (gameInstance.getPlayerCount() > 1));
+        for (int index = 0; index < moved.size(); index++)
+            displayPositionable(moved.get(index), event.getMovedPosition(index));
+        displayAdded(event);
 
-            MenuItem pickMenu = subMenu.addItem(VaadinIcon.INSERT.create());
-            pickMenu.add("Pick");
-            pickMenu.addClickListener(e -> {
-                String msg = gameInstance.executeCommand(player, Action.PICK, p);
-                Notification.show((msg != null ? "You tried to pick " : "You picked ") + p.getDescription());
-            });
-            pickMenu.setEnabled(false);
+        displayedSequence = event.getSequence();
+    }
 
-            MenuItem moveMenu = subMenu.addItem(VaadinIcon.ARROW_FORWARD.create());
-            moveMenu.add("Move");
-            moveMenu.addClickListener(e -> {
-                String msg = gameInstance.executeCommand(player, Action.MOVE, p);
-                Notification.show((msg != null ? "You tried to move to " : "You moved to ") + p.getDescription());
+    /**
+     * Displays a positionable in the SceneLayout, with a menu for possible actions to perform.
+     * If the positionable is already displayed, it is replaced.
+     * @param p positionable
+     * @param position where to display the positionable
+     */
+    private void displayPositionable(Positionable p, Position position) {
+        removePositionable(p);
+
+        String className = p.getClass().getName().toLowerCase();
+        className = className.substring(className.lastIndexOf(".") + 1);
+
+        Image img = createPositionableImage(p);
+
+        img.setWidth(String.valueOf(p.getVisual().getWidth()));
+        img.setHeight(String.valueOf(p.getVisual().getHeight()));
+
+        // Image Style
+        img.addClassNames("scene-positionable-max-size",
+                className + "-positionable-img",
+                LumoUtility.Margin.XSMALL
+        );
+
+        // Menu with actions
+        MenuBar menuBar = new MenuBar();
+        menuBar.setHeight((POSITIONABLE_HEIGHT - 10) + "px");
+        menuBar.addClassName(LumoUtility.Background.TRANSPARENT);
+        MenuItem infoMenu = menuBar.addItem(img);
+        infoMenu.addClassNames("scene-positionable-size-added",
+                LumoUtility.Background.TRANSPARENT);
+        SubMenu subMenu = infoMenu.getSubMenu();
+
+        // - Look and Use are possible interactions with any positionable.
+        MenuItem lookMenu = subMenu.addItem(VaadinIcon.EYE.create());
+        lookMenu.add("Look");
+        lookMenu.addClickListener(e -> {
+            String thingLooked = (p == player.getCharacter())? "image of yourself and contemplated it" : p.getDescription();
+            String msg = gameInstance.executeCommand(player, Action.LOOK, p);
+            Notification notification = Notification.show((msg != null ? "You tried to look at " : "You looked at ") + getStringWithArticle(thingLooked));
+            notification.addThemeVariants(NotificationVariant.LUMO_SUCCESS);
+        });
+        lookMenu.setEnabled(true);
+
+        MenuItem useMenu = subMenu.addItem(VaadinIcon.MAGIC.create());
+        useMenu.add("Use");
+        useMenu.addClickListener(e -> {
+            Item holdingItemBeforeUse = player.getCharacter().getHolding();
+            String holdingBeforeUseName = holdingItemBeforeUse.getDescription();
+            String msg = gameInstance.executeCommand(player, Action.USE, p);
+            Notification.show((msg != null ? "You tried to use" : "You used")
+                    + (holdingItemBeforeUse == null ? " nothing" : " " + holdingBeforeUseName)
+                    + " into " + p.getDescription());
+        });
+        useMenu.setEnabled(true);
+
+        // - Set it all to Enabled = false, to set it to true if needed
+        MenuItem backMenu = subMenu.addItem(VaadinIcon.ARROW_BACKWARD.create());
+        backMenu.add("Back");
+        backMenu.addClickListener(e -> {
+            String msg = gameInstance.executeCommand(player, Action.BACK, null);
+            Notification.show((msg != null ? "You tried to move back" : "You moved back") + " to previous place");
+            if (msg != null) {
+                Notification notification = Notification.show(p.getDescription() + ": " + msg);
+                notification.addThemeVariants(NotificationVariant.LUMO_ERROR);
+            }
+        });
+        backMenu.setEnabled(false);
+
+        MenuItem talkMenu = subMenu.addItem(VaadinIcon.MEGAPHONE.create());
+        talkMenu.add("Talk");
+        talkMenu.addClickListener(e -> {
+            Dialog dialog = new Dialog();
+            VerticalLayout talkLayout = new VerticalLayout();
+            H3 header = new H3("Talk option dialog");
+            Text hint = new Text("Please enter the message you wish to send and then press enter");
+            TextField sendMessage = new TextField();
+            sendMessage.setHelperText("Enter message");
+            Button sendButton = new Button("Send");
+
+            sendButton.addClickListener(event -> {
+                gameInstance.executeCommand(player, Action.TALK, sendMessage.getValue());
+                dialog.close();
             });
-            moveMenu.setEnabled(false);
 
-            // Randomness not used if positionable is a Character,
-            // because of the Move action.
-            int positionX = p.getPosition().getX();
-            int positionY = p.getPosition().getY();
+            sendButton.addClickShortcut(Key.ENTER);
 
-            if (!(p instanceof Character)) {
-                positionX = addExtraRandomness(p.getPosition().getX());
-                positionY = addExtraRandomness(p.getPosition().getY());
+            talkLayout.add(header, hint, sendMessage, sendButton);
 
-                // Enables Pick if item is pickable
-                pickMenu.setEnabled(p instanceof Item item && item.isPickable());
+            dialog.add(talkLayout);
+            dialog.open();
 
-                // Enables Move if it's a Passage
-                moveMenu.setEnabled(p instanceof Passage);
-            } else {
-                // Enables Back if the Character is himself and if not in the StartPlace
-                backMenu.setEnabled((p == player.getCharacter())
-                        && (player.getCharacter().getPlace() != gameInstance.getGameMap().getStartPlace()));
+        });
 
-                // Avoids overlapping of characters
-                positionY = p.getPosition().getY() + characterCount * POSITIONABLE_HEIGHT;
-                characterCount++;
+        // Only talks if to a Player, and if there is someone else in the scene
+        talkMenu.setEnabled((p instanceof Character) && (gameInstance.getPlayerCount() > 1));
+
+        MenuItem pickMenu = subMenu.addItem(VaadinIcon.INSERT.create());
+        pickMenu.add("Pick");
+        pickMenu.addClickListener(e -> {
+            String msg = gameInstance.executeCommand(player, Action.PICK, p);
+            Notification.show((msg != null ? "You tried to pick " : "You picked ") + p.getDescription());
+        });
+        pickMenu.setEnabled(false);
+
+        MenuItem moveMenu = subMenu.addItem(VaadinIcon.ARROW_FORWARD.create());
+        moveMenu.add("Move");
+        moveMenu.addClickListener(e -> {
+            String msg = gameInstance.executeCommand(player, Action.MOVE, p);
+            Notification.show((msg != null ? "You tried to move to " : "You moved to ") + p.getDescription());
+        });
+        moveMenu.setEnabled(false);
+
+        // Randomness not used if positionable is a Character,
+        // because of the Move action.
+        int positionX = position.getX();
+        int positionY = position.getY();
+
+        if (!(p instanceof Character)) {
+            positionX = addExtraRandomness(p, position.getX(), 0);
+            positionY = addExtraRandomness(p, position.getY(), 1);
+
+            // Enables Pick if item is pickable
+            pickMenu.setEnabled(p instanceof Item item && item.isPickable());
+
+            // Enables Move if it's a Passage
+            moveMenu.setEnabled(p instanceof Passage);
+        } else {
+            // Enables Back if the Character is himself and if not in the StartPlace
+            backMenu.setEnabled((p == player.getCharacter())
+                    && (player.getCharacter().getPlace() != gameInstance.getGameMap().getStartPlace()));
+
+            // Avoids overlapping of characters
+            positionY = position.getY() + characterSlot(p) * POSITIONABLE_HEIGHT;
 
-            }
-            sceneLayout.add(menuBar, positionX, positionY);
         }
+        sceneLayout.add(menuBar, positionX, positionY);
+        displayedPositionables.put(p, menuBar);
+    }
+
+    /**
+     * Returns the vertical slot of a character, assigning it the lowest free slot if it has none.
+     * @param p character
+     * @return slot of the character
+     */
+    private int characterSlot(Positionable p) {
+        Integer slot = characterSlots.get(p);
+
+        if (slot == null) {
+            slot = 0;
+            while (characterSlots.containsValue(slot))
+                slot++;
+            characterSlots.put(p, slot);
+        }
+
+        return slot;
+    }
+
+    /**
+     * Removes a positionable from the SceneLayout, if displayed.
+     * @param p positionable
+     */
+    private void removePositionable(Positionable p) {
+        Component component = displayedPositionables.remove(p);
+
+        if (component != null)
+            sceneLayout.remove(component);
     }
 
     /**
@@ -227,6 +341,8 @@ public class ScenePanel extends HorizontalLayout {
      */
     public void resetSceneLayout(){
         sceneLayout.removeAll();
+        displayedPositionables.clear();
+        characterSlots.clear();
     }
 
     /**
@@ -249,12 +365,16 @@ public class ScenePanel extends HorizontalLayout {
 
     /**
      * Creates random positions based on the backgroundHeight.
+     * The randomness is derived from the seed of the game instance and the positionable,
+     * hence a positionable is shown in the same place whenever the scene is rendered.
+     * @param p positionable being shown
      * @param position initial position
+     * @param axis 0 for the x coordinate, 1 for the y coordinate
      * @return random position
      */
-    private int addExtraRandomness(int position){
-        Random random = new Random();
-        return random.nextInt(backgroundHeight - position);
+    private int addExtraRandomness(Positionable p, int position, int axis){
+        long seed = gameInstance.getSeed() + 31L * Objects.hash(p.getDescription(), position, axis);
+        return new SplittableRandom(seed).nextInt(backgroundHeight - position);
     }
 
     /**
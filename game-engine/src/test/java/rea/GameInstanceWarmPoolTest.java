@@ -0,0 +1,170 @@
+package rea;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import rea.gameplay.GameplayFactory;
+import rea.gaming.GameInstance;
+import rea.gaming.GameStage;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Filling, taking and refilling the ready instances of a {@link GameInstanceWarmPool}.
+ */
+class GameInstanceWarmPoolTest {
+
+    private static final String GAMEPLAY = "Treasure Hunt";
+    private static final String BROKEN = "Broken";
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    private GameplayFactory gameplayFactory;
+    private final AtomicInteger built = new AtomicInteger();
+    private GameInstanceWarmPool pool;
+
+    @BeforeEach
+    void createFactory()
+            throws ReaException {
+        gameplayFactory = new GameplayFactory();
+    }
+
+    @AfterEach
+    void shutdownPool() {
+        if (pool != null)
+            pool.shutdown();
+    }
+
+    @Test
+    void warmFillsPoolOfEachGame() {
+        pool = createPool(3);
+
+        pool.warm(List.of(GAMEPLAY));
+        await(() -> pool.getReadyCount(GAMEPLAY) == 3);
+
+        assertEquals(3, built.get());
+        assertEquals(0, pool.getHitCount());
+        assertEquals(0, pool.getMissCount());
+    }
+
+    @Test
+    void takenInstancesAreDistinctAndRefilled() {
+        pool = createPool(2);
+        pool.warm(List.of(GAMEPLAY));
+        await(() -> pool.getReadyCount(GAMEPLAY) == 2);
+
+        Set<GameInstance> taken = new HashSet<>();
+
+        for (int round = 0; round < 3; round++) {
+            GameInstance gameInstance = pool.take(GAMEPLAY);
+
+            assertNotNull(gameInstance);
+            assertEquals(GameStage.CREATED, gameInstance.getCurrentStage());
+            assertTrue(taken.add(gameInstance));
+            await(() -> pool.getReadyCount(GAMEPLAY) == 2);
+        }
+
+        assertEquals(3, pool.getHitCount());
+        assertEquals(5, built.get());
+    }
+
+    @Test
+    void missOnEmptyPoolTriggersRefill() {
+        pool = createPool(2);
+
+        assertNull(pool.take(GAMEPLAY));
+        assertEquals(1, pool.getMissCount());
+
+        await(() -> pool.getReadyCount(GAMEPLAY) == 2);
+        assertNotNull(pool.take(GAMEPLAY));
+        assertEquals(1, pool.getHitCount());
+    }
+
+    @Test
+    void emptySizeBuildsNothing() {
+        pool = createPool(0);
+
+        pool.warm(List.of(GAMEPLAY));
+
+        assertNull(pool.take(GAMEPLAY));
+        assertEquals(1, pool.getMissCount());
+        assertEquals(0, pool.getReadyCount(GAMEPLAY));
+        assertEquals(0, built.get());
+    }
+
+    @Test
+    void gameFailingToBuildLeavesEmptyPool() {
+        pool = createPool(2);
+
+        pool.warm(List.of(BROKEN, GAMEPLAY));
+        await(() -> pool.getReadyCount(GAMEPLAY) == 2);
+
+        assertEquals(0, pool.getReadyCount(BROKEN));
+        assertNull(pool.take(BROKEN));
+        assertNull(pool.take(null));
+    }
+
+    @Test
+    void setSizeGrowsPoolsAndClearDiscardsThem() {
+        pool = createPool(1);
+        pool.warm(List.of(GAMEPLAY));
+        await(() -> pool.getReadyCount(GAMEPLAY) == 1);
+
+        pool.setSize(3);
+        await(() -> pool.getReadyCount(GAMEPLAY) == 3);
+
+        pool.clear();
+        assertEquals(0, pool.getReadyCount(GAMEPLAY));
+
+        assertThrows(IllegalArgumentException.class, () -> pool.setSize(-1));
+        assertThrows(IllegalArgumentException.class, () -> new GameInstanceWarmPool(null, 1));
+    }
+
+    @Test
+    void shutdownStopsRefills() {
+        pool = createPool(2);
+
+        pool.shutdown();
+        pool.warm(List.of(GAMEPLAY));
+
+        assertNull(pool.take(GAMEPLAY));
+        assertEquals(0, pool.getReadyCount(GAMEPLAY));
+        assertEquals(0, built.get());
+    }
+
+    /**
+     * Create a pool building instances of the gameplays of the factory, counting them.
+     * Instances of {@link #BROKEN} cannot be built.
+     */
+    private GameInstanceWarmPool createPool(int size) {
+        return new GameInstanceWarmPool(gameName -> {
+            if (BROKEN.equals(gameName))
+                throw new IllegalArgumentException("no gameplay " + gameName);
+
+            built.incrementAndGet();
+            return new GameInstance(gameplayFactory.getGameplay(gameName));
+        }, size);
+    }
+
+    /**
+     * Wait until a condition holds, failing after a timeout.
+     */
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+
+        while (!condition.getAsBoolean())
+            if (System.currentTimeMillis() > deadline)
+                throw new AssertionError("condition not met in " + TIMEOUT_MILLIS + " ms");
+            else
+                Thread.onSpinWait();
+    }
+}
@@ -0,0 +1,135 @@
+package rea;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import rea.components.Character;
+import rea.gameplay.GameplayFactory;
+import rea.gameplay.games.CartoonAvatar;
+import rea.gaming.GameInstance;
+import rea.gaming.GameStage;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Assignment of characters to game instances by the queues of a {@link Matchmaker}, joined concurrently.
+ */
+class MatchmakerTest {
+
+    private static final String GAMEPLAY = "Treasure Hunt";
+
+    private GameplayFactory gameplayFactory;
+    private Matchmaker matchmaker;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void createMatchmaker()
+            throws ReaException {
+        gameplayFactory = new GameplayFactory();
+        matchmaker = new Matchmaker(gameName -> new GameInstance(gameplayFactory.getGameplay(gameName)));
+        executor = Executors.newFixedThreadPool(8);
+    }
+
+    @AfterEach
+    void stopExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentJoinsNeverDoubleBook()
+            throws Exception {
+        int joins = 301;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Character> characters = new ArrayList<>();
+        List<Future<Matchmaker.Match>> futures = new ArrayList<>();
+
+        for (int index = 0; index < joins; index++) {
+            Character character = new Character("c" + index, CartoonAvatar.BUNNY);
+
+            characters.add(character);
+            futures.add(executor.submit(() -> {
+                start.await();
+                return matchmaker.join(GAMEPLAY, character);
+            }));
+        }
+        start.countDown();
+
+        Map<GameInstance, List<Matchmaker.Match>> byInstance = new IdentityHashMap<>();
+
+        for (int index = 0; index < joins; index++) {
+            Matchmaker.Match match = futures.get(index).get();
+
+            assertNotNull(match);
+            assertSame(characters.get(index), match.player().getCharacter());
+            byInstance.computeIfAbsent(match.gameInstance(), gameInstance -> new ArrayList<>()).add(match);
+        }
+
+        int maxPlayers = gameplayFactory.getGameplay(GAMEPLAY).getMaxPlayers();
+        int full = 0;
+
+        for (Map.Entry<GameInstance, List<Matchmaker.Match>> entry : byInstance.entrySet()) {
+            GameInstance gameInstance = entry.getKey();
+
+            // every player is counted once, in the instance it was assigned to
+            assertEquals(entry.getValue().size(), gameInstance.getPlayerCount());
+            assertTrue(gameInstance.getPlayerCount() <= maxPlayers);
+            // no player is ready yet, hence no game started
+            assertEquals(GameStage.CREATED, gameInstance.getCurrentStage());
+
+            if (gameInstance.getPlayerCount() == maxPlayers)
+                full++;
+        }
+
+        assertEquals(joins / maxPlayers, full);
+        assertEquals(joins, matchmaker.getJoinCount());
+        assertEquals(byInstance.size(), matchmaker.getOpenedCount());
+    }
+
+    @Test
+    void gameStartsWhenLastPlayerIsReady() {
+        int maxPlayers = gameplayFactory.getGameplay(GAMEPLAY).getMaxPlayers();
+        GameInstance gameInstance = null;
+
+        for (int index = 0; index < maxPlayers; index++) {
+            Matchmaker.Match match = matchmaker.join(GAMEPLAY, new Character("c" + index, CartoonAvatar.BUNNY));
+
+            if (gameInstance == null)
+                gameInstance = match.gameInstance();
+
+            // the last player joined can still register its handlers before the game starts
+            assertSame(gameInstance, match.gameInstance());
+            assertEquals(GameStage.CREATED, gameInstance.getCurrentStage());
+            gameInstance.playerReady(match.player());
+        }
+
+        assertEquals(GameStage.PLAYING, gameInstance.getCurrentStage());
+        assertEquals(0, matchmaker.getOpenCount(GAMEPLAY));
+    }
+
+    @Test
+    void joiningTwiceKeepsTheSlot() {
+        Character character = new Character("bob", CartoonAvatar.BUNNY);
+        Matchmaker.Match match = matchmaker.join(GAMEPLAY, character);
+
+        assertNull(matchmaker.join(GAMEPLAY, character));
+        assertEquals(1, match.gameInstance().getPlayerCount());
+
+        Matchmaker.Match other = matchmaker.join(GAMEPLAY, new Character("al", CartoonAvatar.LAMB));
+
+        assertSame(match.gameInstance(), other.gameInstance());
+        assertEquals(2, match.gameInstance().getPlayerCount());
+    }
+}
@@ -0,0 +1,194 @@
+package rea.components;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Cycle rejection, incremental topological order and reachability of a {@link DAG}.
+ */
+class DAGTest {
+
+    private static final Visual VISUAL = new Visual("place", 10, 10);
+
+    private DAG dag;
+
+    @BeforeEach
+    void createDag() {
+        dag = new DAG();
+    }
+
+    @Test
+    void rejectsPassageToItself() {
+        Place[] places = addPlaces(1);
+
+        assertThrows(IllegalArgumentException.class, () -> addPassage(places[0], places[0]));
+        assertTrue(dag.successors(places[0]).isEmpty());
+    }
+
+    @Test
+    void rejectsPassageClosingCycle() {
+        Place[] places = addPlaces(3);
+
+        addPassage(places[0], places[1]);
+        addPassage(places[1], places[2]);
+
+        long version = dag.getVersion();
+
+        assertThrows(IllegalArgumentException.class, () -> addPassage(places[2], places[0]));
+        assertThrows(IllegalArgumentException.class, () -> addPassage(places[1], places[0]));
+
+        // a rejected passage leaves the graph unchanged
+        assertEquals(version, dag.getVersion());
+        assertTrue(dag.successors(places[2]).isEmpty());
+        assertFalse(dag.isReachable(places[2], places[0]));
+        assertTrue(dag.isReachable(places[0], places[2]));
+    }
+
+    @Test
+    void rejectsPassageBetweenUnknownPlaces() {
+        Place[] places = addPlaces(1);
+        Place unknown = new Place(VISUAL, "unknown", new Position(0, 0));
+
+        assertThrows(IllegalArgumentException.class, () -> addPassage(unknown, places[0]));
+        assertThrows(IllegalArgumentException.class, () -> addPassage(places[0], unknown));
+    }
+
+    @Test
+    void reordersDenseGraph() {
+        int size = 40;
+        Place[] places = addPlaces(size);
+
+        // every passage leads to a place added earlier, hence against the initial order
+        for (int from = size - 1; from > 0; from--)
+            for (int to = from - 1; to >= 0; to--)
+                addPassage(places[from], places[to]);
+
+        for (int from = 0; from < size; from++)
+            for (int to = 0; to < size; to++) {
+                if (from > to)
+                    assertTrue(dag.getOrder(places[from]) < dag.getOrder(places[to]),
+                            "order of p" + from + " and p" + to);
+                assertEquals(from >= to, dag.isReachable(places[from], places[to]), "p" + from + " to p" + to);
+            }
+
+        for (int from = 0; from < size - 1; from++) {
+            Place place = places[from];
+            Place later = places[from + 1];
+
+            assertThrows(IllegalArgumentException.class, () -> addPassage(place, later));
+        }
+    }
+
+    @Test
+    void matchesBruteForceOnRandomGraph() {
+        int size = 30;
+        Place[] places = addPlaces(size);
+        boolean[][] arcs = new boolean[size][size];
+        Random random = new Random(7);
+
+        for (int attempt = 0; attempt < 1000; attempt++) {
+            int from = random.nextInt(size);
+            int to = random.nextInt(size);
+
+            if (reaches(arcs, to, from))
+                assertThrows(IllegalArgumentException.class, () -> addPassage(places[from], places[to]));
+            else {
+                addPassage(places[from], places[to]);
+                arcs[from][to] = true;
+            }
+        }
+
+        for (int from = 0; from < size; from++)
+            for (int to = 0; to < size; to++) {
+                assertEquals(reaches(arcs, from, to), dag.isReachable(places[from], places[to]),
+                        "p" + from + " to p" + to);
+                if (arcs[from][to])
+                    assertTrue(dag.getOrder(places[from]) < dag.getOrder(places[to]),
+                            "order of p" + from + " and p" + to);
+            }
+    }
+
+    @Test
+    void isReachableFollowsPassages() {
+        Place[] places = addPlaces(4);
+        Place unknown = new Place(VISUAL, "unknown", new Position(0, 0));
+
+        addPassage(places[0], places[1]);
+        addPassage(places[1], places[2]);
+
+        assertTrue(dag.isReachable(places[0], places[0]));
+        assertTrue(dag.isReachable(places[0], places[2]));
+        assertFalse(dag.isReachable(places[2], places[0]));
+        assertFalse(dag.isReachable(places[0], places[3]));
+        assertFalse(dag.isReachable(places[0], unknown));
+        assertFalse(dag.isReachable(unknown, unknown));
+    }
+
+    @Test
+    void successorsAreDistinctInPassageOrder() {
+        Place[] places = addPlaces(4);
+
+        addPassage(places[0], places[3]);
+        addPassage(places[0], places[1]);
+        addPassage(places[0], places[3]);
+        addPassage(places[1], places[2]);
+
+        assertEquals(List.of(places[3], places[1]), dag.successors(places[0]));
+        assertEquals(List.of(places[2]), dag.successors(places[1]));
+        assertTrue(dag.successors(places[3]).isEmpty());
+        assertTrue(dag.successors(new Place(VISUAL, "unknown", new Position(0, 0))).isEmpty());
+    }
+
+    /**
+     * Add places with distinct descriptions to the dag.
+     */
+    private Place[] addPlaces(int count) {
+        Place[] places = new Place[count];
+
+        for (int index = 0; index < count; index++) {
+            places[index] = new Place(VISUAL, "p" + index, new Position(0, 0));
+            dag.addPlace(places[index]);
+        }
+
+        return places;
+    }
+
+    private void addPassage(Place from, Place to) {
+        dag.addPassage(from, new Passage(VISUAL, "to " + to.getDescription(), to));
+    }
+
+    /**
+     * Reachability by brute force over a matrix of arcs.
+     */
+    private static boolean reaches(boolean[][] arcs, int from, int to) {
+        boolean[] visited = new boolean[arcs.length];
+        Deque<Integer> stack = new ArrayDeque<>();
+
+        visited[from] = true;
+        stack.push(from);
+        while (!stack.isEmpty()) {
+            int place = stack.pop();
+
+            if (place == to)
+                return true;
+
+            for (int next = 0; next < arcs.length; next++)
+                if (arcs[place][next] && !visited[next]) {
+                    visited[next] = true;
+                    stack.push(next);
+                }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,186 @@
+package rea.events;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Overflow policies, lag and failures of the queue of an {@link AsyncUpdateListener}.
+ */
+class AsyncUpdateListenerTest {
+
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    /**
+     * An event identified by a number, in the order it was sent.
+     * @param number of the event
+     */
+    private record Numbered(int number) implements UpdateEvent {
+    }
+
+    private final List<Integer> delivered = new CopyOnWriteArrayList<>();
+    private AsyncUpdateListener<Numbered> listener;
+
+    @AfterEach
+    void closeListener() {
+        if (listener != null)
+            listener.close();
+    }
+
+    @Test
+    void dropOldestKeepsTheNewestEvents() {
+        listener = new AsyncUpdateListener<>(event -> delivered.add(event.number()), 3, OverflowPolicy.DROP_OLDEST);
+
+        send(5);
+
+        assertEquals(3, listener.getQueueDepth());
+        assertEquals(2, listener.getDroppedCount());
+
+        listener.start();
+        awaitDelivered(3);
+
+        assertEquals(List.of(2, 3, 4), delivered);
+        assertEquals(0, listener.getQueueDepth());
+    }
+
+    @Test
+    void latestWinsKeepsOnlyTheLastEvent() {
+        listener = new AsyncUpdateListener<>(event -> delivered.add(event.number()), 3, OverflowPolicy.LATEST_WINS);
+
+        send(5);
+
+        assertEquals(1, listener.getQueueDepth());
+        assertEquals(4, listener.getDroppedCount());
+
+        listener.start();
+        awaitDelivered(1);
+
+        assertEquals(List.of(4), delivered);
+    }
+
+    @Test
+    void blockWaitsForRoomWithoutDropping()
+            throws Exception {
+        listener = new AsyncUpdateListener<>(event -> delivered.add(event.number()), 2, OverflowPolicy.BLOCK);
+
+        send(2);
+
+        CompletableFuture<Void> blocked = CompletableFuture.runAsync(() -> listener.onUpdate(new Numbered(2)));
+
+        // the queue is full and nothing is delivered before the listener starts
+        Thread.sleep(50);
+        assertFalse(blocked.isDone());
+
+        listener.start();
+        blocked.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        awaitDelivered(3);
+
+        assertEquals(List.of(0, 1, 2), delivered);
+        assertEquals(0, listener.getDroppedCount());
+    }
+
+    @Test
+    void lagIsMeasuredWhileQueuedAndWhenDelivered()
+            throws Exception {
+        listener = new AsyncUpdateListener<>(event -> delivered.add(event.number()), 4, OverflowPolicy.DROP_OLDEST);
+
+        assertEquals(0, listener.getLagNanos());
+
+        send(1);
+        Thread.sleep(30);
+
+        assertTrue(listener.getLagNanos() >= TimeUnit.MILLISECONDS.toNanos(30));
+
+        listener.start();
+        awaitDelivered(1);
+
+        assertTrue(listener.getLastDeliveryLagNanos() >= TimeUnit.MILLISECONDS.toNanos(30));
+        assertEquals(0, listener.getLagNanos());
+    }
+
+    @Test
+    void failedDelegateStopsDelivery() {
+        listener = new AsyncUpdateListener<Numbered>(event -> {
+            throw new IllegalStateException("failed " + event.number());
+        }, 4, OverflowPolicy.DROP_OLDEST).start();
+
+        send(1);
+        awaitInactive();
+
+        assertNotNull(listener.getFailure());
+        assertEquals(0, listener.getDeliveredCount());
+        assertThrows(IllegalStateException.class, () -> listener.onUpdate(new Numbered(1)));
+    }
+
+    @Test
+    void closeDiscardsQueuedEventsAndEndsThread()
+            throws Exception {
+        listener = new AsyncUpdateListener<>(event -> delivered.add(event.number()), 4, OverflowPolicy.DROP_OLDEST);
+
+        send(3);
+        listener.start();
+        listener.close();
+        listener.getDeliveryThread().join(TIMEOUT_MILLIS);
+
+        assertFalse(listener.getDeliveryThread().isAlive());
+        assertFalse(listener.isActive());
+        assertEquals(3, listener.getDeliveredCount() + listener.getDroppedCount());
+        assertThrows(IllegalStateException.class, () -> listener.onUpdate(new Numbered(3)));
+    }
+
+    @Test
+    void rejectsInvalidArguments() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new AsyncUpdateListener<Numbered>(null, 1, OverflowPolicy.BLOCK));
+        assertThrows(IllegalArgumentException.class,
+                () -> new AsyncUpdateListener<Numbered>(event -> { }, 0, OverflowPolicy.BLOCK));
+
+        listener = new AsyncUpdateListener<Numbered>(event -> { }, 1, OverflowPolicy.BLOCK).start();
+
+        assertThrows(IllegalStateException.class, listener::start);
+    }
+
+    /**
+     * Send events numbered from 0 to the listener.
+     */
+    private void send(int count) {
+        for (int number = 0; number < count; number++)
+            listener.onUpdate(new Numbered(number));
+    }
+
+    /**
+     * Wait until a number of events was delivered, failing after a timeout.
+     */
+    private void awaitDelivered(int count) {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+
+        while (listener.getDeliveredCount() < count)
+            if (System.currentTimeMillis() > deadline)
+                throw new AssertionError("delivered " + listener.getDeliveredCount() + " of " + count);
+            else
+                Thread.onSpinWait();
+    }
+
+    /**
+     * Wait until the listener stops delivering, failing after a timeout.
+     */
+    private void awaitInactive() {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+
+        while (listener.isActive())
+            if (System.currentTimeMillis() > deadline)
+                throw new AssertionError("listener still active");
+            else
+                Thread.onSpinWait();
+    }
+}
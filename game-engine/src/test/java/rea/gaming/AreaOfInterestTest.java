@@ -0,0 +1,144 @@
+package rea.gaming;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import rea.ReaException;
+import rea.components.Character;
+import rea.components.Passage;
+import rea.components.Place;
+import rea.components.Position;
+import rea.components.Positionable;
+import rea.components.Visual;
+import rea.events.SceneDeltaEvent;
+import rea.gameplay.games.CartoonAvatar;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Scene deltas delivered by area of interest to a character that watches another one
+ * leave and come back through a passage.
+ */
+class AreaOfInterestTest {
+
+    private static final int RADIUS = 50;
+
+    private GameEventSource gameEventSource;
+    private Place hall;
+    private Place yard;
+    private Character ann;
+    private Character bob;
+
+    /**
+     * Positionables that bob knows to be in his scene, kept from the events he receives.
+     */
+    private final Set<Positionable> scene = new HashSet<>();
+    private final List<SceneDeltaEvent> received = new ArrayList<>();
+
+    @BeforeEach
+    void createScene()
+            throws ReaException {
+        gameEventSource = new GameEventSource() { };
+        gameEventSource.setAreaOfInterest(RADIUS);
+
+        hall = new Place(new Visual("hall", 3000, 3000), "hall", new Position(500, 500));
+        yard = new Place(new Visual("yard", 3000, 3000), "yard", new Position(2000, 2000));
+        hall.addGameComponent(new Passage(new Visual("door", 10, 10), "to yard", yard), new Position(1500, 100));
+
+        ann = join("ann");
+        bob = join("bob");
+
+        Player watcher = null;
+        for (Player player : gameEventSource.players)
+            if (player.getCharacter() == bob)
+                watcher = player;
+
+        gameEventSource.addSceneDeltaListener(watcher, this::apply);
+
+        ann.move(hall);
+        bob.move(hall);
+        hall.moveGameComponent(bob, new Position(520, 500));
+        gameEventSource.multicastSceneUpdate(hall);
+        gameEventSource.requestSceneResync(watcher);
+
+        assertTrue(scene.contains(ann));
+    }
+
+    @Test
+    void leavingThroughPassageIsRemovedFromScene() {
+        received.clear();
+
+        // as in GameInstance.executeMove
+        ann.move(yard);
+        hall.removeGameComponent(ann);
+        gameEventSource.multicastSceneUpdate(yard);
+        gameEventSource.multicastSceneUpdate(hall);
+
+        assertEquals(1, received.size());
+        assertEquals(List.of(ann), received.get(0).getRemoved());
+        assertFalse(scene.contains(ann));
+    }
+
+    @Test
+    void comingBackIsAddedToScene() {
+        ann.move(yard);
+        hall.removeGameComponent(ann);
+        gameEventSource.multicastSceneUpdate(yard);
+        gameEventSource.multicastSceneUpdate(hall);
+        received.clear();
+
+        // as in GameInstance.executeBack
+        assertEquals(hall, ann.moveBack());
+        gameEventSource.multicastSceneUpdate(yard);
+        gameEventSource.multicastSceneUpdate(hall);
+
+        assertEquals(1, received.size());
+        assertEquals(List.of(ann), received.get(0).getAdded());
+        assertTrue(scene.contains(ann));
+        assertEquals(hall.getEntrance(), ann.getPosition());
+    }
+
+    @Test
+    void movingOutOfAreaWithinPlaceIsRemovedFromScene() {
+        received.clear();
+
+        hall.moveGameComponent(ann, new Position(1000, 1000));
+        gameEventSource.multicastSceneUpdate(hall);
+
+        assertEquals(1, received.size());
+        assertEquals(List.of(ann), received.get(0).getRemoved());
+        assertFalse(scene.contains(ann));
+    }
+
+    /**
+     * Add a player with a character to the game event source.
+     */
+    private Character join(String name) {
+        Character character = new Character(name, CartoonAvatar.BUNNY);
+        Player player = new Player(character);
+
+        gameEventSource.players.add(player);
+        gameEventSource.setInterestRadius(player, RADIUS);
+
+        return character;
+    }
+
+    /**
+     * Apply an event to the scene of bob, as a client would.
+     */
+    private void apply(SceneDeltaEvent event) {
+        received.add(event);
+
+        if (event.isSnapshot())
+            scene.clear();
+        event.getRemoved().forEach(scene::remove);
+        scene.addAll(event.getMoved());
+        scene.addAll(event.getAdded());
+    }
+}
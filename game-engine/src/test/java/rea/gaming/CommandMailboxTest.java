@@ -0,0 +1,199 @@
+package rea.gaming;
+
+import org.junit.jupiter.api.Test;
+import rea.ReaException;
+import rea.components.Character;
+import rea.gameplay.GameplayFactory;
+import rea.gameplay.games.CartoonAvatar;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Order and exclusion of the tasks of a {@link CommandMailbox}, and commands submitted to a game instance
+ * through its mailbox.
+ */
+class CommandMailboxTest {
+
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    private final CommandMailbox mailbox = new CommandMailbox("test-mailbox");
+
+    @Test
+    void tasksRunInSubmissionOrder()
+            throws Exception {
+        List<Integer> executed = new ArrayList<>();
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+
+        // the list is not synchronized, since the tasks never run concurrently
+        for (int index = 0; index < 1000; index++) {
+            int number = index;
+
+            futures.add(mailbox.submit(() -> {
+                executed.add(number);
+                return number;
+            }));
+        }
+
+        for (int index = 0; index < futures.size(); index++)
+            assertEquals(index, (int) futures.get(index).get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+
+        List<Integer> expected = new ArrayList<>();
+        for (int index = 0; index < 1000; index++)
+            expected.add(index);
+
+        assertEquals(expected, executed);
+        assertEquals(1000, mailbox.getExecutedCount());
+    }
+
+    @Test
+    void tasksFromManyThreadsNeverOverlap()
+            throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        List<Thread> submitters = new ArrayList<>();
+
+        for (int thread = 0; thread < 8; thread++)
+            submitters.add(Thread.ofPlatform().start(() -> {
+                for (int index = 0; index < 200; index++)
+                    mailbox.run(() -> {
+                        if (running.incrementAndGet() > 1)
+                            overlaps.incrementAndGet();
+                        Thread.onSpinWait();
+                        running.decrementAndGet();
+                    });
+            }));
+
+        for (Thread submitter : submitters)
+            submitter.join(TIMEOUT_MILLIS);
+
+        assertEquals(0, overlaps.get());
+        assertEquals(1600, mailbox.getExecutedCount());
+    }
+
+    @Test
+    void callFromMailboxThreadRunsInline()
+            throws Exception {
+        List<String> executed = new CopyOnWriteArrayList<>();
+
+        CompletableFuture<String> outer = mailbox.submit(() -> {
+            executed.add("outer");
+            // waiting for a task queued after this one would deadlock
+            String inner = mailbox.call(() -> {
+                executed.add("inner");
+                return mailbox.isActorThread() ? "inline" : "queued";
+            });
+            executed.add("after " + inner);
+            return inner;
+        });
+
+        assertEquals("inline", outer.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        assertEquals(List.of("outer", "inner", "after inline"), executed);
+        assertFalse(mailbox.isActorThread());
+    }
+
+    @Test
+    void callRaisesExceptionOfTask() {
+        IllegalStateException failure = new IllegalStateException("failed");
+
+        assertSame(failure, assertThrows(IllegalStateException.class, () -> mailbox.call(() -> {
+            throw failure;
+        })));
+
+        // the mailbox keeps executing tasks after a failure
+        assertEquals("next", mailbox.call(() -> "next"));
+    }
+
+    @Test
+    void asyncCommandFailsIfGameEndsBeforeItRuns()
+            throws Exception {
+        GameInstance gameInstance = startGame();
+        Player player = gameInstance.players.iterator().next();
+        CountDownLatch release = new CountDownLatch(1);
+
+        // the first command holds the mailbox and then ends the game
+        gameInstance.setCommandHandler(Action.TALK, (instance, character, object) -> {
+            try {
+                release.await();
+            }
+            catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            instance.endPlayingGame();
+            return null;
+        });
+
+        CompletableFuture<String> first = gameInstance.executeCommandAsync(player, Action.TALK, "first");
+        CompletableFuture<String> second = gameInstance.executeCommandAsync(player, Action.TALK, "second");
+
+        assertFalse(second.isDone());
+        release.countDown();
+
+        assertNull(first.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        ExecutionException failure = assertThrows(ExecutionException.class,
+                () -> second.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        assertTrue(failure.getCause() instanceof IllegalStateException);
+        assertEquals(GameStage.ENDED, gameInstance.getCurrentStage());
+
+        // once ended, commands are rejected when submitted
+        assertThrows(IllegalStateException.class, () -> gameInstance.executeCommandAsync(player, Action.TALK, "third"));
+    }
+
+    @Test
+    void asyncCommandsRunInOrderWithSynchronousOnes()
+            throws Exception {
+        GameInstance gameInstance = startGame();
+        Player player = gameInstance.players.iterator().next();
+        List<Object> executed = new CopyOnWriteArrayList<>();
+
+        gameInstance.setCommandHandler(Action.TALK, (instance, character, object) -> {
+            executed.add(object);
+            return "failed".equals(object) ? "failed" : null;
+        });
+
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int index = 0; index < 100; index++)
+            futures.add(gameInstance.executeCommandAsync(player, Action.TALK, index));
+        futures.add(gameInstance.executeCommandAsync(player, Action.TALK, "failed"));
+
+        assertNull(gameInstance.executeCommand(player, Action.TALK, "last"));
+
+        List<Object> expected = new ArrayList<>();
+        for (int index = 0; index < 100; index++)
+            expected.add(index);
+        expected.add("failed");
+        expected.add("last");
+
+        assertEquals(expected, executed);
+        // a command that fails completes normally, with its status
+        assertEquals("failed", futures.get(100).get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Start a game of Treasure Hunt with two players.
+     */
+    private static GameInstance startGame()
+            throws ReaException {
+        GameInstance gameInstance = new GameInstance(new GameplayFactory().getGameplay("Treasure Hunt"));
+
+        assertNotNull(gameInstance.addPlayer(new Character("bob", CartoonAvatar.BUNNY)));
+        assertNotNull(gameInstance.addPlayer(new Character("al", CartoonAvatar.LAMB)));
+        gameInstance.startPlayingGame();
+
+        return gameInstance;
+    }
+}
@@ -0,0 +1,285 @@
+package rea.gaming;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import rea.ReaException;
+import rea.components.Character;
+import rea.components.Item;
+import rea.components.Passage;
+import rea.components.Place;
+import rea.components.Position;
+import rea.components.Positionable;
+import rea.gameplay.GameplayFactory;
+import rea.gameplay.games.CartoonAvatar;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Round trips of game instances through their {@link CommandJournal} and {@link JournalReplay},
+ * with journals damaged as by a crash.
+ */
+class JournalReplayTest {
+
+    private static final String GAMEPLAY = "Treasure Hunt";
+
+    /**
+     * Snapshot interval larger than the number of records, so that recovery replays the whole journal.
+     */
+    private static final int NO_SNAPSHOTS = 1000;
+
+    @TempDir
+    Path directory;
+
+    private GameplayFactory gameplayFactory;
+    private final List<GameInstance> journaled = new ArrayList<>();
+
+    @BeforeEach
+    void createFactory()
+            throws ReaException {
+        gameplayFactory = new GameplayFactory();
+    }
+
+    @AfterEach
+    void closeJournals() {
+        for (GameInstance gameInstance : journaled)
+            gameInstance.getJournal().close();
+    }
+
+    @Test
+    void replayRebuildsTheSameState()
+            throws Exception {
+        GameInstance original = play(NO_SNAPSHOTS);
+        GameInstance recovered = recover(original, NO_SNAPSHOTS);
+
+        assertEquals(describe(original), describe(recovered));
+        assertEquals(original.getPlayerCount(), recovered.getPlayerCount());
+        assertEquals(original.getPlayingSince(), recovered.getPlayingSince());
+    }
+
+    @Test
+    void tornTailIsDiscarded()
+            throws Exception {
+        GameInstance original = play(NO_SNAPSHOTS);
+        Path journalPath = original.getJournal().getPath();
+
+        // a frame announcing 50 bytes of payload, torn after 3 of them
+        Files.write(journalPath, new byte[] {0, 0, 0, 50, 1, 2, 3, 4, 5, 6, 7}, StandardOpenOption.APPEND);
+
+        GameInstance recovered = recover(original, NO_SNAPSHOTS);
+
+        assertEquals(describe(original), describe(recovered));
+
+        // the recovered instance appends after the valid records, overwriting the torn one
+        Player player = player(recovered, "bob");
+        assertNull(recovered.executeCommand(player, Action.MOVE, new Position(5, 6)));
+        recovered.getJournal().sync().join();
+
+        GameInstance recoveredAgain = recover(recovered, NO_SNAPSHOTS);
+
+        assertEquals(describe(recovered), describe(recoveredAgain));
+        assertEquals(new Position(5, 6), player(recoveredAgain, "bob").getCharacter().getPosition());
+    }
+
+    @Test
+    void checksumMismatchStopsReplay()
+            throws Exception {
+        GameInstance original = play(NO_SNAPSHOTS);
+        String beforeLastCommand = describe(original);
+
+        assertNull(original.executeCommand(player(original, "bob"), Action.MOVE, new Position(5, 6)));
+        original.getJournal().sync().join();
+
+        // the last byte belongs to the payload of the last record, hence its checksum no longer matches
+        Path journalPath = original.getJournal().getPath();
+        flipByte(journalPath, Files.size(journalPath) - 1);
+
+        GameInstance recovered = recover(original, NO_SNAPSHOTS);
+
+        assertEquals(beforeLastCommand, describe(recovered));
+    }
+
+    @Test
+    void recoveryStartsFromSnapshot()
+            throws Exception {
+        GameInstance original = play(3);
+        Path journalPath = original.getJournal().getPath();
+        CommandJournal.SnapshotFile snapshot = CommandJournal.readSnapshot(journalPath);
+
+        assertNotNull(snapshot);
+
+        // records covered by the snapshot are not replayed, hence damaging one of them is harmless
+        flipByte(journalPath, snapshot.journalPosition() - 1);
+
+        GameInstance recovered = recover(original, 3);
+
+        assertEquals(describe(original), describe(recovered));
+        assertEquals(original.getPlayingSince(), recovered.getPlayingSince());
+    }
+
+    @Test
+    void corruptedSnapshotFallsBackToJournal()
+            throws Exception {
+        GameInstance original = play(3);
+        Path snapshotPath = CommandJournal.snapshotPath(original.getJournal().getPath());
+
+        assertTrue(Files.exists(snapshotPath));
+        flipByte(snapshotPath, Files.size(snapshotPath) - 1);
+        assertNull(CommandJournal.readSnapshot(original.getJournal().getPath()));
+
+        GameInstance recovered = recover(original, 3);
+
+        assertEquals(describe(original), describe(recovered));
+    }
+
+    @Test
+    void endedGameKeepsItsTimes()
+            throws Exception {
+        GameInstance original = play(NO_SNAPSHOTS);
+        Player player = player(original, "bob");
+
+        assertNull(original.executeCommand(player, Action.PICK, find(player.getCharacter().getPlace(), "treasure")));
+        assertEquals(GameStage.ENDED, original.getCurrentStage());
+        original.getJournal().sync().join();
+
+        GameInstance recovered = recover(original, NO_SNAPSHOTS);
+
+        assertEquals(GameStage.ENDED, recovered.getCurrentStage());
+        assertEquals(original.getPlayingSince(), recovered.getPlayingSince());
+        assertEquals(original.getPlayingUntil(), recovered.getPlayingUntil());
+    }
+
+    /**
+     * Play a journaled game of Treasure Hunt up to entering the house where the treasure is.
+     * @param snapshotInterval records between snapshots
+     * @return game instance, with its records on disk
+     */
+    private GameInstance play(int snapshotInterval)
+            throws IOException {
+        GameInstance gameInstance = new GameInstance(gameplayFactory.getGameplay(GAMEPLAY));
+
+        gameInstance.setJournal(CommandJournal.create(directory, gameInstance, snapshotInterval));
+        journaled.add(gameInstance);
+
+        Player player = gameInstance.addPlayer(new Character("bob", CartoonAvatar.BUNNY));
+        gameInstance.addPlayer(new Character("al", CartoonAvatar.LAMB));
+        gameInstance.startPlayingGame();
+
+        Place start = gameInstance.getGameMap().getStartPlace();
+        Item key = (Item) find(start, "key");
+        Item door = (Item) find(start, "house");
+
+        assertNull(gameInstance.executeCommand(player, Action.MOVE, new Position(7, 8)));
+        assertNull(gameInstance.executeCommand(player, Action.PICK, key));
+        assertNull(gameInstance.executeCommand(player, Action.HOLD, key));
+        assertNull(gameInstance.executeCommand(player, Action.TALK, "hello"));
+        assertNull(gameInstance.executeCommand(player, Action.USE, door));
+
+        Passage passage = null;
+        for (Positionable positionable : start.getPositionables())
+            if (positionable instanceof Passage found)
+                passage = found;
+
+        assertNull(gameInstance.executeCommand(player, Action.MOVE, passage));
+        assertNull(gameInstance.executeCommand(player, Action.MOVE, new Position(3, 4)));
+
+        gameInstance.getJournal().sync().join();
+
+        return gameInstance;
+    }
+
+    /**
+     * Recover a game instance from its journal, as after a crash.
+     * @param gameInstance whose journal is recovered
+     * @param snapshotInterval records between snapshots of the recovered instance
+     * @return recovered game instance
+     */
+    private GameInstance recover(GameInstance gameInstance, int snapshotInterval)
+            throws ReaException {
+        GameInstance recovered = JournalReplay.recover(gameInstance.getJournal().getPath(),
+                gameplayFactory, snapshotInterval);
+
+        journaled.add(recovered);
+
+        return recovered;
+    }
+
+    /**
+     * Player of a game instance by the name of its character.
+     */
+    private static Player player(GameInstance gameInstance, String name) {
+        for (Player player : gameInstance.players)
+            if (player.getCharacter().getName().equals(name))
+                return player;
+
+        throw new AssertionError("no player " + name);
+    }
+
+    /**
+     * First positionable in a place whose description starts with a prefix.
+     */
+    private static Positionable find(Place place, String prefix) {
+        for (Positionable positionable : place.getPositionables())
+            if (positionable.getDescription().startsWith(prefix))
+                return positionable;
+
+        throw new AssertionError("no " + prefix + " in " + place.getDescription());
+    }
+
+    /**
+     * Description of the state of a game instance: its stage, the positionables in each place
+     * and the inventory of each player.
+     */
+    private static String describe(GameInstance gameInstance) {
+        // places and players are not kept in order, hence their lines are sorted
+        List<String> lines = new ArrayList<>();
+
+        for (Place place : gameInstance.getGameMap().getPlaces()) {
+            StringBuilder line = new StringBuilder(place.getDescription()).append(':');
+            for (Positionable positionable : place.getPositionables())
+                line.append(' ').append(positionable.getDescription())
+                        .append('@').append(positionable.getPosition().getX())
+                        .append(',').append(positionable.getPosition().getY());
+            lines.add(line.toString());
+        }
+
+        for (Player player : gameInstance.players) {
+            Character character = player.getCharacter();
+            lines.add(character.getName() + " in " + character.getPlace().getDescription()
+                    + " has " + character.getInventory());
+        }
+
+        lines.sort(null);
+        lines.add(0, gameInstance.getCurrentStage().toString());
+
+        return String.join("\n", lines);
+    }
+
+    /**
+     * Invert the bits of a byte in a file.
+     */
+    private static void flipByte(Path path, long position)
+            throws IOException {
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1);
+
+            file.read(buffer, position);
+            buffer.flip();
+            buffer.put(0, (byte) ~buffer.get(0));
+            file.write(buffer, position);
+        }
+    }
+}
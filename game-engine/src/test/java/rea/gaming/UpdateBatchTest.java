@@ -0,0 +1,155 @@
+package rea.gaming;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import rea.ReaException;
+import rea.components.Character;
+import rea.components.Item;
+import rea.components.Place;
+import rea.components.Position;
+import rea.components.Positionable;
+import rea.events.InventoryUpdateEvent;
+import rea.events.SceneDeltaEvent;
+import rea.gameplay.GameplayFactory;
+import rea.gameplay.games.CartoonAvatar;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Batches of commands executed with {@link GameInstance#executeCommands(Player, List)},
+ * sending one update for each changed scene and inventory.
+ */
+class UpdateBatchTest {
+
+    private GameInstance gameInstance;
+    private Player bob;
+    private Place start;
+
+    private final List<SceneDeltaEvent> bobScenes = new ArrayList<>();
+    private final List<SceneDeltaEvent> alScenes = new ArrayList<>();
+    private final List<InventoryUpdateEvent> bobInventories = new ArrayList<>();
+
+    @BeforeEach
+    void startGame()
+            throws ReaException {
+        gameInstance = new GameInstance(new GameplayFactory().getGameplay("Treasure Hunt"));
+        bob = gameInstance.addPlayer(new Character("bob", CartoonAvatar.BUNNY));
+        Player al = gameInstance.addPlayer(new Character("al", CartoonAvatar.LAMB));
+
+        gameInstance.addSceneDeltaListener(bob, bobScenes::add);
+        gameInstance.addSceneDeltaListener(al, alScenes::add);
+        gameInstance.addInventoryUpdateListener(bob, bobInventories::add);
+        gameInstance.startPlayingGame();
+
+        start = gameInstance.getGameMap().getStartPlace();
+        bobScenes.clear();
+        alScenes.clear();
+        bobInventories.clear();
+    }
+
+    @Test
+    void batchSendsOneDeltaPerScene() {
+        List<String> statuses = gameInstance.executeCommands(bob, List.of(
+                new CommandRequest(Action.MOVE, new Position(10, 10)),
+                new CommandRequest(Action.MOVE, new Position(20, 20)),
+                new CommandRequest(Action.MOVE, new Position(30, 30))));
+
+        assertEquals(List.of(), nonNull(statuses));
+        assertEquals(3, statuses.size());
+
+        for (List<SceneDeltaEvent> scenes : List.of(bobScenes, alScenes)) {
+            assertEquals(1, scenes.size());
+
+            SceneDeltaEvent delta = scenes.get(0);
+
+            assertEquals(List.of(bob.getCharacter()), delta.getMoved());
+            assertEquals(new Position(30, 30), delta.getMovedPosition(0));
+        }
+    }
+
+    @Test
+    void commandsOutsideBatchSendOneDeltaEach() {
+        assertNull(gameInstance.executeCommand(bob, Action.MOVE, new Position(10, 10)));
+        assertNull(gameInstance.executeCommand(bob, Action.MOVE, new Position(20, 20)));
+        assertNull(gameInstance.executeCommand(bob, Action.MOVE, new Position(30, 30)));
+
+        assertEquals(3, bobScenes.size());
+        assertEquals(3, alScenes.size());
+        // consecutive deltas of the same place
+        assertEquals(bobScenes.get(0).getSequence() + 2, bobScenes.get(2).getSequence());
+    }
+
+    @Test
+    void batchSendsOneInventoryUpdate() {
+        Item key = (Item) find("key");
+
+        List<String> statuses = gameInstance.executeCommands(bob, List.of(
+                new CommandRequest(Action.PICK, key),
+                new CommandRequest(Action.HOLD, key)));
+
+        assertEquals(List.of(), nonNull(statuses));
+        assertEquals(1, bobInventories.size());
+        assertEquals(1, bobScenes.size());
+        assertTrue(bobScenes.get(0).getRemoved().contains(key));
+    }
+
+    @Test
+    void batchStopsAtFirstFailure() {
+        List<String> statuses = gameInstance.executeCommands(bob, List.of(
+                new CommandRequest(Action.MOVE, new Position(10, 10)),
+                new CommandRequest(Action.MOVE, null),
+                new CommandRequest(Action.MOVE, new Position(30, 30))));
+
+        assertEquals(2, statuses.size());
+        assertNull(statuses.get(0));
+        assertNotNull(statuses.get(1));
+        assertEquals(new Position(10, 10), bob.getCharacter().getPosition());
+
+        // the changes of the commands that ran are still sent
+        assertEquals(1, bobScenes.size());
+        assertEquals(new Position(10, 10), bobScenes.get(0).getMovedPosition(0));
+    }
+
+    @Test
+    void batchRejectsNullCommands() {
+        List<CommandRequest> commands = new ArrayList<>();
+
+        commands.add(new CommandRequest(Action.MOVE, new Position(10, 10)));
+        commands.add(null);
+
+        assertThrows(IllegalArgumentException.class, () -> gameInstance.executeCommands(bob, commands));
+        assertThrows(IllegalArgumentException.class, () -> gameInstance.executeCommands(bob, null));
+        assertEquals(0, bobScenes.size());
+    }
+
+    /**
+     * Statuses that are not <code>null</code>, i.e. of the commands that failed.
+     */
+    private static List<String> nonNull(List<String> statuses) {
+        List<String> failed = new ArrayList<>();
+
+        for (String status : statuses)
+            if (status != null)
+                failed.add(status);
+
+        return failed;
+    }
+
+    /**
+     * First positionable in the start place whose description starts with a prefix.
+     */
+    private Positionable find(String prefix) {
+        for (Positionable positionable : start.getPositionables())
+            if (positionable.getDescription().startsWith(prefix))
+                return positionable;
+
+        throw new AssertionError("no " + prefix + " in " + start.getDescription());
+    }
+}